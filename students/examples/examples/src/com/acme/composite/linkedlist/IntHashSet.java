@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.linkedlist;
+
+/**
+ * The class IntHashSet is a minimal set of primitive ints with open addressing
+ * (linear probing) in a single int array, used by the lists of this package to
+ * remove duplicates in O(n) time without boxing the values.
+ */
+class IntHashSet {
+
+	private static final int FREE = 0; // the marker of a free slot, the value 0 itself is kept aside
+
+	private int[] table;
+	private int mask;
+	private int size;
+	private boolean zero;
+
+	IntHashSet(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(expected, 4) * 2 - 1) << 1;
+		table = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	/*
+	 * Fibonacci hashing spreads sequential values over the whole table
+	 */
+	private int slot(int value) {
+		int hash = value * 0x9E3779B9;
+		return (hash ^ hash >>> 16) & mask;
+	}
+
+	/**
+	 * @param value the value to add
+	 * @return true if the value was not in the set
+	 */
+	boolean add(int value) {
+		if (value == FREE) {
+			if (zero)
+				return false;
+			return zero = true;
+		}
+		int i = slot(value);
+		for (int current; (current = table[i]) != FREE; i = i + 1 & mask)
+			if (current == value)
+				return false;
+		table[i] = value;
+		if (++size > table.length >> 1)
+			grow();
+		return true;
+	}
+
+	boolean contains(int value) {
+		if (value == FREE)
+			return zero;
+		for (int i = slot(value), current; (current = table[i]) != FREE; i = i + 1 & mask)
+			if (current == value)
+				return true;
+		return false;
+	}
+
+	private void grow() {
+		int[] old = table;
+		table = new int[old.length * 2];
+		mask = table.length - 1;
+		for (int value : old)
+			if (value != FREE) {
+				int i = slot(value);
+				while (table[i] != FREE)
+					i = i + 1 & mask;
+				table[i] = value;
+			}
+	}
+}
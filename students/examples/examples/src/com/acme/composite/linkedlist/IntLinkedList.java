@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.linkedlist;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * The class IntLinkedList is a singly linked list of primitive ints that keeps
+ * a head, a tail and a size, so {@link #push(int)}, {@link #append(int)} and
+ * {@link #size()} take O(1) time.
+ *
+ * The nodes are not objects but slots of a pool of two parallel arrays (the
+ * value and the index of the next slot), so a node costs 8 bytes instead of a
+ * 24 bytes object plus a reference, appended nodes are adjacent in memory and
+ * the garbage collector has two arrays to trace instead of a million objects.
+ * Removed slots are chained in a free list and reused.
+ */
+public class IntLinkedList {
+
+	private static final int NIL = -1;
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private int[] data;
+	private int[] next;
+	private int head = NIL, tail = NIL;
+	private int free = NIL; // the first slot of the free list
+	private int used; // the number of slots ever taken from the arrays
+	private int size;
+
+	public IntLinkedList() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity the number of nodes to allocate up front
+	 */
+	public IntLinkedList(int capacity) {
+		if (capacity < 0)
+			throw new IllegalArgumentException("negative capacity " + capacity);
+		data = new int[Math.max(capacity, 1)];
+		next = new int[data.length];
+	}
+
+	/*
+	 * take a slot from the free list, or the next unused slot of the arrays
+	 */
+	private int allocate(int value) {
+		int slot;
+		if (free != NIL) {
+			slot = free;
+			free = next[slot];
+		} else {
+			if (used == data.length) {
+				int capacity = data.length + (data.length >> 1) + 1;
+				data = Arrays.copyOf(data, capacity);
+				next = Arrays.copyOf(next, capacity);
+			}
+			slot = used++;
+		}
+		data[slot] = value;
+		next[slot] = NIL;
+		size++;
+		return slot;
+	}
+
+	private void release(int slot) {
+		next[slot] = free;
+		free = slot;
+		size--;
+	}
+
+	/*
+	 * Inserts a new value at front of the list.
+	 */
+	public IntLinkedList push(int value) {
+		int slot = allocate(value);
+		next[slot] = head;
+		head = slot;
+		if (tail == NIL)
+			tail = slot;
+		return this;
+	}
+
+	/*
+	 * append a value to the end of the list, linked to the tail
+	 */
+	public IntLinkedList append(int value) {
+		int slot = allocate(value);
+		if (tail == NIL)
+			head = slot;
+		else
+			next[tail] = slot;
+		tail = slot;
+		return this;
+	}
+
+	/*
+	 * remove the first node with the given value, keeping track of the previous
+	 * node to unlink it
+	 */
+	public boolean remove(int value) {
+		int prev = NIL;
+		for (int slot = head; slot != NIL; prev = slot, slot = next[slot])
+			if (data[slot] == value) {
+				unlink(prev, slot);
+				return true;
+			}
+		return false;
+	}
+
+	private void unlink(int prev, int slot) {
+		if (prev == NIL)
+			head = next[slot];
+		else
+			next[prev] = next[slot];
+		if (slot == tail)
+			tail = prev;
+		release(slot);
+	}
+
+	/*
+	 * the size is known, so the middle is (size / 2) steps from the head, the same
+	 * node the fast and slow pointers would meet at
+	 */
+	public int getMiddle() {
+		if (head == NIL)
+			throw new NoSuchElementException("the list is empty");
+		int slot = head;
+		for (int i = size / 2; i > 0; i--)
+			slot = next[slot];
+		return data[slot];
+	}
+
+	public int getFirst() {
+		if (head == NIL)
+			throw new NoSuchElementException("the list is empty");
+		return data[head];
+	}
+
+	public int getLast() {
+		if (tail == NIL)
+			throw new NoSuchElementException("the list is empty");
+		return data[tail];
+	}
+
+	/*
+	 * remove all but the first occurrence of every value in a single pass, with a
+	 * hash set of the values seen so far
+	 */
+	public IntLinkedList removeDuplicates() {
+		IntHashSet seen = new IntHashSet(size);
+		int prev = NIL;
+		for (int slot = head; slot != NIL;) {
+			int following = next[slot];
+			if (seen.add(data[slot]))
+				prev = slot;
+			else
+				unlink(prev, slot);
+			slot = following;
+		}
+		return this;
+	}
+
+	/*
+	 * reverse the list by pointing every node at its predecessor
+	 */
+	public IntLinkedList reverse() {
+		int prev = NIL, current = head;
+		while (current != NIL) {
+			int following = next[current];
+			next[current] = prev;
+			prev = current;
+			current = following;
+		}
+		tail = head;
+		head = prev;
+		return this;
+	}
+
+	public void forEach(IntConsumer consumer) {
+		for (int slot = head; slot != NIL; slot = next[slot])
+			consumer.accept(data[slot]);
+	}
+
+	public int[] toArray() {
+		int[] values = new int[size];
+		int i = 0;
+		for (int slot = head; slot != NIL; slot = next[slot])
+			values[i++] = data[slot];
+		return values;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		head = tail = free = NIL;
+		used = size = 0;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder();
+		buffer.append("IntLinkedList [");
+		for (int slot = head; slot != NIL; slot = next[slot]) {
+			if (slot != head)
+				buffer.append(" -> ");
+			buffer.append(data[slot]);
+		}
+		buffer.append("]");
+		return buffer.toString();
+	}
+
+	public static void main(String[] args) {
+		IntLinkedList list = new IntLinkedList();
+		for (int i = 0; i < 5; i++)
+			list.append(i + 1);
+		System.out.printf("initialized: %s%n", list);
+		list.append(6);
+		System.out.printf("appended 6: %s%n", list);
+		list.push(0).push(-1);
+		System.out.printf("pushed 0 and -1: %s%n", list);
+		list.remove(4);
+		System.out.printf("removed 4: %s%n", list);
+		System.out.printf("middle node: %d%n", list.getMiddle());
+		list.remove(6);
+		System.out.printf("removed 6: %s%n", list);
+		System.out.printf("middle node: %d%n", list.getMiddle());
+		list.append(0).append(2).append(3).append(4).append(5);
+		System.out.printf("appended 0,2,3,4 and 5: %s%n", list);
+		list.push(-1);
+		System.out.printf("pushed -1: %s%n", list);
+		list.removeDuplicates();
+		System.out.printf("removed duplicates: %s (size %d)%n", list, list.size());
+		list.reverse();
+		System.out.printf("reversed list: %s%n", list);
+	}
+}
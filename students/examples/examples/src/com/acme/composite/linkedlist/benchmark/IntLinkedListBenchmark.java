@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.linkedlist.benchmark;
+
+import java.util.Random;
+
+import com.acme.composite.linkedlist.IntLinkedList;
+import com.acme.composite.linkedlist.LinkedList;
+
+/**
+ * The class IntLinkedListBenchmark compares appending to and reversing an
+ * {@link IntLinkedList} with the {@link LinkedList} of {@link
+ * com.acme.composite.linkedlist.Node}s and with a {@link java.util.LinkedList}
+ * of boxed integers, and times the duplicate removal of the int list.
+ *
+ * {@link LinkedList#append(int)} walks the whole list, so n appends take O(n^2)
+ * time. It is measured up to a smaller size (10^6 appends take about half an
+ * hour) and its time for n appends is extrapolated from there.
+ *
+ * Usage: IntLinkedListBenchmark [appends] [node list appends]
+ */
+public class IntLinkedListBenchmark {
+
+	private static final int RUNS = 5;
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int m = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+		System.out.printf("%-22s %10s %12s %12s%n", "list", "appends", "append ms", "reverse ms");
+		long append = Long.MAX_VALUE, reverse = Long.MAX_VALUE;
+		for (int run = 0; run < RUNS; run++) { // the first runs warm up the JIT, the best one is reported
+			long start = System.nanoTime();
+			IntLinkedList list = new IntLinkedList();
+			for (int i = 0; i < n; i++)
+				list.append(i);
+			append = Math.min(append, System.nanoTime() - start);
+			start = System.nanoTime();
+			list.reverse();
+			reverse = Math.min(reverse, System.nanoTime() - start);
+			if (list.size() != n || list.getFirst() != n - 1)
+				throw new IllegalStateException("unexpected list content");
+		}
+		System.out.printf("%-22s %10d %12.1f %12.1f%n", "IntLinkedList", n, append / 1e6, reverse / 1e6);
+		append = reverse = Long.MAX_VALUE;
+		for (int run = 0; run < RUNS; run++) {
+			long start = System.nanoTime();
+			java.util.LinkedList<Integer> list = new java.util.LinkedList<>();
+			for (int i = 0; i < n; i++)
+				list.add(i);
+			append = Math.min(append, System.nanoTime() - start);
+			start = System.nanoTime();
+			java.util.Collections.reverse(list);
+			reverse = Math.min(reverse, System.nanoTime() - start);
+		}
+		System.out.printf("%-22s %10d %12.1f %12.1f%n", "java.util.LinkedList", n, append / 1e6, reverse / 1e6);
+		append = reverse = Long.MAX_VALUE;
+		for (int run = 0; run < 2; run++) {
+			long start = System.nanoTime();
+			LinkedList list = new LinkedList();
+			for (int i = 0; i < m; i++)
+				list.append(i);
+			append = Math.min(append, System.nanoTime() - start);
+			start = System.nanoTime();
+			list.reverse();
+			reverse = Math.min(reverse, System.nanoTime() - start);
+		}
+		System.out.printf("%-22s %10d %12.1f %12.1f%n", "LinkedList", m, append / 1e6, reverse / 1e6);
+		double scale = (double) n / m;
+		System.out.printf("%-22s %10d %12.1f %12.1f%n", "LinkedList (estimate)", n, append * scale * scale / 1e6, reverse * scale / 1e6);
+
+		Random random = new Random(42);
+		int[] values = new int[n];
+		for (int i = 0; i < n; i++)
+			values[i] = random.nextInt(n / 2 + 1);
+		long dedupe = Long.MAX_VALUE;
+		int unique = 0;
+		for (int run = 0; run < RUNS; run++) {
+			IntLinkedList list = new IntLinkedList(n);
+			for (int value : values)
+				list.append(value);
+			long start = System.nanoTime();
+			list.removeDuplicates();
+			dedupe = Math.min(dedupe, System.nanoTime() - start);
+			unique = list.size();
+		}
+		System.out.printf("%nIntLinkedList.removeDuplicates of %d values (%d unique) %.1f ms%n", n, unique, dedupe / 1e6);
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.linkedlist.benchmark;
+
+import java.util.function.IntFunction;
+import java.util.function.ToLongFunction;
+
+import com.acme.composite.linkedlist.IntLinkedList;
+import com.acme.composite.linkedlist.LinkedList;
+import com.acme.composite.linkedlist.UnrolledLinkedList;
+
+/**
+ * The class UnrolledLinkedListBenchmark compares the memory and the sequential
+ * passes of an {@link UnrolledLinkedList} with the {@link LinkedList} of
+ * {@link com.acme.composite.linkedlist.Node}s and the {@link IntLinkedList}.
+ * The lists are built with push (the append of {@link LinkedList} is O(n)),
+ * the memory is the growth of the used heap after a full collection, and the
+ * passes are a reverse and a getMiddle, the two methods that walk the list on
+ * all three.
+ *
+ * Usage: UnrolledLinkedListBenchmark [values] [block size]
+ */
+public class UnrolledLinkedListBenchmark {
+
+	private static final int RUNS = 7;
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int blockSize = args.length > 1 ? Integer.parseInt(args[1]) : UnrolledLinkedList.DEFAULT_BLOCK_SIZE;
+		System.out.printf("%-20s %10s %14s %12s %12s %12s%n", "list", "values", "bytes/value", "push ms", "reverse ms", "middle ms");
+		run("LinkedList", n, size -> {
+			LinkedList list = new LinkedList();
+			for (int i = 0; i < size; i++)
+				list.push(i);
+			return list;
+		}, list -> {
+			list.reverse();
+			return 0;
+		}, list -> list.getMiddle().hashCode());
+		run("IntLinkedList", n, size -> {
+			IntLinkedList list = new IntLinkedList();
+			for (int i = 0; i < size; i++)
+				list.push(i);
+			return list;
+		}, list -> {
+			list.reverse();
+			return 0;
+		}, IntLinkedList::getMiddle);
+		run("UnrolledLinkedList", n, size -> {
+			UnrolledLinkedList list = new UnrolledLinkedList(blockSize);
+			for (int i = 0; i < size; i++)
+				list.push(i);
+			return list;
+		}, list -> {
+			list.reverse();
+			return 0;
+		}, UnrolledLinkedList::getMiddle);
+	}
+
+	private static <L> void run(String name, int n, IntFunction<L> build, ToLongFunction<L> reverse, ToLongFunction<L> middle) {
+		long push = Long.MAX_VALUE, reversing = Long.MAX_VALUE, middling = Long.MAX_VALUE, bytes = 0, blackhole = 0;
+		for (int run = 0; run < RUNS; run++) { // the first runs warm up the JIT, the best one is reported
+			Runtime runtime = Runtime.getRuntime();
+			System.gc();
+			long used = runtime.totalMemory() - runtime.freeMemory();
+			long start = System.nanoTime();
+			L list = build.apply(n);
+			push = Math.min(push, System.nanoTime() - start);
+			System.gc();
+			bytes = runtime.totalMemory() - runtime.freeMemory() - used;
+			start = System.nanoTime();
+			blackhole += reverse.applyAsLong(list);
+			reversing = Math.min(reversing, System.nanoTime() - start);
+			start = System.nanoTime();
+			blackhole += middle.applyAsLong(list);
+			middling = Math.min(middling, System.nanoTime() - start);
+		}
+		System.out.printf("%-20s %10d %14.1f %12.1f %12.1f %12.2f%s%n", name, n, (double) bytes / n, push / 1e6, reversing / 1e6, middling / 1e6,
+				blackhole == 42 ? " " : "");
+	}
+}
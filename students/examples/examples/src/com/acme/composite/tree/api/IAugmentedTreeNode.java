@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.api;
+
+/**
+ * The interface IAugmentedTreeNode defines a tree node that caches the height
+ * and size of the sub-tree rooted at it, so that {@link #height()} and
+ * {@link #size()} take O(1) time instead of walking the sub-tree.
+ *
+ * @param <T> the type of key
+ */
+public interface IAugmentedTreeNode<T extends Comparable<T>> extends ITreeNode<T> {
+
+	/**
+	 * recompute the cached height and size of this node from its children. Must be
+	 * called whenever a child of this node is replaced, or when the height or size
+	 * of a child has changed.
+	 */
+	void update();
+}
@@ -20,12 +20,21 @@
  */
 package com.acme.composite.tree.api;
 
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * The interface ITree defines the functionality of a tree
  *
  * @param <T> the type of node key
  */
-public interface ITree<T extends Comparable<T>> {
+public interface ITree<T extends Comparable<T>> extends Iterable<T> {
 
 	/**
 	 * a method to insert a node into the tree
@@ -35,6 +44,27 @@ public interface ITree<T extends Comparable<T>> {
 	 */
 	ITree<T> insert(T key);
 
+	/**
+	 * a method to replace the content of the tree with the given keys. Sorted keys
+	 * are turned into a perfectly balanced tree in O(n) time, other keys are sorted
+	 * first. Duplicate keys are kept once.
+	 *
+	 * @param keys the keys to load
+	 * @return the modified tree
+	 */
+	ITree<T> bulkLoad(T[] keys);
+
+	/**
+	 * a method to insert all the given keys into the tree. When many keys are
+	 * added, the new keys are merged with the existing ones and the tree is rebuilt
+	 * in O(n + m) time (plus the time to sort the new keys) instead of being
+	 * inserted one by one.
+	 *
+	 * @param keys the keys to insert
+	 * @return the modified tree
+	 */
+	ITree<T> insertAll(Collection<? extends T> keys);
+
 	/**
 	 * a method to delete a node from a tree
 	 *
@@ -84,6 +114,62 @@ public interface ITree<T extends Comparable<T>> {
 	 */
 	T[] levelOrder();
 
+	/**
+	 * A method to obtain a lazy spliterator over the keys of the tree in the given
+	 * order. Unlike the array methods, the keys are not copied, so a traversal can
+	 * stop early and does not need O(n) temporary storage. The tree must not be
+	 * modified while the spliterator is in use.
+	 *
+	 * @param order the traversal order
+	 * @return a spliterator over the keys of the tree in the given order
+	 */
+	Spliterator<T> spliterator(TraversalOrder order);
+
+	/**
+	 * A method to obtain a lazy iterator over the keys of the tree in the given
+	 * order
+	 *
+	 * @param order the traversal order
+	 * @return an iterator over the keys of the tree in the given order
+	 */
+	default Iterator<T> iterator(TraversalOrder order) {
+		return Spliterators.iterator(spliterator(order));
+	}
+
+	/**
+	 * A method to obtain a lazy iterator over the keys of the tree in order
+	 *
+	 * @return an iterator over the keys of the tree in order
+	 */
+	@Override
+	default Iterator<T> iterator() {
+		return iterator(TraversalOrder.IN_ORDER);
+	}
+
+	@Override
+	default Spliterator<T> spliterator() {
+		return spliterator(TraversalOrder.IN_ORDER);
+	}
+
+	/**
+	 * A method to obtain a sequential stream of the keys of the tree in order
+	 *
+	 * @return a sequential stream of the keys of the tree in order
+	 */
+	default Stream<T> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * A method to obtain a parallel stream of the keys of the tree in order, which
+	 * is split at sub-tree boundaries
+	 *
+	 * @return a parallel stream of the keys of the tree in order
+	 */
+	default Stream<T> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+
 	/**
 	 * A method to obtain the minimum value of a node in a tree
 	 *
@@ -98,6 +184,57 @@ public interface ITree<T extends Comparable<T>> {
 	 */
 	T max();
 
+	/**
+	 * A method to obtain the greatest key in the tree that is less than or equal to
+	 * the given key
+	 *
+	 * @param key the key to look for
+	 * @return the greatest key less than or equal to the given key, or null if
+	 *         there is no such key
+	 */
+	T floor(T key);
+
+	/**
+	 * A method to obtain the smallest key in the tree that is greater than or
+	 * equal to the given key
+	 *
+	 * @param key the key to look for
+	 * @return the smallest key greater than or equal to the given key, or null if
+	 *         there is no such key
+	 */
+	T ceiling(T key);
+
+	/**
+	 * A method to obtain the smallest key in the tree that is strictly greater than
+	 * the given key
+	 *
+	 * @param key the key to look for
+	 * @return the smallest key greater than the given key, or null if there is no
+	 *         such key
+	 */
+	T higher(T key);
+
+	/**
+	 * A method to obtain the greatest key in the tree that is strictly less than
+	 * the given key
+	 *
+	 * @param key the key to look for
+	 * @return the greatest key less than the given key, or null if there is no such
+	 *         key
+	 */
+	T lower(T key);
+
+	/**
+	 * A method to pass the keys in the given range to a consumer, in order. Only
+	 * the sub-trees that may hold keys in the range are visited, so the scan takes
+	 * O(h + k) time, where k is the number of keys in the range.
+	 *
+	 * @param lo       the lower bound (inclusive)
+	 * @param hi       the upper bound (inclusive)
+	 * @param consumer the consumer of the keys k where lo &lt;= k &lt;= hi
+	 */
+	void rangeScan(T lo, T hi, Consumer<? super T> consumer);
+
 	/**
 	 * A method to obtain the in order successor tree node of the current node,
 	 * which is typically the node with the smallest key in the right subtree
@@ -131,6 +268,45 @@ public interface ITree<T extends Comparable<T>> {
 	 */
 	int size();
 
+	/**
+	 * A method to obtain the rank of a key, which is the number of keys in the tree
+	 * that are strictly smaller than the given key. The key itself does not have to
+	 * be in the tree.
+	 *
+	 * @param key the key to rank
+	 * @return the number of keys in the tree that are smaller than the given key
+	 */
+	int rank(T key);
+
+	/**
+	 * A method to obtain the key at the given (zero based) position of the in
+	 * order traversal of the tree, which is the inverse of {@link #rank(Comparable)}
+	 *
+	 * @param index the zero based in order position
+	 * @return the key at the given in order position, or null if the index is out
+	 *         of range
+	 */
+	T select(int index);
+
+	/**
+	 * A method to obtain the k-th smallest key in the tree, where k starts at 1
+	 *
+	 * @param k the one based order of the key
+	 * @return the k-th smallest key in the tree or null if k is out of range
+	 */
+	default T kthSmallest(int k) {
+		return select(k - 1);
+	}
+
+	/**
+	 * A method to count the keys in the tree that are in the given range
+	 *
+	 * @param lo the lower bound (inclusive)
+	 * @param hi the upper bound (inclusive)
+	 * @return the number of keys k where lo &lt;= k &lt;= hi, or 0 if lo &gt; hi
+	 */
+	int countRange(T lo, T hi);
+
 	/**
 	 * a method to search a node with a given key
 	 *
@@ -158,6 +334,17 @@ public interface ITree<T extends Comparable<T>> {
 	 */
 	void print();
 
+	/**
+	 * A method to render the tree as text or as a GraphViz DOT digraph. The tree is
+	 * rendered in a single pass, without recursion, and the output is written in
+	 * large chunks.
+	 *
+	 * @param out     where to write the rendered tree
+	 * @param options the format and layout options
+	 * @throws IOException if the output cannot be written
+	 */
+	void render(Appendable out, RenderOptions options) throws IOException;
+
 	/**
 	 * return true is this is a full tree
 	 *
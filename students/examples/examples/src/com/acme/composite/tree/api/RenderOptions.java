@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.api;
+
+/**
+ * The class RenderOptions holds the options of
+ * {@link ITree#render(Appendable, RenderOptions)}. Instances are immutable and
+ * are created with a {@link Builder}.
+ */
+public final class RenderOptions {
+
+	/**
+	 * The output formats of a rendered tree
+	 */
+	public enum Format {
+		/**
+		 * the tree on its side, the root at the left and the right sub-tree on top
+		 */
+		TEXT,
+		/**
+		 * a GraphViz DOT digraph
+		 */
+		DOT
+	}
+
+	/**
+	 * the options {@link ITree#print()} uses
+	 */
+	public static final RenderOptions DEFAULT = builder().build();
+
+	private final Format format;
+	private final int indent;
+	private final String branch;
+	private final boolean heights;
+
+	private RenderOptions(Builder builder) {
+		this.format = builder.format;
+		this.indent = builder.indent;
+		this.branch = builder.branch;
+		this.heights = builder.heights;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public Format format() {
+		return format;
+	}
+
+	public int indent() {
+		return indent;
+	}
+
+	public String branch() {
+		return branch;
+	}
+
+	public boolean heights() {
+		return heights;
+	}
+
+	/**
+	 * The class Builder builds {@link RenderOptions}. By default a tree is
+	 * rendered as text, indented by 6 columns per level, with "-- " branches and
+	 * the height of every node after its key.
+	 */
+	public static final class Builder {
+
+		private Format format = Format.TEXT;
+		private int indent = 6;
+		private String branch = "-- ";
+		private boolean heights = true;
+
+		private Builder() {
+			super();
+		}
+
+		public Builder format(Format format) {
+			this.format = format;
+			return this;
+		}
+
+		/**
+		 * @param indent the number of columns per level of a text rendering, at least 2
+		 * @return this builder
+		 */
+		public Builder indent(int indent) {
+			if (indent < 2)
+				throw new IllegalArgumentException("the indent must be at least 2 columns");
+			this.indent = indent;
+			return this;
+		}
+
+		/**
+		 * @param branch the text between the branch of a node and its key in a text
+		 *               rendering
+		 * @return this builder
+		 */
+		public Builder branch(String branch) {
+			this.branch = branch;
+			return this;
+		}
+
+		/**
+		 * @param heights whether to follow every key by the height of its node
+		 * @return this builder
+		 */
+		public Builder heights(boolean heights) {
+			this.heights = heights;
+			return this;
+		}
+
+		public RenderOptions build() {
+			return new RenderOptions(this);
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.api;
+
+/**
+ * The Enum TraversalOrder holds the orders in which the keys of a tree can be
+ * visited
+ */
+public enum TraversalOrder {
+	/**
+	 * LEFT, ROOT, RIGHT (depth first)
+	 */
+	IN_ORDER,
+	/**
+	 * ROOT, LEFT, RIGHT (depth first)
+	 */
+	PRE_ORDER,
+	/**
+	 * LEFT, RIGHT, ROOT (depth first)
+	 */
+	POST_ORDER,
+	/**
+	 * level by level, from the root down (breadth first)
+	 */
+	LEVEL_ORDER;
+}
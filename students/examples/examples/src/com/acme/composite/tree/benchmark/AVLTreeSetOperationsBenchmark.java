@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.benchmark;
+
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+import com.acme.composite.tree.impl.AVLTree;
+
+/**
+ * The class AVLTreeSetOperationsBenchmark compares merging two {@link AVLTree}s
+ * by inserting the keys of one into the other with the join based union, and
+ * measures the join based intersection and difference, sequentially and on the
+ * common fork/join pool. Every tree holds about half of the keys of a shared
+ * range, so the two trees overlap by about half.
+ *
+ * Usage: AVLTreeSetOperationsBenchmark [keys per tree]
+ */
+public class AVLTreeSetOperationsBenchmark {
+
+	private static final int RUNS = 3;
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		Random random = new Random(42);
+		Integer[] keys1 = keys(n, random), keys2 = keys(n, random);
+		System.out.printf("%d + %d keys, %d cores%n", keys1.length, keys2.length, Runtime.getRuntime().availableProcessors());
+		System.out.printf("%-24s %12s %12s%n", "operation", "ms", "keys");
+		run("insert one by one", keys1, keys2, (tree, other) -> {
+			for (Integer key : other.inOrder())
+				tree.insert(key);
+		});
+		run("union", keys1, keys2, AVLTree::union);
+		run("parallel union", keys1, keys2, AVLTree::parallelUnion);
+		run("intersection", keys1, keys2, AVLTree::intersection);
+		run("parallel intersection", keys1, keys2, AVLTree::parallelIntersection);
+		run("difference", keys1, keys2, AVLTree::difference);
+		run("parallel difference", keys1, keys2, AVLTree::parallelDifference);
+	}
+
+	/*
+	 * sorted distinct keys, each key of [0, 2n) taken with a probability of 1/2
+	 */
+	private static Integer[] keys(int n, Random random) {
+		Integer[] keys = new Integer[2 * n];
+		int count = 0;
+		for (int key = 0; key < 2 * n; key++)
+			if (random.nextBoolean())
+				keys[count++] = key;
+		Integer[] sorted = new Integer[count];
+		System.arraycopy(keys, 0, sorted, 0, count);
+		return sorted;
+	}
+
+	private static void run(String name, Integer[] keys1, Integer[] keys2, BiConsumer<AVLTree<Integer>, AVLTree<Integer>> operation) {
+		long best = Long.MAX_VALUE;
+		int size = 0;
+		for (int run = 0; run < RUNS; run++) { // the first runs warm up the JIT, the best one is reported
+			AVLTree<Integer> tree = new AVLTree<>(Integer.class), other = new AVLTree<>(Integer.class);
+			tree.bulkLoad(keys1);
+			other.bulkLoad(keys2);
+			long start = System.nanoTime();
+			operation.accept(tree, other);
+			best = Math.min(best, System.nanoTime() - start);
+			size = tree.size();
+		}
+		System.out.printf("%-24s %12.1f %12d%n", name, best / 1e6, size);
+	}
+}
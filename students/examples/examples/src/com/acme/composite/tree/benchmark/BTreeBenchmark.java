@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.benchmark;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import com.acme.composite.tree.api.ITree;
+import com.acme.composite.tree.impl.AVLTree;
+import com.acme.composite.tree.impl.BTree;
+
+/**
+ * The class BTreeBenchmark compares the {@link AVLTree} with the {@link BTree}
+ * (at a few degrees) on random lookups, a full in order scan and short range
+ * scans. Both trees are bulk loaded with the same keys.
+ *
+ * Usage: BTreeBenchmark [keys]...
+ *
+ * The default sizes are 10^6 and 10^7 keys. 10^8 keys need a heap of about 12
+ * GB for the AVL tree (e.g. -Xmx12g).
+ */
+public class BTreeBenchmark {
+
+	private static final int RUNS = 3;
+	private static final int LOOKUPS = 1_000_000;
+	private static final int RANGES = 10_000;
+	private static final int RANGE_KEYS = 1_000;
+
+	public static void main(String[] args) {
+		int[] sizes = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray() : new int[] { 1_000_000, 10_000_000 };
+		System.out.printf("%-12s %12s %12s %12s %12s %12s%n", "tree", "n", "load ms", "lookup ns", "scan ns/key", "range ms");
+		for (int n : sizes) {
+			Integer[] keys = new Integer[n];
+			for (int i = 0; i < n; i++)
+				keys[i] = i;
+			Collections.shuffle(Arrays.asList(keys), new Random(42));
+			Random random = new Random(7);
+			Integer[] lookups = new Integer[LOOKUPS];
+			for (int i = 0; i < LOOKUPS; i++)
+				lookups[i] = keys[random.nextInt(n)];
+			run("avl", keys, lookups, () -> new AVLTree<>(Integer.class));
+			for (int degree : new int[] { 8, 32, 128 })
+				run("b-tree " + degree, keys, lookups, () -> new BTree<>(Integer.class, degree));
+		}
+	}
+
+	private static void run(String name, Integer[] keys, Integer[] lookups, Supplier<ITree<Integer>> factory) {
+		long load = Long.MAX_VALUE, lookup = Long.MAX_VALUE, scan = Long.MAX_VALUE, range = Long.MAX_VALUE;
+		ITree<Integer> tree = null;
+		for (int run = 0; run < RUNS; run++) { // the first runs warm up the JIT, the best one is reported
+			tree = null; // let the previous tree go before the next one is loaded
+			long start = System.nanoTime();
+			tree = factory.get().bulkLoad(keys);
+			load = Math.min(load, System.nanoTime() - start);
+			start = System.nanoTime();
+			int found = 0;
+			for (Integer key : lookups)
+				if (tree.search(key) != null)
+					found++;
+			lookup = Math.min(lookup, System.nanoTime() - start);
+			if (found != lookups.length)
+				throw new IllegalStateException("found " + found + " keys of " + lookups.length);
+			start = System.nanoTime();
+			long sum = 0;
+			for (Integer key : tree)
+				sum += key;
+			scan = Math.min(scan, System.nanoTime() - start);
+			if (sum != (long) keys.length * (keys.length - 1) / 2)
+				throw new IllegalStateException("scan sum " + sum);
+			start = System.nanoTime();
+			long[] count = { 0 };
+			for (int i = 0; i < RANGES; i++) {
+				int lo = lookups[i];
+				tree.rangeScan(lo, lo + RANGE_KEYS - 1, key -> count[0]++);
+			}
+			range = Math.min(range, System.nanoTime() - start);
+		}
+		System.out.printf("%-12s %12d %12.1f %12.1f %12.2f %12.1f%n", name, keys.length, load / 1e6, (double) lookup / lookups.length, (double) scan / keys.length,
+				range / 1e6);
+	}
+}
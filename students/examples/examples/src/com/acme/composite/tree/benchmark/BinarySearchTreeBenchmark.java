@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.benchmark;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import com.acme.composite.tree.api.ITree;
+import com.acme.composite.tree.impl.BinarySearchTree;
+import com.acme.composite.tree.impl.IterativeBinarySearchTree;
+
+/**
+ * The class BinarySearchTreeBenchmark compares the recursive
+ * {@link BinarySearchTree} with the {@link IterativeBinarySearchTree}, on
+ * random keys (a shallow tree) and on sorted keys (a tree as deep as the number
+ * of keys).
+ *
+ * Usage: BinarySearchTreeBenchmark [random keys] [sorted keys]
+ */
+public class BinarySearchTreeBenchmark {
+
+	private static final int RUNS = 5;
+
+	public static void main(String[] args) {
+		int randomKeys = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int sortedKeys = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+		Integer[] random = keys(randomKeys);
+		Collections.shuffle(Arrays.asList(random), new Random(42));
+		Integer[] sorted = keys(sortedKeys);
+		System.out.printf("%-10s %-10s %10s %12s %12s %12s%n", "keys", "algorithm", "n", "insert ms", "search ms", "delete ms");
+		run("random", "recursive", random, () -> new BinarySearchTree<>(Integer.class));
+		run("random", "iterative", random, () -> new IterativeBinarySearchTree<>(Integer.class));
+		run("sorted", "recursive", sorted, () -> new BinarySearchTree<>(Integer.class));
+		run("sorted", "iterative", sorted, () -> new IterativeBinarySearchTree<>(Integer.class));
+	}
+
+	private static Integer[] keys(int n) {
+		Integer[] keys = new Integer[n];
+		for (int i = 0; i < n; i++)
+			keys[i] = i;
+		return keys;
+	}
+
+	private static void run(String keys, String algorithm, Integer[] data, Supplier<ITree<Integer>> factory) {
+		long insert = Long.MAX_VALUE, search = Long.MAX_VALUE, delete = Long.MAX_VALUE;
+		try {
+			for (int run = 0; run < RUNS; run++) { // the first runs warm up the JIT, the best one is reported
+				ITree<Integer> tree = factory.get();
+				long start = System.nanoTime();
+				for (Integer key : data)
+					tree.insert(key);
+				insert = Math.min(insert, System.nanoTime() - start);
+				start = System.nanoTime();
+				int found = 0;
+				for (Integer key : data)
+					if (tree.search(key) != null)
+						found++;
+				search = Math.min(search, System.nanoTime() - start);
+				if (found != tree.size())
+					throw new IllegalStateException("found " + found + " keys of " + tree.size());
+				start = System.nanoTime();
+				for (Integer key : data)
+					tree.delete(key);
+				delete = Math.min(delete, System.nanoTime() - start);
+			}
+			System.out.printf("%-10s %-10s %10d %12.1f %12.1f %12.1f%n", keys, algorithm, data.length, insert / 1e6, search / 1e6, delete / 1e6);
+		} catch (StackOverflowError e) {
+			System.out.printf("%-10s %-10s %10d %38s%n", keys, algorithm, data.length, "StackOverflowError");
+		}
+	}
+}
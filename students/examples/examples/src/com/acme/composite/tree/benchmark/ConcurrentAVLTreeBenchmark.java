@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.acme.composite.tree.impl.ConcurrentAVLTree;
+
+/**
+ * The class ConcurrentAVLTreeBenchmark measures the throughput of the
+ * {@link ConcurrentAVLTree} with 1 to N threads, on a read mostly and on a
+ * write heavy mix of operations, next to a {@link ConcurrentSkipListSet} as a
+ * baseline. Every thread searches a random key, or inserts or deletes one, for
+ * a fixed duration.
+ *
+ * Usage: ConcurrentAVLTreeBenchmark [keys] [max threads] [ms per run]
+ */
+public class ConcurrentAVLTreeBenchmark {
+
+	private interface Operations {
+		void search(int key);
+
+		void insert(int key);
+
+		void delete(int key);
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int keys = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		long millis = args.length > 2 ? Long.parseLong(args[2]) : 1_000L;
+		System.out.printf("%-10s %-14s %8s %14s%n", "writes %", "set", "threads", "ops/s");
+		for (int writes : new int[] { -1, 10, 50 }) { // the first round warms up the JIT and is not reported
+			for (int threads = 1; threads <= (writes < 0 ? 1 : maxThreads); threads = next(threads, maxThreads)) {
+				ConcurrentAVLTree<Integer> tree = new ConcurrentAVLTree<>(Integer.class);
+				run(writes, "avl tree", threads, keys, millis, new Operations() {
+					@Override
+					public void search(int key) {
+						tree.search(key);
+					}
+
+					@Override
+					public void insert(int key) {
+						tree.insert(key);
+					}
+
+					@Override
+					public void delete(int key) {
+						tree.delete(key);
+					}
+				});
+				Set<Integer> set = new ConcurrentSkipListSet<>();
+				run(writes, "skip list", threads, keys, millis, new Operations() {
+					@Override
+					public void search(int key) {
+						set.contains(key);
+					}
+
+					@Override
+					public void insert(int key) {
+						set.add(key);
+					}
+
+					@Override
+					public void delete(int key) {
+						set.remove(key);
+					}
+				});
+			}
+		}
+	}
+
+	/*
+	 * 1, 2, 4 ... and finally the maximal number of threads
+	 */
+	private static int next(int threads, int maxThreads) {
+		return threads == maxThreads ? maxThreads + 1 : Math.min(threads * 2, maxThreads);
+	}
+
+	private static void run(int writes, String name, int threads, int keys, long millis, Operations operations) throws InterruptedException {
+		/* fill half of the key space so that inserts and deletes keep the size steady */
+		for (int key = 0; key < keys; key += 2)
+			operations.insert(key);
+		LongAdder ops = new LongAdder();
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] workers = new Thread[threads];
+		long[] deadline = new long[1];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				long count = 0;
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				while (System.nanoTime() < deadline[0]) {
+					for (int i = 0; i < 1_000; i++) { // check the clock once in a while
+						int key = random.nextInt(keys);
+						int dice = random.nextInt(100);
+						if (dice >= Math.abs(writes))
+							operations.search(key);
+						else if ((dice & 1) == 0)
+							operations.insert(key);
+						else
+							operations.delete(key);
+					}
+					count += 1_000;
+				}
+				ops.add(count);
+			});
+			workers[t].start();
+		}
+		deadline[0] = System.nanoTime() + millis * 1_000_000L;
+		start.countDown();
+		for (Thread worker : workers)
+			worker.join();
+		if (writes >= 0)
+			System.out.printf("%-10d %-14s %8d %14.0f%n", writes, name, threads, ops.sum() * 1_000.0 / millis);
+	}
+}
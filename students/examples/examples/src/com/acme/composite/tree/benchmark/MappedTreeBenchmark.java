@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import com.acme.composite.tree.api.ITree;
+import com.acme.composite.tree.impl.AVLTree;
+import com.acme.composite.tree.io.KeyCodec;
+import com.acme.composite.tree.io.MappedTree;
+
+/**
+ * The class MappedTreeBenchmark compares the startup time of an index that is
+ * rebuilt from its keys file (by inserting the keys one by one, or by bulk
+ * loading them) with opening it as a {@link MappedTree}. Startup is measured up
+ * to the end of a batch of random lookups, so the mapped tree also pays for
+ * the nodes and pages it touches.
+ *
+ * Usage: MappedTreeBenchmark [keys]
+ */
+public class MappedTreeBenchmark {
+
+	private static final int RUNS = 3;
+	private static final int LOOKUPS = 10_000;
+
+	public static void main(String[] args) throws IOException {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+		Integer[] keys = new Integer[n];
+		for (int i = 0; i < n; i++)
+			keys[i] = 2 * i;
+		Path dir = Files.createTempDirectory("mapped-tree");
+		Path path = dir.resolve("index");
+		MappedTree.write(new AVLTree<>(Integer.class).bulkLoad(keys), path, KeyCodec.INTEGER);
+		Path keysFile = dir.resolve("index.keys");
+		System.out.printf("%d keys, %d + %d bytes on disk%n", n, Files.size(keysFile), Files.size(dir.resolve("index.idx")));
+		Random random = new Random(42);
+		Integer[] lookups = new Integer[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++)
+			lookups[i] = random.nextInt(2 * n);
+		System.out.printf("%-22s %12s%n", "startup", "ms");
+		long insert = Long.MAX_VALUE, load = Long.MAX_VALUE, open = Long.MAX_VALUE;
+		for (int run = 0; run < RUNS; run++) { // the first runs warm up the JIT, the best one is reported
+			long start = System.nanoTime();
+			Integer[] read = read(keysFile, n);
+			Collections.shuffle(Arrays.asList(read), random); // an index is rarely built from sorted keys
+			ITree<Integer> tree = new AVLTree<>(Integer.class);
+			for (Integer key : read)
+				tree.insert(key);
+			lookup(tree, lookups);
+			insert = Math.min(insert, System.nanoTime() - start);
+			start = System.nanoTime();
+			tree = new AVLTree<>(Integer.class).bulkLoad(read(keysFile, n));
+			lookup(tree, lookups);
+			load = Math.min(load, System.nanoTime() - start);
+			start = System.nanoTime();
+			try (MappedTree<Integer> mapped = MappedTree.openReadOnly(path, Integer.class, KeyCodec.INTEGER)) {
+				lookup(mapped, lookups);
+			}
+			open = Math.min(open, System.nanoTime() - start);
+		}
+		System.out.printf("%-22s %12.1f%n", "rebuild by insert", insert / 1e6);
+		System.out.printf("%-22s %12.1f%n", "rebuild by bulk load", load / 1e6);
+		System.out.printf("%-22s %12.1f%n", "open mapped tree", open / 1e6);
+		Files.delete(keysFile);
+		Files.delete(dir.resolve("index.idx"));
+		Files.delete(dir);
+	}
+
+	private static Integer[] read(Path file, int n) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			Integer[] keys = new Integer[n];
+			for (int i = 0; i < n; i++)
+				keys[i] = KeyCodec.INTEGER.decode(buffer);
+			return keys;
+		}
+	}
+
+	private static void lookup(ITree<Integer> tree, Integer[] lookups) {
+		int found = 0;
+		for (Integer key : lookups)
+			if (tree.search(key) != null)
+				found++;
+		if (found == 0)
+			throw new IllegalStateException("no key found");
+	}
+}
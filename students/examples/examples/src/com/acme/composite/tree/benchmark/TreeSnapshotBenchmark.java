@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import com.acme.composite.tree.impl.AVLTree;
+import com.acme.composite.tree.impl.AbstractBinaryTree;
+import com.acme.composite.tree.impl.AugmentedTreeNode;
+import com.acme.composite.tree.impl.IterativeBinarySearchTree;
+import com.acme.composite.tree.io.KeyCodec;
+import com.acme.composite.tree.io.TreeSnapshotCodec;
+
+/**
+ * The class TreeSnapshotBenchmark compares the size and speed of a
+ * {@link TreeSnapshotCodec} snapshot with Java serialization through an
+ * {@link ObjectOutputStream}. The tree nodes are not serializable, so Java
+ * serialization writes the in order keys and the tree is bulk loaded from them
+ * on the way back, which restores the keys but not the shape.
+ *
+ * A degenerate tree (each node the right child of the previous one) is
+ * included to show the codec does not recurse.
+ *
+ * Usage: TreeSnapshotBenchmark [keys]
+ */
+public class TreeSnapshotBenchmark {
+
+	private static final int RUNS = 5;
+
+	public static void main(String[] args) throws IOException, ClassNotFoundException {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		Random random = new Random(42);
+		AVLTree<Integer> integers = new AVLTree<>(Integer.class);
+		for (int i = 0; i < n; i++)
+			integers.insert(random.nextInt());
+		AVLTree<String> strings = new AVLTree<>(String.class);
+		for (int i = 0; i < n / 4; i++)
+			strings.insert(Long.toString(random.nextLong() & Long.MAX_VALUE, 36));
+		IterativeBinarySearchTree<Integer> degenerate = new IterativeBinarySearchTree<>(Integer.class);
+		AugmentedTreeNode<Integer> node = null;
+		for (int i = n - 1; i >= 0; i--) { // linked bottom up, inserting sorted keys one by one takes O(n^2)
+			AugmentedTreeNode<Integer> parent = new AugmentedTreeNode<>(i);
+			parent.setRight(node);
+			node = parent;
+		}
+		degenerate.setRoot(node);
+		System.out.printf("%-22s %-14s %10s %12s %10s %10s%n", "tree", "format", "keys", "bytes", "write ms", "read ms");
+		run("avl of integers", integers, KeyCodec.INTEGER, () -> new AVLTree<>(Integer.class));
+		run("avl of strings", strings, KeyCodec.STRING, () -> new AVLTree<>(String.class));
+		run("degenerate integers", degenerate, KeyCodec.INTEGER, () -> new IterativeBinarySearchTree<>(Integer.class));
+	}
+
+	private static <T extends Comparable<T>> void run(String name, AbstractBinaryTree<T> tree, KeyCodec<T> codec, Supplier<AbstractBinaryTree<T>> factory)
+			throws IOException, ClassNotFoundException {
+		TreeSnapshotCodec<T> snapshots = new TreeSnapshotCodec<>(codec);
+		long write = Long.MAX_VALUE, read = Long.MAX_VALUE;
+		byte[] bytes = null;
+		for (int run = 0; run < RUNS; run++) { // the first runs warm up the JIT, the best one is reported
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			long start = System.nanoTime();
+			snapshots.write(tree, out);
+			write = Math.min(write, System.nanoTime() - start);
+			bytes = out.toByteArray();
+			start = System.nanoTime();
+			AbstractBinaryTree<T> copy = snapshots.read(new ByteArrayInputStream(bytes), factory.get());
+			read = Math.min(read, System.nanoTime() - start);
+			if (copy.size() != tree.size() || copy.height() != tree.height())
+				throw new IllegalStateException("snapshot does not match the tree");
+		}
+		System.out.printf("%-22s %-14s %10d %12d %10.1f %10.1f%n", name, "snapshot", tree.size(), bytes.length, write / 1e6, read / 1e6);
+		write = read = Long.MAX_VALUE;
+		for (int run = 0; run < RUNS; run++) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			long start = System.nanoTime();
+			try (ObjectOutputStream objects = new ObjectOutputStream(out)) {
+				objects.writeObject(tree.inOrder());
+			}
+			write = Math.min(write, System.nanoTime() - start);
+			bytes = out.toByteArray();
+			start = System.nanoTime();
+			try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+				@SuppressWarnings("unchecked")
+				T[] keys = (T[]) objects.readObject();
+				AbstractBinaryTree<T> copy = factory.get();
+				copy.bulkLoad(keys);
+			}
+			read = Math.min(read, System.nanoTime() - start);
+		}
+		System.out.printf("%-22s %-14s %10d %12d %10.1f %10.1f%n", name, "serialization", tree.size(), bytes.length, write / 1e6, read / 1e6);
+	}
+}
@@ -20,6 +20,9 @@
  */
 package com.acme.composite.tree.impl;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
 import com.acme.composite.tree.api.ITree;
 import com.acme.composite.tree.api.ITreeNode;
 
@@ -40,9 +43,41 @@ import com.acme.composite.tree.api.ITreeNode;
  * Insertions and deletions may require the tree to be rebalanced by one or more
  * tree rotations.
  *
+ * The tree is built of {@link AugmentedTreeNode}s which cache their height and
+ * size, so the balance factor, {@link #height()} and {@link #size()} are O(1)
+ * and do not re-walk the sub-trees.
+ *
+ * The set operations (union, intersection and difference) and
+ * {@link #split(Comparable)} are built on {@link #join(AVLTree)}, which links two
+ * trees with a key between them in time proportional to the difference of their
+ * heights. Combining a tree of m keys with a tree of n &gt;= m keys takes
+ * O(m log(n/m + 1)) time instead of the O(m log n) of inserting the keys one by
+ * one, and the recursion on the two sides of a split is independent, so the
+ * parallel versions run it on the common fork/join pool. The operations re-link
+ * the nodes of both trees, so the tree they are called on holds the result and
+ * the other tree is emptied.
+ *
  * @param <T> the type of key
  */
-public class AVLTree<T extends Comparable<T>> extends BinaryTree<T> {
+public class AVLTree<T extends Comparable<T>> extends BinarySearchTree<T> {
+
+	/**
+	 * the number of keys under which the parallel set operations recurse in the
+	 * current thread
+	 */
+	private static final int SEQUENTIAL_THRESHOLD = 1 << 13;
+
+	private enum Operation {
+		UNION, INTERSECTION, DIFFERENCE
+	}
+
+	/*
+	 * the result of a split: the sub-trees of the keys less than and greater than
+	 * the split key, and the node of the split key if it was found
+	 */
+	private static class Split<T extends Comparable<T>> {
+		ITreeNode<T> left, middle, right;
+	}
 
 	public AVLTree(Class<T> clazz, T key) {
 		super(clazz, key);
@@ -52,19 +87,23 @@ public class AVLTree<T extends Comparable<T>> extends BinaryTree<T> {
 		super(clazz);
 	}
 
+	/*
+	 * the lower node is re-linked first so its cached height is up to date by the
+	 * time the new sub-tree root is re-linked on top of it
+	 */
 	private ITreeNode<T> leftRotate(ITreeNode<T> x) {
 		ITreeNode<T> y = x.right();
 		ITreeNode<T> T2 = y.left();
-		y.setLeft(x);
 		x.setRight(T2);
+		y.setLeft(x);
 		return y;
 	}
 
 	private ITreeNode<T> rightRotate(ITreeNode<T> y) {
 		ITreeNode<T> x = y.left();
 		ITreeNode<T> T2 = x.right();
-		x.setRight(y);
 		y.setLeft(T2);
+		x.setRight(y);
 		return x;
 	}
 
@@ -94,9 +133,27 @@ public class AVLTree<T extends Comparable<T>> extends BinaryTree<T> {
 		return root;
 	}
 
+	/*
+	 * this is a BST deletion algorithm, where a node with two children is replaced
+	 * by its in order successor (the smallest key in the right subtree)
+	 */
 	@Override
 	protected ITreeNode<T> delete(ITreeNode<T> root, T key) {
-		root = super.delete(root, key);
+		if (root == null)
+			return root;
+		if (key.compareTo(root.key()) < 0)
+			root.setLeft(delete(root.left(), key));
+		else if (key.compareTo(root.key()) > 0)
+			root.setRight(delete(root.right(), key));
+		else {
+			if (root.left() == null) // node with only one child or no child
+				return root.right();
+			else if (root.right() == null)
+				return root.left();
+			T successor = root.right().inOrderSuccessor().key();
+			root.setKey(successor);
+			root.setRight(delete(root.right(), successor));
+		}
 		// If this node becomes unbalanced, then there are 4 cases
 		int balance = balance(root); // Left Left Case
 		if (balance > 1 && balance(root.left()) >= 0)
@@ -120,20 +177,282 @@ public class AVLTree<T extends Comparable<T>> extends BinaryTree<T> {
 		return this;
 	}
 
-	@Override
-	public ITreeNode<T> lowestCommonAncestor(ITreeNode<T> root, T key1, T key2) {
-		if (root == null)
-			return root;
-		if (root.key().compareTo(key1) == 0 || root.key().compareTo(key2) == 0)
-			return root;
-		ITreeNode<T> left = lowestCommonAncestor(root.left(), key1, key2);
-		ITreeNode<T> right = lowestCommonAncestor(root.right(), key1, key2);
-		if (left != null && right != null)
-			return root;
-		if (left != null)
-			return lowestCommonAncestor(root.left(), key1, key2);
-		else
-			return lowestCommonAncestor(root.right(), key1, key2);
+	private ITreeNode<T> detach(ITreeNode<T> node) {
+		node.setLeft(null);
+		node.setRight(null);
+		return node;
+	}
+
+	/*
+	 * link two AVL trees and a detached node whose key is between them into an AVL
+	 * tree. The node is hung on the spine of the higher tree where the heights
+	 * meet, and the spine is rotated back into balance on the way up.
+	 */
+	private ITreeNode<T> join(ITreeNode<T> left, ITreeNode<T> node, ITreeNode<T> right) {
+		if (height(left) > height(right) + 1)
+			return joinRight(left, node, right);
+		if (height(right) > height(left) + 1)
+			return joinLeft(left, node, right);
+		node.setLeft(left);
+		node.setRight(right);
+		return node;
+	}
+
+	private ITreeNode<T> joinRight(ITreeNode<T> left, ITreeNode<T> node, ITreeNode<T> right) {
+		ITreeNode<T> inner = left.right();
+		if (height(inner) <= height(right) + 1) {
+			node.setLeft(inner);
+			node.setRight(right);
+			if (height(node) <= height(left.left()) + 1) {
+				left.setRight(node);
+				return left;
+			}
+			left.setRight(rightRotate(node));
+			return leftRotate(left);
+		}
+		ITreeNode<T> joined = joinRight(inner, node, right);
+		left.setRight(joined);
+		return height(joined) <= height(left.left()) + 1 ? left : leftRotate(left);
+	}
+
+	private ITreeNode<T> joinLeft(ITreeNode<T> left, ITreeNode<T> node, ITreeNode<T> right) {
+		ITreeNode<T> inner = right.left();
+		if (height(inner) <= height(left) + 1) {
+			node.setLeft(left);
+			node.setRight(inner);
+			if (height(node) <= height(right.right()) + 1) {
+				right.setLeft(node);
+				return right;
+			}
+			right.setLeft(leftRotate(node));
+			return rightRotate(right);
+		}
+		ITreeNode<T> joined = joinLeft(left, node, inner);
+		right.setLeft(joined);
+		return height(joined) <= height(right.right()) + 1 ? right : rightRotate(right);
+	}
+
+	/*
+	 * link two AVL trees, where all the keys of the left one are less than the keys
+	 * of the right one, using the maximum of the left tree as the middle node
+	 */
+	private ITreeNode<T> join(ITreeNode<T> left, ITreeNode<T> right) {
+		if (left == null)
+			return right;
+		if (right == null)
+			return left;
+		ITreeNode<T> last = left;
+		while (last.right() != null)
+			last = last.right();
+		left = delete(left, last.key()); // the maximum has no right child, so its node is unlinked as is
+		return join(left, detach(last), right);
+	}
+
+	private Split<T> split(ITreeNode<T> node, T key) {
+		Split<T> parts = new Split<>();
+		split(node, key, parts);
+		return parts;
+	}
+
+	private void split(ITreeNode<T> node, T key, Split<T> parts) {
+		if (node == null)
+			return;
+		int cmp = key.compareTo(node.key());
+		ITreeNode<T> left = node.left(), right = node.right();
+		if (cmp == 0) {
+			parts.left = left;
+			parts.middle = detach(node);
+			parts.right = right;
+		} else if (cmp < 0) {
+			split(left, key, parts);
+			parts.right = join(parts.right, detach(node), right);
+		} else {
+			split(right, key, parts);
+			parts.left = join(left, detach(node), parts.left);
+		}
+	}
+
+	private ITreeNode<T> union(ITreeNode<T> tree1, ITreeNode<T> tree2) {
+		if (tree1 == null)
+			return tree2;
+		if (tree2 == null)
+			return tree1;
+		ITreeNode<T> left = tree1.left(), right = tree1.right();
+		Split<T> parts = split(tree2, tree1.key());
+		return join(union(left, parts.left), detach(tree1), union(right, parts.right));
+	}
+
+	private ITreeNode<T> intersection(ITreeNode<T> tree1, ITreeNode<T> tree2) {
+		if (tree1 == null || tree2 == null)
+			return null;
+		ITreeNode<T> left = tree1.left(), right = tree1.right();
+		Split<T> parts = split(tree2, tree1.key());
+		left = intersection(left, parts.left);
+		right = intersection(right, parts.right);
+		return parts.middle != null ? join(left, detach(tree1), right) : join(left, right);
+	}
+
+	private ITreeNode<T> difference(ITreeNode<T> tree1, ITreeNode<T> tree2) {
+		if (tree1 == null || tree2 == null)
+			return tree1;
+		ITreeNode<T> left = tree2.left(), right = tree2.right();
+		Split<T> parts = split(tree1, tree2.key());
+		return join(difference(parts.left, left), difference(parts.right, right));
+	}
+
+	private ITreeNode<T> apply(Operation operation, ITreeNode<T> tree1, ITreeNode<T> tree2) {
+		switch (operation) {
+		case UNION:
+			return union(tree1, tree2);
+		case INTERSECTION:
+			return intersection(tree1, tree2);
+		default:
+			return difference(tree1, tree2);
+		}
+	}
+
+	/**
+	 * The class SetOperation applies a set operation to two sub-trees. It splits
+	 * the second sub-tree by the root key of the first (or, for a difference, the
+	 * other way around), forks the operation on the left parts and applies it to
+	 * the right parts, and joins the results.
+	 */
+	private class SetOperation extends RecursiveTask<ITreeNode<T>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Operation operation;
+		private final ITreeNode<T> tree1, tree2;
+
+		SetOperation(Operation operation, ITreeNode<T> tree1, ITreeNode<T> tree2) {
+			this.operation = operation;
+			this.tree1 = tree1;
+			this.tree2 = tree2;
+		}
+
+		@Override
+		protected ITreeNode<T> compute() {
+			if (tree1 == null || tree2 == null || size(tree1) + size(tree2) <= SEQUENTIAL_THRESHOLD)
+				return apply(operation, tree1, tree2);
+			ITreeNode<T> pivot = operation == Operation.DIFFERENCE ? tree2 : tree1;
+			ITreeNode<T> other = operation == Operation.DIFFERENCE ? tree1 : tree2;
+			ITreeNode<T> left = pivot.left(), right = pivot.right();
+			Split<T> parts = split(other, pivot.key());
+			SetOperation lower = operation == Operation.DIFFERENCE ? new SetOperation(operation, parts.left, left)
+					: new SetOperation(operation, left, parts.left);
+			lower.fork();
+			ITreeNode<T> upper = operation == Operation.DIFFERENCE ? new SetOperation(operation, parts.right, right).compute()
+					: new SetOperation(operation, right, parts.right).compute();
+			ITreeNode<T> joined = lower.join();
+			if (operation == Operation.UNION || operation == Operation.INTERSECTION && parts.middle != null)
+				return AVLTree.this.join(joined, detach(pivot), upper);
+			return AVLTree.this.join(joined, upper);
+		}
+	}
+
+	private AVLTree<T> apply(Operation operation, AVLTree<T> other, boolean parallel) {
+		if (other == this) {
+			if (operation == Operation.DIFFERENCE)
+				root = null;
+			return this;
+		}
+		root = parallel ? ForkJoinPool.commonPool().invoke(new SetOperation(operation, root, other.root)) : apply(operation, root, other.root);
+		other.root = null;
+		return this;
+	}
+
+	/**
+	 * A method to append the keys of another tree, which must all be greater than
+	 * the keys of this tree, in O(log n) time
+	 *
+	 * @param other the tree to append, which is emptied
+	 * @return this tree
+	 * @throws IllegalArgumentException if the keys of the trees overlap
+	 */
+	public AVLTree<T> join(AVLTree<T> other) {
+		if (other == this || !isEmpty() && !other.isEmpty() && max().compareTo(other.min()) >= 0)
+			throw new IllegalArgumentException("the keys of the joined tree must be greater than the keys of this tree");
+		root = join(root, other.root);
+		other.root = null;
+		return this;
+	}
+
+	/**
+	 * A method to split the tree by a key in O(log n) time. This tree keeps the
+	 * keys that are less than the given key.
+	 *
+	 * @param key the key to split by
+	 * @return a new tree with the keys that are greater than or equal to the given
+	 *         key
+	 */
+	public AVLTree<T> split(T key) {
+		Split<T> parts = split(root, key);
+		root = parts.left;
+		AVLTree<T> greater = new AVLTree<>(clazz);
+		greater.root = parts.middle == null ? parts.right : join(null, parts.middle, parts.right);
+		return greater;
+	}
+
+	/**
+	 * A method to add the keys of another tree to this tree
+	 *
+	 * @param other the other tree, which is emptied
+	 * @return this tree
+	 */
+	public AVLTree<T> union(AVLTree<T> other) {
+		return apply(Operation.UNION, other, false);
+	}
+
+	/**
+	 * A method to keep only the keys that are also in another tree
+	 *
+	 * @param other the other tree, which is emptied
+	 * @return this tree
+	 */
+	public AVLTree<T> intersection(AVLTree<T> other) {
+		return apply(Operation.INTERSECTION, other, false);
+	}
+
+	/**
+	 * A method to remove the keys that are in another tree
+	 *
+	 * @param other the other tree, which is emptied
+	 * @return this tree
+	 */
+	public AVLTree<T> difference(AVLTree<T> other) {
+		return apply(Operation.DIFFERENCE, other, false);
+	}
+
+	/**
+	 * A parallel version of {@link #union(AVLTree)} on the common fork/join pool
+	 *
+	 * @param other the other tree, which is emptied
+	 * @return this tree
+	 */
+	public AVLTree<T> parallelUnion(AVLTree<T> other) {
+		return apply(Operation.UNION, other, true);
+	}
+
+	/**
+	 * A parallel version of {@link #intersection(AVLTree)} on the common fork/join
+	 * pool
+	 *
+	 * @param other the other tree, which is emptied
+	 * @return this tree
+	 */
+	public AVLTree<T> parallelIntersection(AVLTree<T> other) {
+		return apply(Operation.INTERSECTION, other, true);
+	}
+
+	/**
+	 * A parallel version of {@link #difference(AVLTree)} on the common fork/join
+	 * pool
+	 *
+	 * @param other the other tree, which is emptied
+	 * @return this tree
+	 */
+	public AVLTree<T> parallelDifference(AVLTree<T> other) {
+		return apply(Operation.DIFFERENCE, other, true);
 	}
 
 	public static void main(String[] args) {
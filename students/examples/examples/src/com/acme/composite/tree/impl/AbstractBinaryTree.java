@@ -20,12 +20,21 @@
  */
 package com.acme.composite.tree.impl;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Array;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 import com.acme.composite.tree.api.ITree;
 import com.acme.composite.tree.api.ITreeNode;
+import com.acme.composite.tree.api.RenderOptions;
+import com.acme.composite.tree.api.TraversalOrder;
 
 /**
  * The class AbstractBinaryTree is the base class for binary tree
@@ -36,7 +45,7 @@ import com.acme.composite.tree.api.ITreeNode;
 public abstract class AbstractBinaryTree<T extends Comparable<T>> implements ITree<T> {
 
 	protected ITreeNode<T> root;
-	private Class<T> clazz;
+	protected final Class<T> clazz;
 
 	public AbstractBinaryTree(Class<T> clazz) {
 		super();
@@ -47,7 +56,18 @@ public abstract class AbstractBinaryTree<T extends Comparable<T>> implements ITr
 		super();
 		this.clazz = clazz;
 		if (key != null)
-			this.root = new TreeNode<T>(key);
+			this.root = createNode(key);
+	}
+
+	/**
+	 * factory method for the nodes created by this tree. Subclasses that need
+	 * augmented nodes (e.g. with a cached height) override it.
+	 *
+	 * @param key the key of the new node
+	 * @return a new node with the given key
+	 */
+	protected ITreeNode<T> createNode(T key) {
+		return new TreeNode<>(key);
 	}
 
 	/*
@@ -55,7 +75,7 @@ public abstract class AbstractBinaryTree<T extends Comparable<T>> implements ITr
 	 */
 	protected ITreeNode<T> insert(ITreeNode<T> root, T key) {
 		if (root == null) {
-			root = new TreeNode<>(key);
+			root = createNode(key);
 			return root;
 		}
 		if (key.compareTo(root.key()) < 0)
@@ -71,6 +91,53 @@ public abstract class AbstractBinaryTree<T extends Comparable<T>> implements ITr
 		return this;
 	}
 
+	@Override
+	public ITree<T> bulkLoad(T[] keys) {
+		T[] sorted = SortedKeys.sortedDistinct(keys, false);
+		root = build(sorted, 0, sorted.length - 1);
+		return this;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public ITree<T> insertAll(Collection<? extends T> keys) {
+		T[] added = SortedKeys.sortedDistinct(keys.toArray((T[]) Array.newInstance(clazz, 0)), true);
+		int size = size();
+		if (size == 0) {
+			root = build(added, 0, added.length - 1);
+			return this;
+		}
+		if (SortedKeys.insertOneByOne(size, added.length)) {
+			for (T key : added)
+				insert(key);
+			return this;
+		}
+		T[] merged = SortedKeys.merge(inOrder(), added);
+		root = build(merged, 0, merged.length - 1);
+		return this;
+	}
+
+	/**
+	 * build a perfectly balanced tree from sorted keys by making the middle key the
+	 * root of each sub-tree. This takes O(n) time and the recursion is only log(n)
+	 * deep. The heights of any two sibling sub-trees differ by at most one, so the
+	 * result is also a valid AVL tree.
+	 *
+	 * @param sorted the sorted distinct keys
+	 * @param lo     the index of the first key of the sub-tree
+	 * @param hi     the index of the last key of the sub-tree
+	 * @return the root of the sub-tree
+	 */
+	protected ITreeNode<T> build(T[] sorted, int lo, int hi) {
+		if (lo > hi)
+			return null;
+		int mid = (lo + hi) >>> 1;
+		ITreeNode<T> node = createNode(sorted[mid]);
+		node.setLeft(build(sorted, lo, mid - 1));
+		node.setRight(build(sorted, mid + 1, hi));
+		return node;
+	}
+
 	@Override
 	public ITreeNode<T> inOrderSuccessor(ITreeNode<T> root) {
 		// step 1 of the above algorithm
@@ -129,81 +196,50 @@ public abstract class AbstractBinaryTree<T extends Comparable<T>> implements ITr
 		return this;
 	}
 
-	private List<T> inOrder(ITreeNode<T> root, List<T> arr) {
-		if (root == null)
-			return arr;
-		arr = inOrder(root.left(), arr);
-		arr.add(root.key());
-		arr = inOrder(root.right(), arr);
-		return arr;
-	}
-
-	@Override
 	@SuppressWarnings("unchecked")
-	public T[] inOrder() {
-		List<T> list = inOrder(root, new ArrayList<>());
+	private T[] toArray(Spliterator<T> spliterator) {
+		List<T> list = new ArrayList<>();
+		spliterator.forEachRemaining(list::add);
 		return (T[]) list.toArray((T[]) Array.newInstance(clazz, list.size()));
 	}
 
 	@Override
-	@SuppressWarnings("unchecked")
-	public T[] inOrder(ITreeNode<T> node) {
-		List<T> list = inOrder(node, new ArrayList<>());
-		return (T[]) list.toArray((T[]) Array.newInstance(clazz, list.size()));
+	public Spliterator<T> spliterator(TraversalOrder order) {
+		return spliterator(root, order);
 	}
 
-	private List<T> preOrder(ITreeNode<T> root, List<T> arr) {
-		if (root == null)
-			return arr;
-		arr.add(root.key());
-		arr = preOrder(root.left(), arr);
-		arr = preOrder(root.right(), arr);
-		return arr;
+	protected Spliterator<T> spliterator(ITreeNode<T> root, TraversalOrder order) {
+		if (order == TraversalOrder.LEVEL_ORDER)
+			return new LevelOrderSpliterator<>(root);
+		return new DepthFirstSpliterator<>(root, order);
 	}
 
 	@Override
-	@SuppressWarnings("unchecked")
-	public T[] preOrder() {
-		List<T> list = preOrder(root, new ArrayList<>());
-		return (T[]) list.toArray((T[]) Array.newInstance(clazz, list.size()));
+	public T[] inOrder() {
+		return toArray(spliterator(root, TraversalOrder.IN_ORDER));
 	}
 
-	private List<T> postOrder(ITreeNode<T> root, List<T> arr) {
-		if (root == null)
-			return arr;
-		arr = postOrder(root.left(), arr);
-		arr = postOrder(root.right(), arr);
-		arr.add(root.key());
-		return arr;
+	@Override
+	public T[] inOrder(ITreeNode<T> node) {
+		return toArray(spliterator(node, TraversalOrder.IN_ORDER));
 	}
 
 	@Override
-	@SuppressWarnings("unchecked")
-	public T[] postOrder() {
-		List<T> list = postOrder(root, new ArrayList<>());
-		return (T[]) list.toArray((T[]) Array.newInstance(clazz, list.size()));
+	public T[] preOrder() {
+		return toArray(spliterator(root, TraversalOrder.PRE_ORDER));
 	}
 
-	protected List<T> levelOrder(ITreeNode<T> root, int level, List<T> arr) {
-		if (root == null)
-			return arr;
-		if (level <= 1)
-			arr.add(root.key());
-		else {
-			levelOrder(root.left(), level - 1, arr);
-			levelOrder(root.right(), level - 1, arr);
-		}
-		return arr;
+	@Override
+	public T[] postOrder() {
+		return toArray(spliterator(root, TraversalOrder.POST_ORDER));
 	}
 
+	/*
+	 * uses a queue, so each node is visited once rather than once per level
+	 */
 	@Override
-	@SuppressWarnings("unchecked")
 	public T[] levelOrder() {
-		int height = height();
-		List<T> arr = new ArrayList<>();
-		for (int level = 1; level <= height; level++)
-			arr = levelOrder(root, level, arr);
-		return (T[]) arr.toArray((T[]) Array.newInstance(clazz, arr.size()));
+		return toArray(spliterator(root, TraversalOrder.LEVEL_ORDER));
 	}
 
 	protected T min(ITreeNode<T> root) {
@@ -242,8 +278,106 @@ public abstract class AbstractBinaryTree<T extends Comparable<T>> implements ITr
 		return max(root);
 	}
 
+	/*
+	 * walk down a single path and remember the last key on the wanted side of the
+	 * given key
+	 */
+	@Override
+	public T floor(T key) {
+		T floor = null;
+		ITreeNode<T> node = root;
+		while (node != null) {
+			int cmp = key.compareTo(node.key());
+			if (cmp == 0)
+				return node.key();
+			if (cmp < 0)
+				node = node.left();
+			else {
+				floor = node.key();
+				node = node.right();
+			}
+		}
+		return floor;
+	}
+
+	@Override
+	public T ceiling(T key) {
+		T ceiling = null;
+		ITreeNode<T> node = root;
+		while (node != null) {
+			int cmp = key.compareTo(node.key());
+			if (cmp == 0)
+				return node.key();
+			if (cmp > 0)
+				node = node.right();
+			else {
+				ceiling = node.key();
+				node = node.left();
+			}
+		}
+		return ceiling;
+	}
+
+	@Override
+	public T higher(T key) {
+		T higher = null;
+		ITreeNode<T> node = root;
+		while (node != null) {
+			if (key.compareTo(node.key()) < 0) {
+				higher = node.key();
+				node = node.left();
+			} else
+				node = node.right();
+		}
+		return higher;
+	}
+
+	@Override
+	public T lower(T key) {
+		T lower = null;
+		ITreeNode<T> node = root;
+		while (node != null) {
+			if (key.compareTo(node.key()) > 0) {
+				lower = node.key();
+				node = node.right();
+			} else
+				node = node.left();
+		}
+		return lower;
+	}
+
+	/*
+	 * an in order traversal that only descends to the left while the keys may
+	 * still be above the lower bound, and stops at the first key above the upper
+	 * bound
+	 */
+	@Override
+	public void rangeScan(T lo, T hi, Consumer<? super T> consumer) {
+		if (lo.compareTo(hi) > 0)
+			return;
+		Deque<ITreeNode<T>> stack = new ArrayDeque<>();
+		ITreeNode<T> node = root;
+		while (node != null || !stack.isEmpty()) {
+			while (node != null) {
+				if (node.key().compareTo(lo) < 0)
+					node = node.right(); // the node and its left sub-tree are below the range
+				else {
+					stack.push(node);
+					node = node.left();
+				}
+			}
+			if (stack.isEmpty())
+				return;
+			node = stack.pop();
+			if (node.key().compareTo(hi) > 0)
+				return;
+			consumer.accept(node.key());
+			node = node.right();
+		}
+	}
+
 	protected int height(ITreeNode<T> root) {
-		return root == null ? 0 : Math.max(height(root.left()), height(root.right())) + 1;
+		return root == null ? 0 : root.height();
 	}
 
 	@Override
@@ -252,7 +386,7 @@ public abstract class AbstractBinaryTree<T extends Comparable<T>> implements ITr
 	}
 
 	protected int size(ITreeNode<T> root) {
-		return root == null ? 0 : size(root.left()) + size(root.right()) + 1;
+		return root == null ? 0 : root.size();
 	}
 
 	@Override
@@ -260,6 +394,56 @@ public abstract class AbstractBinaryTree<T extends Comparable<T>> implements ITr
 		return size(root);
 	}
 
+	/*
+	 * count the keys smaller than (or equal to, if inclusive) the given key by
+	 * walking down a single path and adding the size of every left sub-tree we
+	 * pass. This is O(h) when the nodes cache their size
+	 */
+	private int countLess(T key, boolean inclusive) {
+		int count = 0;
+		ITreeNode<T> node = root;
+		while (node != null) {
+			int cmp = key.compareTo(node.key());
+			if (cmp < 0 || (cmp == 0 && !inclusive))
+				node = node.left();
+			else {
+				count += size(node.left()) + 1;
+				node = node.right();
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public int rank(T key) {
+		return countLess(key, false);
+	}
+
+	@Override
+	public T select(int index) {
+		if (index < 0 || index >= size())
+			return null;
+		ITreeNode<T> node = root;
+		while (node != null) {
+			int lsize = size(node.left());
+			if (index < lsize)
+				node = node.left();
+			else if (index > lsize) {
+				index -= lsize + 1;
+				node = node.right();
+			} else
+				return node.key();
+		}
+		return null;
+	}
+
+	@Override
+	public int countRange(T lo, T hi) {
+		if (lo.compareTo(hi) > 0)
+			return 0;
+		return countLess(hi, true) - countLess(lo, false);
+	}
+
 	/**
 	 * General search algorithm for any tree
 	 *
@@ -292,31 +476,30 @@ public abstract class AbstractBinaryTree<T extends Comparable<T>> implements ITr
 		return this.root;
 	}
 
+	/**
+	 * a method to replace the content of the tree with nodes that were linked
+	 * elsewhere (e.g. read by a snapshot codec). The nodes must form a valid tree
+	 * of this kind, e.g. a balanced one for an AVL tree.
+	 *
+	 * @param root the root of the new content, or null to empty the tree
+	 */
+	public void setRoot(ITreeNode<T> root) {
+		this.root = root;
+	}
+
 	public void print() {
 		System.out.printf("%n");
-		if (root != null && root.right() != null)
-			printTree(root.right(), true, "");
-		System.out.printf("%s:%s%n", (root == null ? "null" : root.key().toString()), height(root));
-		if (root != null && root.left() != null)
-			printTree(root.left(), false, "");
+		try {
+			render(System.out, RenderOptions.DEFAULT);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
 		System.out.printf("%n");
 	}
 
-	private void printTree(ITreeNode<T> node, boolean isRight, String indent) {
-		if (node.right() != null) {
-			printTree(node.right(), true, indent + (isRight ? "      " : " |    "));
-		}
-		System.out.print(indent);
-		if (isRight) {
-			System.out.print(" /");
-		} else {
-			System.out.print(" \\");
-		}
-		System.out.print("-- ");
-		System.out.printf("%s:%s%n", (node == null ? "null" : node.key().toString()), height(node));
-		if (node != null && node.left() != null) {
-			printTree(node.left(), false, indent + (isRight ? " |    " : "      "));
-		}
+	@Override
+	public void render(Appendable out, RenderOptions options) throws IOException {
+		TreeRenderer.render(root, out, options);
 	}
 
 	protected ITreeNode<T> last(ITreeNode<T> root) {
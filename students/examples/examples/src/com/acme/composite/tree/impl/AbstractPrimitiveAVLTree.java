@@ -0,0 +1,386 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.impl;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import com.acme.composite.tree.api.TraversalOrder;
+
+/**
+ * The class AbstractPrimitiveAVLTree is the base class for AVL trees of
+ * primitive keys, such as {@link IntAVLTree} and {@link LongAVLTree}.
+ *
+ * Instead of a {@link TreeNode} object per key, a node is an index into
+ * parallel arrays that hold the children, height and sub-tree size of every
+ * node, while the sub-classes hold the keys in a primitive array of their own.
+ * Index 0 is a sentinel (NIL) node of height and size 0, so the algorithms need
+ * no null checks. Deleted nodes are kept on a free list (linked through the left
+ * array) and are reused by the next insertions.
+ *
+ * This class manages the shape of the tree: allocating nodes, rotations,
+ * rebalancing and the traversal of node indices. The sub-classes implement the
+ * key comparisons.
+ */
+public abstract class AbstractPrimitiveAVLTree {
+
+	protected static final int NIL = 0;
+	protected static final int DEFAULT_CAPACITY = 16;
+
+	protected int[] left, right, size;
+	protected byte[] height; // an AVL tree of 2^31 nodes is less than 45 levels high
+	protected int root = NIL;
+	private int next = 1; // the next never used node
+	private int free = NIL; // the head of the free list
+
+	protected AbstractPrimitiveAVLTree(int capacity) {
+		capacity = Math.max(capacity, 1) + 1; // room for the NIL node
+		left = new int[capacity];
+		right = new int[capacity];
+		size = new int[capacity];
+		height = new byte[capacity];
+	}
+
+	/**
+	 * resize the key array of the sub-class to the given capacity
+	 *
+	 * @param capacity the new capacity
+	 */
+	protected abstract void resizeKeys(int capacity);
+
+	/**
+	 * append the key of a node to a string builder
+	 *
+	 * @param builder the builder
+	 * @param node    the node index
+	 */
+	protected abstract void appendKey(StringBuilder builder, int node);
+
+	private void resize(int capacity) {
+		left = Arrays.copyOf(left, capacity);
+		right = Arrays.copyOf(right, capacity);
+		size = Arrays.copyOf(size, capacity);
+		height = Arrays.copyOf(height, capacity);
+		resizeKeys(capacity);
+	}
+
+	/**
+	 * allocate a leaf node, from the free list if possible. The caller sets its
+	 * key.
+	 *
+	 * @return the index of the new node
+	 */
+	protected int allocate() {
+		int node;
+		if (free != NIL) {
+			node = free;
+			free = left[free];
+		} else {
+			if (next == left.length)
+				resize(left.length + (left.length >> 1) + 1);
+			node = next++;
+		}
+		left[node] = right[node] = NIL;
+		height[node] = 1;
+		size[node] = 1;
+		return node;
+	}
+
+	/**
+	 * return a node to the free list
+	 *
+	 * @param node the node index
+	 */
+	protected void release(int node) {
+		left[node] = free;
+		right[node] = NIL;
+		free = node;
+	}
+
+	protected void update(int node) {
+		height[node] = (byte) (Math.max(height[left[node]], height[right[node]]) + 1);
+		size[node] = size[left[node]] + size[right[node]] + 1;
+	}
+
+	protected int rotateLeft(int x) {
+		int y = right[x];
+		right[x] = left[y];
+		left[y] = x;
+		update(x);
+		update(y);
+		return y;
+	}
+
+	protected int rotateRight(int y) {
+		int x = left[y];
+		left[y] = right[x];
+		right[x] = y;
+		update(y);
+		update(x);
+		return x;
+	}
+
+	/**
+	 * update a node whose sub-tree was modified and restore its balance with the 4
+	 * rotation cases
+	 *
+	 * @param node the node index
+	 * @return the index of the node that now roots the sub-tree
+	 */
+	protected int rebalance(int node) {
+		update(node);
+		int balance = height[left[node]] - height[right[node]];
+		if (balance > 1) {
+			if (height[left[left[node]]] < height[right[left[node]]]) // Left Right Case
+				left[node] = rotateLeft(left[node]);
+			return rotateRight(node); // Left Left Case
+		}
+		if (balance < -1) {
+			if (height[right[right[node]]] < height[left[right[node]]]) // Right Left Case
+				right[node] = rotateRight(right[node]);
+			return rotateLeft(node); // Right Right Case
+		}
+		return node;
+	}
+
+	/**
+	 * replace the tree with a perfectly balanced one of n nodes. The nodes are
+	 * allocated in order, so the node of the i-th smallest key is i + 1 and the
+	 * sub-class only has to copy its sorted keys to index 1.
+	 *
+	 * @param n the number of nodes
+	 */
+	protected void buildBalanced(int n) {
+		clear();
+		if (left.length < n + 1)
+			resize(n + 1);
+		root = build(0, n - 1);
+	}
+
+	private int build(int lo, int hi) {
+		if (lo > hi)
+			return NIL;
+		int mid = (lo + hi) >>> 1;
+		int l = build(lo, mid - 1);
+		int node = allocate();
+		int r = build(mid + 1, hi);
+		left[node] = l;
+		right[node] = r;
+		update(node);
+		return node;
+	}
+
+	/**
+	 * find the node at the given in order position
+	 *
+	 * @param index the zero based in order position
+	 * @return the node index
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	protected int selectNode(int index) {
+		if (index < 0 || index >= size())
+			throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+		int node = root;
+		while (true) {
+			int lsize = size[left[node]];
+			if (index < lsize)
+				node = left[node];
+			else if (index > lsize) {
+				index -= lsize + 1;
+				node = right[node];
+			} else
+				return node;
+		}
+	}
+
+	protected int minNode() {
+		if (root == NIL)
+			throw new NoSuchElementException("the tree is empty");
+		int node = root;
+		while (left[node] != NIL)
+			node = left[node];
+		return node;
+	}
+
+	protected int maxNode() {
+		if (root == NIL)
+			throw new NoSuchElementException("the tree is empty");
+		int node = root;
+		while (right[node] != NIL)
+			node = right[node];
+		return node;
+	}
+
+	/**
+	 * collect the node indices in the given order without recursion
+	 *
+	 * @param order the traversal order
+	 * @return the node indices in the given order
+	 */
+	protected int[] nodes(TraversalOrder order) {
+		int n = size();
+		int[] nodes = new int[n];
+		if (n == 0)
+			return nodes;
+		if (order == TraversalOrder.LEVEL_ORDER) { // the result array is the queue
+			nodes[0] = root;
+			for (int head = 0, tail = 1; head < tail; head++) {
+				int node = nodes[head];
+				if (left[node] != NIL)
+					nodes[tail++] = left[node];
+				if (right[node] != NIL)
+					nodes[tail++] = right[node];
+			}
+			return nodes;
+		}
+		int[] stack = new int[height() + 1];
+		int top = 0, count = 0, node = root, last = NIL;
+		switch (order) {
+		case PRE_ORDER:
+			stack[top++] = root;
+			while (top > 0) {
+				node = stack[--top];
+				nodes[count++] = node;
+				if (right[node] != NIL)
+					stack[top++] = right[node];
+				if (left[node] != NIL)
+					stack[top++] = left[node];
+			}
+			break;
+		case POST_ORDER:
+			while (node != NIL || top > 0) {
+				if (node != NIL) {
+					stack[top++] = node;
+					node = left[node];
+				} else {
+					int peek = stack[top - 1];
+					if (right[peek] != NIL && last != right[peek])
+						node = right[peek];
+					else {
+						nodes[count++] = peek;
+						last = stack[--top];
+					}
+				}
+			}
+			break;
+		default:
+			while (node != NIL || top > 0) {
+				while (node != NIL) {
+					stack[top++] = node;
+					node = left[node];
+				}
+				node = stack[--top];
+				nodes[count++] = node;
+				node = right[node];
+			}
+		}
+		return nodes;
+	}
+
+	/**
+	 * The class NodeIterator lazily iterates over the node indices in order, using
+	 * a stack as deep as the tree
+	 */
+	protected class NodeIterator {
+
+		private final int[] stack = new int[height() + 1];
+		private int top;
+
+		protected NodeIterator() {
+			pushLeft(root);
+		}
+
+		private void pushLeft(int node) {
+			for (; node != NIL; node = left[node])
+				stack[top++] = node;
+		}
+
+		public boolean hasNext() {
+			return top > 0;
+		}
+
+		public int nextNode() {
+			if (top == 0)
+				throw new NoSuchElementException();
+			int node = stack[--top];
+			pushLeft(right[node]);
+			return node;
+		}
+	}
+
+	public int height() {
+		return height[root];
+	}
+
+	public int size() {
+		return size[root];
+	}
+
+	public boolean isEmpty() {
+		return root == NIL;
+	}
+
+	/**
+	 * return true if every node has either no children or two children
+	 *
+	 * @return true is this is a full tree, otherwise false
+	 */
+	public boolean isFull() {
+		for (int node : nodes(TraversalOrder.LEVEL_ORDER))
+			if ((left[node] == NIL) != (right[node] == NIL))
+				return false;
+		return true;
+	}
+
+	/**
+	 * remove all the keys. The arrays keep their capacity.
+	 */
+	public void clear() {
+		root = NIL;
+		next = 1;
+		free = NIL;
+	}
+
+	public void print() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(System.lineSeparator());
+		if (root != NIL) {
+			if (right[root] != NIL)
+				print(builder, right[root], true, "");
+			appendKey(builder, root);
+			builder.append(':').append(height[root]).append(System.lineSeparator());
+			if (left[root] != NIL)
+				print(builder, left[root], false, "");
+		}
+		builder.append(System.lineSeparator());
+		System.out.print(builder);
+	}
+
+	private void print(StringBuilder builder, int node, boolean isRight, String indent) {
+		if (right[node] != NIL)
+			print(builder, right[node], true, indent + (isRight ? "      " : " |    "));
+		builder.append(indent).append(isRight ? " /" : " \\").append("-- ");
+		appendKey(builder, node);
+		builder.append(':').append(height[node]).append(System.lineSeparator());
+		if (left[node] != NIL)
+			print(builder, left[node], false, indent + (isRight ? " |    " : "      "));
+	}
+}
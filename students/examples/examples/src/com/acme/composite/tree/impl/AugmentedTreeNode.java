@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.impl;
+
+import com.acme.composite.tree.api.IAugmentedTreeNode;
+import com.acme.composite.tree.api.ITreeNode;
+
+/**
+ * The class AugmentedTreeNode is a {@link TreeNode} that caches the height and
+ * size of the sub-tree rooted at it.
+ *
+ * The cache is refreshed whenever a child is set, so a tree that re-links its
+ * nodes bottom up (as the recursive insert, delete and rotation algorithms do)
+ * keeps every node up to date in O(1) per re-linked node.
+ *
+ * @param <T> the type of key
+ */
+public class AugmentedTreeNode<T extends Comparable<T>> extends TreeNode<T> implements IAugmentedTreeNode<T> {
+
+	private int height = 1;
+	private int size = 1;
+
+	public AugmentedTreeNode(T key) {
+		super(key);
+	}
+
+	@Override
+	public void setRight(ITreeNode<T> right) {
+		super.setRight(right);
+		update();
+	}
+
+	@Override
+	public void setLeft(ITreeNode<T> left) {
+		super.setLeft(left);
+		update();
+	}
+
+	@Override
+	public void update() {
+		int lheight = left == null ? 0 : left.height();
+		int rheight = right == null ? 0 : right.height();
+		height = Math.max(lheight, rheight) + 1;
+		size = (left == null ? 0 : left.size()) + (right == null ? 0 : right.size()) + 1;
+	}
+
+	@Override
+	public int height() {
+		return height;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+}
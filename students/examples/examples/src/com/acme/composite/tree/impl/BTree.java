@@ -0,0 +1,954 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+import com.acme.composite.tree.api.ITree;
+import com.acme.composite.tree.api.ITreeNode;
+import com.acme.composite.tree.api.RenderOptions;
+import com.acme.composite.tree.api.TraversalOrder;
+
+/**
+ * The class BTree is a B-tree implementation of {@link ITree}.
+ *
+ * Every node holds between degree - 1 and 2 * degree - 1 keys (the root may
+ * hold fewer) in a contiguous sorted array, and an internal node with k keys
+ * has k + 1 children, so the fan-out of the tree is up to 2 * degree and a
+ * lookup visits log(n) / log(degree) nodes instead of the log(n) nodes of a
+ * binary tree, with a binary search within every node. All the leaves are at
+ * the same depth.
+ *
+ * Every node also caches the number of keys in its sub-tree, so rank, select
+ * and countRange take O(log n) time.
+ *
+ * The in order traversal visits the keys in ascending order. The pre order,
+ * post order and level order traversals visit the nodes of the B-tree in that
+ * order, and the keys of every node in ascending order.
+ *
+ * There are no binary tree nodes in a B-tree, so the methods that return an
+ * {@link ITreeNode} return a detached {@link TreeNode} that holds a key only.
+ * The methods that take an ITreeNode use only its key, and stand for the B-tree
+ * node that holds that key.
+ *
+ * @param <T> the type of key
+ */
+public class BTree<T extends Comparable<T>> implements ITree<T> {
+
+	/**
+	 * the default minimal degree, for nodes of up to 63 keys
+	 */
+	public static final int DEFAULT_DEGREE = 32;
+
+	private static final RenderOptions PRINT_OPTIONS = RenderOptions.builder().indent(4).heights(false).build();
+
+	private static class Node<T> {
+		final T[] keys;
+		final Node<T>[] children; // null for a leaf
+		int count; // the number of keys in this node
+		int size; // the number of keys in this sub-tree
+
+		@SuppressWarnings("unchecked")
+		Node(int degree, boolean leaf) {
+			this.keys = (T[]) new Comparable<?>[2 * degree - 1];
+			this.children = leaf ? null : (Node<T>[]) new Node<?>[2 * degree];
+		}
+
+		boolean leaf() {
+			return children == null;
+		}
+	}
+
+	private final Class<T> clazz;
+	private final int degree;
+	private final int maxKeys;
+	private Node<T> root;
+
+	public BTree(Class<T> clazz) {
+		this(clazz, DEFAULT_DEGREE);
+	}
+
+	/**
+	 * @param clazz  the type of key
+	 * @param degree the minimal degree, every node but the root has at least
+	 *               degree - 1 and at most 2 * degree - 1 keys
+	 */
+	public BTree(Class<T> clazz, int degree) {
+		if (degree < 2)
+			throw new IllegalArgumentException("the degree of a B-tree must be at least 2");
+		this.clazz = clazz;
+		this.degree = degree;
+		this.maxKeys = 2 * degree - 1;
+	}
+
+	public int degree() {
+		return degree;
+	}
+
+	/*
+	 * binary search of the key within a node, returns the index of the key or
+	 * -(insertion point + 1) as Arrays.binarySearch does
+	 */
+	private static <T extends Comparable<T>> int indexOf(Node<T> node, T key) {
+		int lo = 0, hi = node.count - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int cmp = node.keys[mid].compareTo(key);
+			if (cmp < 0)
+				lo = mid + 1;
+			else if (cmp > 0)
+				hi = mid - 1;
+			else
+				return mid;
+		}
+		return -(lo + 1);
+	}
+
+	private static int size(Node<?> node) {
+		return node == null ? 0 : node.size;
+	}
+
+	private Node<T> locate(Node<T> node, T key) {
+		while (node != null) {
+			int i = indexOf(node, key);
+			if (i >= 0)
+				return node;
+			node = node.leaf() ? null : node.children[-i - 1];
+		}
+		return null;
+	}
+
+	private Node<T> locate(ITreeNode<T> node) {
+		return node == null ? null : locate(root, node.key());
+	}
+
+	private boolean contains(T key) {
+		return locate(root, key) != null;
+	}
+
+	@Override
+	public ITree<T> insert(T key) {
+		if (root == null) {
+			root = new Node<>(degree, true);
+			root.keys[0] = key;
+			root.count = root.size = 1;
+			return this;
+		}
+		if (contains(key))
+			return this;
+		if (root.count == maxKeys) { // split the root on the way down, which is the only way the tree grows
+			Node<T> node = new Node<>(degree, false);
+			node.children[0] = root;
+			node.size = root.size;
+			split(node, 0);
+			root = node;
+		}
+		Node<T> node = root;
+		while (true) {
+			node.size++;
+			int i = -indexOf(node, key) - 1;
+			if (node.leaf()) {
+				System.arraycopy(node.keys, i, node.keys, i + 1, node.count - i);
+				node.keys[i] = key;
+				node.count++;
+				return this;
+			}
+			/* split a full child before descending, so it can take the key */
+			if (node.children[i].count == maxKeys) {
+				split(node, i);
+				if (key.compareTo(node.keys[i]) > 0)
+					i++;
+			}
+			node = node.children[i];
+		}
+	}
+
+	/*
+	 * split the full i-th child of the parent around its median key, which moves up
+	 * into the parent
+	 */
+	private void split(Node<T> parent, int i) {
+		Node<T> left = parent.children[i];
+		Node<T> right = new Node<>(degree, left.leaf());
+		right.count = degree - 1;
+		System.arraycopy(left.keys, degree, right.keys, 0, degree - 1);
+		right.size = degree - 1;
+		if (!left.leaf()) {
+			System.arraycopy(left.children, degree, right.children, 0, degree);
+			for (int j = 0; j < degree; j++)
+				right.size += right.children[j].size;
+			Arrays.fill(left.children, degree, 2 * degree, null);
+		}
+		T median = left.keys[degree - 1];
+		Arrays.fill(left.keys, degree - 1, maxKeys, null);
+		left.count = degree - 1;
+		left.size -= right.size + 1;
+		System.arraycopy(parent.keys, i, parent.keys, i + 1, parent.count - i);
+		System.arraycopy(parent.children, i + 1, parent.children, i + 2, parent.count - i);
+		parent.keys[i] = median;
+		parent.children[i + 1] = right;
+		parent.count++;
+	}
+
+	@Override
+	public ITree<T> delete(T key) {
+		if (!contains(key))
+			return this;
+		delete(root, key);
+		if (root.count == 0) // the only way the tree shrinks
+			root = root.leaf() ? null : root.children[0];
+		return this;
+	}
+
+	/*
+	 * delete a key that is in the sub-tree. Every child is made to hold at least
+	 * degree keys before descending into it, so it can lose a key without going
+	 * under the minimum.
+	 */
+	private void delete(Node<T> node, T key) {
+		while (true) {
+			node.size--;
+			int i = indexOf(node, key);
+			if (i >= 0 && node.leaf()) {
+				System.arraycopy(node.keys, i + 1, node.keys, i, node.count - i - 1);
+				node.keys[--node.count] = null;
+				return;
+			}
+			if (i >= 0) { // replace the key by its predecessor or successor, or merge the children around it
+				Node<T> before = node.children[i], after = node.children[i + 1];
+				if (before.count >= degree) {
+					key = max(before);
+					node.keys[i] = key;
+					node = before;
+				} else if (after.count >= degree) {
+					key = min(after);
+					node.keys[i] = key;
+					node = after;
+				} else {
+					merge(node, i);
+					node = before;
+				}
+				continue;
+			}
+			i = -i - 1;
+			if (node.children[i].count < degree)
+				i = fill(node, i);
+			node = node.children[i];
+		}
+	}
+
+	/*
+	 * make the i-th child hold at least degree keys, by borrowing a key from a
+	 * sibling or merging with it, and return the index of the child that now holds
+	 * its keys
+	 */
+	private int fill(Node<T> node, int i) {
+		if (i > 0 && node.children[i - 1].count >= degree)
+			borrowFromLeft(node, i);
+		else if (i < node.count && node.children[i + 1].count >= degree)
+			borrowFromRight(node, i);
+		else if (i < node.count)
+			merge(node, i);
+		else
+			merge(node, --i);
+		return i;
+	}
+
+	private void borrowFromLeft(Node<T> node, int i) {
+		Node<T> child = node.children[i], sibling = node.children[i - 1];
+		System.arraycopy(child.keys, 0, child.keys, 1, child.count);
+		child.keys[0] = node.keys[i - 1];
+		node.keys[i - 1] = sibling.keys[sibling.count - 1];
+		sibling.keys[sibling.count - 1] = null;
+		int moved = 1;
+		if (!child.leaf()) {
+			System.arraycopy(child.children, 0, child.children, 1, child.count + 1);
+			child.children[0] = sibling.children[sibling.count];
+			sibling.children[sibling.count] = null;
+			moved += child.children[0].size;
+		}
+		child.count++;
+		sibling.count--;
+		child.size += moved;
+		sibling.size -= moved;
+	}
+
+	private void borrowFromRight(Node<T> node, int i) {
+		Node<T> child = node.children[i], sibling = node.children[i + 1];
+		child.keys[child.count] = node.keys[i];
+		node.keys[i] = sibling.keys[0];
+		System.arraycopy(sibling.keys, 1, sibling.keys, 0, sibling.count - 1);
+		sibling.keys[sibling.count - 1] = null;
+		int moved = 1;
+		if (!child.leaf()) {
+			child.children[child.count + 1] = sibling.children[0];
+			System.arraycopy(sibling.children, 1, sibling.children, 0, sibling.count);
+			sibling.children[sibling.count] = null;
+			moved += child.children[child.count + 1].size;
+		}
+		child.count++;
+		sibling.count--;
+		child.size += moved;
+		sibling.size -= moved;
+	}
+
+	/*
+	 * merge the (i+1)-th child and the i-th key into the i-th child
+	 */
+	private void merge(Node<T> node, int i) {
+		Node<T> child = node.children[i], sibling = node.children[i + 1];
+		child.keys[child.count] = node.keys[i];
+		System.arraycopy(sibling.keys, 0, child.keys, child.count + 1, sibling.count);
+		if (!child.leaf())
+			System.arraycopy(sibling.children, 0, child.children, child.count + 1, sibling.count + 1);
+		child.count += sibling.count + 1;
+		child.size += sibling.size + 1;
+		System.arraycopy(node.keys, i + 1, node.keys, i, node.count - i - 1);
+		System.arraycopy(node.children, i + 2, node.children, i + 1, node.count - i - 1);
+		node.count--;
+		node.keys[node.count] = null;
+		node.children[node.count + 1] = null;
+	}
+
+	@Override
+	public ITree<T> bulkLoad(T[] keys) {
+		T[] sorted = SortedKeys.sortedDistinct(keys, false);
+		root = null;
+		if (sorted.length == 0)
+			return this;
+		/* the lowest height whose full tree can hold all the keys */
+		int height = 1;
+		for (long capacity = maxKeys; capacity < sorted.length; capacity = capacity * (maxKeys + 1) + maxKeys)
+			height++;
+		root = build(sorted, 0, sorted.length, height);
+		return this;
+	}
+
+	/*
+	 * build a sub-tree of the given height over the keys from (inclusive) to
+	 * (exclusive), with as few children per node as possible and the keys spread
+	 * evenly among them, so every node is at least half full
+	 */
+	private Node<T> build(T[] sorted, int from, int to, int height) {
+		int n = to - from;
+		Node<T> node = new Node<>(degree, height == 1);
+		node.size = n;
+		if (height == 1) {
+			System.arraycopy(sorted, from, node.keys, 0, n);
+			node.count = n;
+			return node;
+		}
+		long below = 1; // the capacity of a child plus one
+		for (int h = 1; h < height; h++)
+			below *= maxKeys + 1;
+		int children = (int) ((n + below) / below); // ceil((n + 1) / below)
+		children = Math.max(2, children);
+		int keys = n - (children - 1); // the keys held by the children
+		for (int c = 0; c < children; c++) {
+			int share = keys / children + (c < keys % children ? 1 : 0);
+			node.children[c] = build(sorted, from, from + share, height - 1);
+			from += share;
+			if (c < children - 1)
+				node.keys[node.count++] = sorted[from++];
+		}
+		return node;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public ITree<T> insertAll(Collection<? extends T> keys) {
+		T[] added = SortedKeys.sortedDistinct(keys.toArray((T[]) Array.newInstance(clazz, 0)), true);
+		int size = size();
+		if (size == 0)
+			return bulkLoad(added);
+		if (SortedKeys.insertOneByOne(size, added.length)) {
+			for (T key : added)
+				insert(key);
+			return this;
+		}
+		// the merged keys are sorted and distinct, so the bulk load only checks them
+		return bulkLoad(SortedKeys.merge(inOrder(), added));
+	}
+
+	@SuppressWarnings("unchecked")
+	private T[] toArray(Spliterator<T> spliterator, int size) {
+		T[] arr = (T[]) Array.newInstance(clazz, size);
+		int[] i = { 0 };
+		spliterator.forEachRemaining(key -> arr[i[0]++] = key);
+		return arr;
+	}
+
+	@Override
+	public T[] inOrder() {
+		return toArray(spliterator(TraversalOrder.IN_ORDER), size());
+	}
+
+	/**
+	 * @return the keys of the sub-tree of the B-tree node that holds the key of the
+	 *         given node, in order
+	 */
+	@Override
+	public T[] inOrder(ITreeNode<T> node) {
+		Node<T> start = locate(node);
+		return toArray(new InOrderSpliterator(start), size(start));
+	}
+
+	@Override
+	public T[] preOrder() {
+		return toArray(spliterator(TraversalOrder.PRE_ORDER), size());
+	}
+
+	@Override
+	public T[] postOrder() {
+		return toArray(spliterator(TraversalOrder.POST_ORDER), size());
+	}
+
+	@Override
+	public T[] levelOrder() {
+		return toArray(spliterator(TraversalOrder.LEVEL_ORDER), size());
+	}
+
+	@Override
+	public Spliterator<T> spliterator(TraversalOrder order) {
+		switch (order) {
+		case IN_ORDER:
+			return new InOrderSpliterator(root);
+		case POST_ORDER:
+			return new PostOrderSpliterator(root);
+		default:
+			return new NodeOrderSpliterator(root, order == TraversalOrder.LEVEL_ORDER);
+		}
+	}
+
+	private T min(Node<T> node) {
+		while (!node.leaf())
+			node = node.children[0];
+		return node.keys[0];
+	}
+
+	private T max(Node<T> node) {
+		while (!node.leaf())
+			node = node.children[node.count];
+		return node.keys[node.count - 1];
+	}
+
+	@Override
+	public T min() {
+		return root == null ? null : min(root);
+	}
+
+	@Override
+	public T max() {
+		return root == null ? null : max(root);
+	}
+
+	/*
+	 * walk down a single path and remember the last key on the wanted side of the
+	 * given key, see AbstractBinaryTree
+	 */
+	private T seek(T key, boolean below, boolean inclusive) {
+		T found = null;
+		Node<T> node = root;
+		while (node != null) {
+			int i = indexOf(node, key);
+			if (i >= 0 && inclusive)
+				return key;
+			int next; // the child to descend into
+			if (i >= 0) {
+				if (below && i > 0)
+					found = node.keys[i - 1];
+				else if (!below && i + 1 < node.count)
+					found = node.keys[i + 1];
+				next = below ? i : i + 1;
+			} else {
+				next = -i - 1;
+				if (below && next > 0)
+					found = node.keys[next - 1];
+				else if (!below && next < node.count)
+					found = node.keys[next];
+			}
+			node = node.leaf() ? null : node.children[next];
+		}
+		return found;
+	}
+
+	@Override
+	public T floor(T key) {
+		return seek(key, true, true);
+	}
+
+	@Override
+	public T ceiling(T key) {
+		return seek(key, false, true);
+	}
+
+	@Override
+	public T higher(T key) {
+		return seek(key, false, false);
+	}
+
+	@Override
+	public T lower(T key) {
+		return seek(key, true, false);
+	}
+
+	@Override
+	public void rangeScan(T lo, T hi, Consumer<? super T> consumer) {
+		if (root != null && lo.compareTo(hi) <= 0)
+			rangeScan(root, lo, hi, consumer);
+	}
+
+	/*
+	 * visits only the keys and children of a node that may be in the range, and
+	 * returns false once a key above the range was found
+	 */
+	private boolean rangeScan(Node<T> node, T lo, T hi, Consumer<? super T> consumer) {
+		int i = indexOf(node, lo);
+		i = i >= 0 ? i : -i - 1;
+		for (; i < node.count; i++) {
+			if (!node.leaf() && !rangeScan(node.children[i], lo, hi, consumer))
+				return false;
+			T key = node.keys[i];
+			if (key.compareTo(hi) > 0)
+				return false;
+			consumer.accept(key);
+		}
+		return node.leaf() || rangeScan(node.children[node.count], lo, hi, consumer);
+	}
+
+	/**
+	 * @return the node of the next key in order after the key of the given node, or
+	 *         null if there is none
+	 */
+	@Override
+	public ITreeNode<T> inOrderSuccessor(ITreeNode<T> node) {
+		T next = node == null ? null : higher(node.key());
+		return next == null ? null : new TreeNode<>(next);
+	}
+
+	/**
+	 * @return the number of levels of B-tree nodes
+	 */
+	@Override
+	public int height() {
+		int height = 0;
+		for (Node<T> node = root; node != null; node = node.leaf() ? null : node.children[0])
+			height++;
+		return height;
+	}
+
+	@Override
+	public int size() {
+		return size(root);
+	}
+
+	@Override
+	public int rank(T key) {
+		int rank = 0;
+		Node<T> node = root;
+		while (node != null) {
+			int i = indexOf(node, key);
+			int less = i >= 0 ? i : -i - 1; // the keys of this node that are smaller
+			rank += less;
+			if (!node.leaf())
+				for (int c = 0; c < less; c++)
+					rank += node.children[c].size;
+			if (i >= 0)
+				return rank + (node.leaf() ? 0 : node.children[i].size);
+			node = node.leaf() ? null : node.children[less];
+		}
+		return rank;
+	}
+
+	@Override
+	public T select(int index) {
+		if (index < 0 || index >= size())
+			return null;
+		Node<T> node = root;
+		while (true) {
+			for (int i = 0;; i++) {
+				int left = node.leaf() ? 0 : node.children[i].size;
+				if (index < left) {
+					node = node.children[i];
+					break;
+				}
+				index -= left;
+				if (index == 0)
+					return node.keys[i];
+				index--;
+			}
+		}
+	}
+
+	@Override
+	public int countRange(T lo, T hi) {
+		if (lo.compareTo(hi) > 0)
+			return 0;
+		return rank(hi) - rank(lo) + (contains(hi) ? 1 : 0);
+	}
+
+	/**
+	 * @return a detached node with the key, or null if the key is not in the tree
+	 */
+	@Override
+	public ITreeNode<T> search(T key) {
+		return key != null && contains(key) ? new TreeNode<>(key) : null;
+	}
+
+	/**
+	 * @return a detached node with the smallest key of the root node, or null if
+	 *         the tree is empty
+	 */
+	@Override
+	public ITreeNode<T> root() {
+		return root == null ? null : new TreeNode<>(root.keys[0]);
+	}
+
+	/**
+	 * all the leaves are at the same level, so the last key in level order is the
+	 * maximum
+	 */
+	@Override
+	public ITreeNode<T> last() {
+		return root == null ? null : new TreeNode<>(max(root));
+	}
+
+	/**
+	 * prints every node on a line of its own, indented by its depth, with the
+	 * first child on top
+	 */
+	@Override
+	public void print() {
+		System.out.printf("%n");
+		try {
+			render(System.out, PRINT_OPTIONS);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		System.out.printf("%n");
+	}
+
+	/**
+	 * renders every node on a line of its own (or as a DOT record), in pre order
+	 * with an explicit stack. The height of a node is the same for all the nodes of
+	 * its level, so it is counted down from the height of the tree.
+	 */
+	@Override
+	public void render(Appendable out, RenderOptions options) throws IOException {
+		boolean dot = options.format() == RenderOptions.Format.DOT;
+		String newline = System.lineSeparator();
+		StringBuilder chunk = new StringBuilder();
+		if (dot)
+			chunk.append("digraph tree {").append(newline).append("  node [shape=record];").append(newline);
+		else if (root == null)
+			chunk.append("null").append(newline);
+		Deque<Node<T>> nodes = new ArrayDeque<>();
+		Deque<Integer> depths = new ArrayDeque<>(), ids = new ArrayDeque<>();
+		if (root != null) {
+			nodes.push(root);
+			depths.push(0);
+			ids.push(0);
+		}
+		int height = height(), next = 1;
+		while (!nodes.isEmpty()) {
+			Node<T> node = nodes.pop();
+			int depth = depths.pop(), id = ids.pop();
+			if (dot) {
+				chunk.append("  n").append(id).append(" [label=\"");
+				for (int i = 0; i < node.count; i++) {
+					if (i > 0)
+						chunk.append('|');
+					for (char c : String.valueOf(node.keys[i]).toCharArray()) {
+						if ("\"\\{}|<> ".indexOf(c) >= 0)
+							chunk.append('\\');
+						chunk.append(c);
+					}
+				}
+				if (options.heights())
+					chunk.append("|h=").append(height - depth);
+				chunk.append("\"];").append(newline);
+			} else {
+				for (int i = depth * options.indent(); i > 0; i--)
+					chunk.append(' ');
+				chunk.append(Arrays.toString(Arrays.copyOf(node.keys, node.count)));
+				if (options.heights())
+					chunk.append(':').append(height - depth);
+				chunk.append(newline);
+			}
+			if (!node.leaf())
+				for (int i = node.count; i >= 0; i--) {
+					int child = next + i;
+					if (dot)
+						chunk.append("  n").append(id).append(" -> n").append(child).append(';').append(newline);
+					nodes.push(node.children[i]);
+					depths.push(depth + 1);
+					ids.push(child);
+				}
+			if (!node.leaf())
+				next += node.count + 1;
+			if (chunk.length() >= 1 << 13) {
+				out.append(chunk);
+				chunk.setLength(0);
+			}
+		}
+		if (dot)
+			chunk.append('}').append(newline);
+		out.append(chunk);
+	}
+
+	/**
+	 * @return true if every node holds the maximal number of keys
+	 */
+	@Override
+	public boolean isFull() {
+		return isFull(root);
+	}
+
+	private boolean isFull(Node<T> node) {
+		if (node == null)
+			return true;
+		if (node.count < maxKeys)
+			return false;
+		if (!node.leaf())
+			for (int i = 0; i <= node.count; i++)
+				if (!isFull(node.children[i]))
+					return false;
+		return true;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return root == null;
+	}
+
+	/*
+	 * the B-tree node below the given node where the search paths of the two keys
+	 * part, or where one of them is found
+	 */
+	private Node<T> lowestCommonAncestor(Node<T> node, T key1, T key2) {
+		while (node != null) {
+			int i1 = indexOf(node, key1), i2 = indexOf(node, key2);
+			if (i1 >= 0 || i2 >= 0 || i1 != i2 || node.leaf())
+				return node;
+			node = node.children[-i1 - 1];
+		}
+		return null;
+	}
+
+	/**
+	 * @return a detached node with the key of the common B-tree node that separates
+	 *         the two keys (or is one of them), or null if there is none
+	 */
+	@Override
+	public ITreeNode<T> lowestCommonAncestor(ITreeNode<T> root, T key1, T key2) {
+		Node<T> node = lowestCommonAncestor(locate(root), key1, key2);
+		if (node == null)
+			return null;
+		int i1 = indexOf(node, key1), i2 = indexOf(node, key2);
+		if (i1 >= 0 || i2 >= 0)
+			return new TreeNode<>(node.keys[i1 >= 0 ? i1 : i2]);
+		int i = Math.min(-i1 - 1, -i2 - 1);
+		return i < node.count ? new TreeNode<>(node.keys[i]) : null;
+	}
+
+	/*
+	 * the number of B-tree edges from the node down to the node with the key, or -1
+	 */
+	private int depth(Node<T> node, T key) {
+		for (int depth = 0; node != null; depth++) {
+			int i = indexOf(node, key);
+			if (i >= 0)
+				return depth;
+			node = node.leaf() ? null : node.children[-i - 1];
+		}
+		return -1;
+	}
+
+	@Override
+	public int level(ITreeNode<T> root, T key, int level) {
+		int depth = depth(locate(root), key);
+		return depth < 0 ? -1 : depth + level;
+	}
+
+	/**
+	 * @return the number of B-tree edges between the nodes of the two keys
+	 */
+	@Override
+	public int distance(ITreeNode<T> root, T key1, T key2) {
+		Node<T> lca = lowestCommonAncestor(locate(root), key1, key2);
+		return depth(lca, key1) + depth(lca, key2);
+	}
+
+	@Override
+	public String toString() {
+		return "BTree " + Arrays.toString(inOrder());
+	}
+
+	/**
+	 * The class InOrderSpliterator walks the keys of a sub-tree in order, with a
+	 * stack of the nodes on the current path and the index of the next key in each
+	 */
+	private class InOrderSpliterator extends Spliterators.AbstractSpliterator<T> {
+
+		private final Deque<Node<T>> nodes = new ArrayDeque<>();
+		private final Deque<Integer> indexes = new ArrayDeque<>();
+
+		InOrderSpliterator(Node<T> root) {
+			super(size(root), ORDERED | SORTED | DISTINCT | NONNULL | SIZED);
+			descend(root);
+		}
+
+		private void descend(Node<T> node) {
+			for (; node != null; node = node.leaf() ? null : node.children[0]) {
+				nodes.push(node);
+				indexes.push(0);
+			}
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			Node<T> node = nodes.peek();
+			if (node == null)
+				return false;
+			int i = indexes.pop();
+			if (i + 1 < node.count)
+				indexes.push(i + 1);
+			else
+				nodes.pop();
+			if (!node.leaf())
+				descend(node.children[i + 1]);
+			action.accept(node.keys[i]);
+			return true;
+		}
+
+		@Override
+		public Comparator<? super T> getComparator() {
+			return null;
+		}
+	}
+
+	/**
+	 * The class NodeOrderSpliterator walks the nodes in pre order (with a stack)
+	 * or level order (with a queue), and the keys of every node in order
+	 */
+	private class NodeOrderSpliterator extends Spliterators.AbstractSpliterator<T> {
+
+		private final Deque<Node<T>> pending = new ArrayDeque<>();
+		private final boolean levelOrder;
+		private Node<T> node;
+		private int index;
+
+		NodeOrderSpliterator(Node<T> root, boolean levelOrder) {
+			super(size(root), ORDERED | DISTINCT | NONNULL | SIZED);
+			this.levelOrder = levelOrder;
+			if (root != null)
+				pending.add(root);
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			if (node == null || index == node.count) {
+				node = pending.pollFirst();
+				if (node == null)
+					return false;
+				index = 0;
+				if (!node.leaf()) {
+					if (levelOrder)
+						for (int i = 0; i <= node.count; i++)
+							pending.addLast(node.children[i]);
+					else
+						for (int i = node.count; i >= 0; i--)
+							pending.addFirst(node.children[i]);
+				}
+			}
+			action.accept(node.keys[index++]);
+			return true;
+		}
+	}
+
+	/**
+	 * The class PostOrderSpliterator walks the nodes in post order, and the keys
+	 * of every node in order. A node is pushed once to be expanded and again,
+	 * under its children, to have its keys visited.
+	 */
+	private class PostOrderSpliterator extends Spliterators.AbstractSpliterator<T> {
+
+		private final Deque<Node<T>> pending = new ArrayDeque<>();
+		private final Deque<Boolean> expanded = new ArrayDeque<>();
+		private Node<T> node;
+		private int index;
+
+		PostOrderSpliterator(Node<T> root) {
+			super(size(root), ORDERED | DISTINCT | NONNULL | SIZED);
+			if (root != null) {
+				pending.push(root);
+				expanded.push(false);
+			}
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			while (node == null || index == node.count) {
+				Node<T> next = pending.poll();
+				if (next == null)
+					return false;
+				if (expanded.pop() || next.leaf()) {
+					node = next;
+					index = 0;
+				} else {
+					pending.push(next);
+					expanded.push(true);
+					for (int i = next.count; i >= 0; i--) {
+						pending.push(next.children[i]);
+						expanded.push(false);
+					}
+				}
+			}
+			action.accept(node.keys[index++]);
+			return true;
+		}
+	}
+
+	public static void main(String[] args) {
+		BTree<Integer> tree = new BTree<>(Integer.class, 2);
+		for (int i = 1; i <= 20; i++)
+			tree.insert(i);
+		tree.print();
+		System.out.printf("in order    %s%n", Arrays.toString(tree.inOrder()));
+		System.out.printf("pre order   %s%n", Arrays.toString(tree.preOrder()));
+		System.out.printf("post order  %s%n", Arrays.toString(tree.postOrder()));
+		System.out.printf("level order %s%n", Arrays.toString(tree.levelOrder()));
+		System.out.printf("rank(10)=%d select(9)=%d floor(0)=%s higher(20)=%s%n", tree.rank(10), tree.select(9), tree.floor(0), tree.higher(20));
+		for (int i = 1; i <= 20; i += 2)
+			tree.delete(i);
+		tree.print();
+	}
+}
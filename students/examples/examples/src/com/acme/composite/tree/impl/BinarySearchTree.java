@@ -29,6 +29,11 @@ import com.acme.composite.tree.api.ITreeNode;
  * The class BinarySearchTree is a BST implementation of
  * {@link AbstractBinaryTree}
  *
+ * The tree is built of {@link AugmentedTreeNode}s which cache the size of their
+ * sub-tree, so the order statistic queries ({@link #rank(Comparable)},
+ * {@link #select(int)} and {@link #countRange(Comparable, Comparable)}) take
+ * O(h) time.
+ *
  * @param <T>
  */
 public class BinarySearchTree<T extends Comparable<T>> extends AbstractBinaryTree<T> {
@@ -41,6 +46,11 @@ public class BinarySearchTree<T extends Comparable<T>> extends AbstractBinaryTre
 		super(clazz);
 	}
 
+	@Override
+	protected ITreeNode<T> createNode(T key) {
+		return new AugmentedTreeNode<>(key);
+	}
+
 	/**
 	 * binary search tree algorithm
 	 */
@@ -92,7 +102,7 @@ public class BinarySearchTree<T extends Comparable<T>> extends AbstractBinaryTre
 	}
 
 	@Override
-	public T min() {
+	protected T min(ITreeNode<T> root) {
 		ITreeNode<T> current = root;
 		/* loop down to find the leftmost leaf */
 		while (current != null && current.left() != null)
@@ -101,7 +111,12 @@ public class BinarySearchTree<T extends Comparable<T>> extends AbstractBinaryTre
 	}
 
 	@Override
-	public T max() {
+	public T min() {
+		return min(root);
+	}
+
+	@Override
+	protected T max(ITreeNode<T> root) {
 		ITreeNode<T> current = root;
 		/* loop down to find the rightmost leaf */
 		while (current != null && current.right() != null)
@@ -109,6 +124,69 @@ public class BinarySearchTree<T extends Comparable<T>> extends AbstractBinaryTre
 		return (current == null ? null : current.key());
 	}
 
+	@Override
+	public T max() {
+		return max(root);
+	}
+
+	/**
+	 * the successor is the leftmost node of the right sub-tree, or if there is no
+	 * right sub-tree, the last node on the path from the root where we turned left
+	 */
+	@Override
+	public ITreeNode<T> inOrderSuccessor(ITreeNode<T> node) {
+		if (node == null)
+			return null;
+		if (node.right() != null)
+			return node.right().inOrderSuccessor();
+		ITreeNode<T> successor = null, current = root;
+		while (current != null) {
+			int cmp = node.key().compareTo(current.key());
+			if (cmp < 0) {
+				successor = current;
+				current = current.left();
+			} else if (cmp > 0)
+				current = current.right();
+			else
+				break;
+		}
+		return successor;
+	}
+
+	/**
+	 * in a BST the lowest common ancestor is the first node on the path from the
+	 * root whose key is between the two keys, so only one path is walked
+	 */
+	@Override
+	public ITreeNode<T> lowestCommonAncestor(ITreeNode<T> root, T key1, T key2) {
+		ITreeNode<T> node = root;
+		while (node != null) {
+			if (key1.compareTo(node.key()) < 0 && key2.compareTo(node.key()) < 0)
+				node = node.left();
+			else if (key1.compareTo(node.key()) > 0 && key2.compareTo(node.key()) > 0)
+				node = node.right();
+			else
+				return node;
+		}
+		return null;
+	}
+
+	/**
+	 * binary search for the key, counting the levels on the way down
+	 */
+	@Override
+	public int level(ITreeNode<T> root, T key, int level) {
+		ITreeNode<T> node = root;
+		while (node != null) {
+			int cmp = key.compareTo(node.key());
+			if (cmp == 0)
+				return level;
+			node = cmp < 0 ? node.left() : node.right();
+			level++;
+		}
+		return -1;
+	}
+
 	/**
 	 * 1. create in order array of the BT
 	 *
@@ -131,14 +209,8 @@ public class BinarySearchTree<T extends Comparable<T>> extends AbstractBinaryTre
 	}
 
 	public static void main(String[] args) {
-		ITree<Integer> bst = new BinarySearchTree<>(Integer.class, 1);
-		bst.root().setLeft(new TreeNode<>(2));
-		bst.root().setRight(new TreeNode<>(3));
-		bst.root().left().setLeft(new TreeNode<>(4));
-		bst.root().left().setRight(new TreeNode<>(5));
-		bst.root().right().setLeft(new TreeNode<>(6));
-		bst.root().right().setRight(new TreeNode<>(7));
-		bst.root().right().left().setRight(new TreeNode<>(8));
+		ITree<Integer> bst = new BinarySearchTree<>(Integer.class, 4);
+		bst.insert(2).insert(6).insert(1).insert(3).insert(5).insert(7).insert(8);
 		bst.print();
 		for (int i = 1; i < 9; i++)
 			System.out.printf("level of key %s: %s%n", i, bst.level(bst.root(), i, 0));
@@ -147,5 +219,12 @@ public class BinarySearchTree<T extends Comparable<T>> extends AbstractBinaryTre
 		System.out.println("Dist(3, 4) = " + bst.distance(bst.root(), 3, 4));
 		System.out.println("Dist(2, 4) = " + bst.distance(bst.root(), 2, 4));
 		System.out.println("Dist(8, 5) = " + bst.distance(bst.root(), 8, 5));
+		System.out.printf("rank(5) = %d, select(4) = %d, 3rd smallest = %d, keys in [2, 6] = %d%n", bst.rank(5), bst.select(4),
+				bst.kthSmallest(3), bst.countRange(2, 6));
+		System.out.printf("floor(0) = %s, ceiling(0) = %s, higher(5) = %s, lower(5) = %s%n", bst.floor(0), bst.ceiling(0), bst.higher(5),
+				bst.lower(5));
+		System.out.print("keys in [3, 7]:");
+		bst.rangeScan(3, 7, key -> System.out.printf(" %s", key));
+		System.out.println();
 	}
 }
@@ -0,0 +1,488 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.impl;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.acme.composite.tree.api.ITree;
+import com.acme.composite.tree.api.ITreeNode;
+import com.acme.composite.tree.api.RenderOptions;
+import com.acme.composite.tree.api.TraversalOrder;
+
+/**
+ * The class ConcurrentAVLTree is a thread safe {@link ITree} that decorates an
+ * {@link AVLTree} with a {@link StampedLock}.
+ *
+ * Writers (insert, delete, bulk loads) hold the write lock, so they are
+ * serialized. Point queries (search, floor, ceiling, higher, lower, min, max,
+ * size and height) first walk the tree without any lock and then validate that
+ * no writer has taken the lock in the meantime. A walk that overlaps a write may
+ * see a node in the middle of a rotation, so it is bounded by the maximal height
+ * of an AVL tree and any failure is treated as a conflict. Only on a conflict is
+ * the query repeated under the read lock, so readers do not contend with each
+ * other on a shared lock word.
+ *
+ * The in order iterator, spliterator and streams are weakly consistent: they
+ * fetch the keys in batches, each under the read lock, and continue after the
+ * last key they returned. They never fail with a concurrent modification, they
+ * return every key that is in the tree for the whole traversal in ascending
+ * order, and may or may not return keys inserted or deleted during it. The other
+ * traversals return a snapshot taken under the read lock.
+ *
+ * Nodes returned by {@link #search(Comparable)} and
+ * {@link #lowestCommonAncestor(ITreeNode, Comparable, Comparable)} are detached
+ * copies that hold the key only. {@link #root()} and the other methods that take
+ * or return nodes of the tree expose its internal structure and should only be
+ * used when no writer is active.
+ *
+ * @param <T> the type of key
+ */
+public class ConcurrentAVLTree<T extends Comparable<T>> implements ITree<T> {
+
+	/**
+	 * an AVL tree of 2^31 nodes is less than 45 levels high, so a longer walk must
+	 * have seen an inconsistent state
+	 */
+	private static final int MAX_DEPTH = 64;
+	private static final int BATCH_SIZE = 256;
+	private static final Object RETRY = new Object();
+
+	private final AVLTree<T> tree;
+	private final StampedLock lock = new StampedLock();
+
+	public ConcurrentAVLTree(Class<T> clazz) {
+		this.tree = new AVLTree<>(clazz);
+	}
+
+	/*
+	 * run an optimistic version of a query, and fall back to the locked version if
+	 * a writer interfered
+	 */
+	@SuppressWarnings("unchecked")
+	private <R> R read(Supplier<Object> optimistic, Supplier<R> locked) {
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0L) {
+			try {
+				Object result = optimistic.get();
+				if (result != RETRY && lock.validate(stamp))
+					return (R) result;
+			} catch (RuntimeException inconsistent) { // a torn read of a node that was being re-linked
+			}
+		}
+		return readLocked(locked);
+	}
+
+	private <R> R readLocked(Supplier<R> query) {
+		long stamp = lock.readLock();
+		try {
+			return query.get();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	private ITree<T> write(Runnable update) {
+		long stamp = lock.writeLock();
+		try {
+			update.run();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		return this;
+	}
+
+	@Override
+	public ITree<T> insert(T key) {
+		return write(() -> tree.insert(key));
+	}
+
+	@Override
+	public ITree<T> bulkLoad(T[] keys) {
+		return write(() -> tree.bulkLoad(keys));
+	}
+
+	@Override
+	public ITree<T> insertAll(Collection<? extends T> keys) {
+		return write(() -> tree.insertAll(keys));
+	}
+
+	@Override
+	public ITree<T> delete(T key) {
+		return write(() -> tree.delete(key));
+	}
+
+	/*
+	 * a bounded walk down the search path of the key. With below set it looks for
+	 * the greatest key under the given key (floor, lower), otherwise for the
+	 * smallest key above it (ceiling, higher). With inclusive set an equal key is
+	 * returned as is.
+	 */
+	private Object seek(T key, boolean below, boolean inclusive) {
+		T found = null;
+		ITreeNode<T> node = tree.root();
+		for (int depth = 0; node != null; depth++) {
+			if (depth == MAX_DEPTH)
+				return RETRY;
+			T nodeKey = node.key();
+			int cmp = key.compareTo(nodeKey);
+			if (cmp == 0 && inclusive)
+				return nodeKey;
+			if (below ? cmp > 0 : cmp < 0) {
+				found = nodeKey;
+				node = below ? node.right() : node.left();
+			} else
+				node = below ? node.left() : node.right();
+		}
+		return found;
+	}
+
+	private Object edge(boolean leftmost) {
+		ITreeNode<T> node = tree.root();
+		if (node == null)
+			return null;
+		for (int depth = 0;; depth++) {
+			if (depth == MAX_DEPTH)
+				return RETRY;
+			ITreeNode<T> next = leftmost ? node.left() : node.right();
+			if (next == null)
+				return node.key();
+			node = next;
+		}
+	}
+
+	@Override
+	public ITreeNode<T> search(T key) {
+		T found = read(() -> seek(key, true, true), () -> tree.floor(key));
+		return found == null || found.compareTo(key) != 0 ? null : new TreeNode<>(found);
+	}
+
+	@Override
+	public T floor(T key) {
+		return read(() -> seek(key, true, true), () -> tree.floor(key));
+	}
+
+	@Override
+	public T ceiling(T key) {
+		return read(() -> seek(key, false, true), () -> tree.ceiling(key));
+	}
+
+	@Override
+	public T higher(T key) {
+		return read(() -> seek(key, false, false), () -> tree.higher(key));
+	}
+
+	@Override
+	public T lower(T key) {
+		return read(() -> seek(key, true, false), () -> tree.lower(key));
+	}
+
+	@Override
+	public T min() {
+		return read(() -> edge(true), tree::min);
+	}
+
+	@Override
+	public T max() {
+		return read(() -> edge(false), tree::max);
+	}
+
+	@Override
+	public int height() {
+		return read(tree::height, tree::height);
+	}
+
+	@Override
+	public int size() {
+		return read(tree::size, tree::size);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return read(tree::isEmpty, tree::isEmpty);
+	}
+
+	@Override
+	public int rank(T key) {
+		return readLocked(() -> tree.rank(key));
+	}
+
+	@Override
+	public T select(int index) {
+		return readLocked(() -> tree.select(index));
+	}
+
+	@Override
+	public int countRange(T lo, T hi) {
+		return readLocked(() -> tree.countRange(lo, hi));
+	}
+
+	/**
+	 * the keys are collected under the read lock and passed to the consumer after
+	 * it is released, so a slow consumer does not block the writers. The bounds
+	 * are checked under the same lock as the keys are collected, so a key inserted
+	 * out of the range while the scan runs is never passed.
+	 */
+	@Override
+	public void rangeScan(T lo, T hi, Consumer<? super T> consumer) {
+		RangeSpliterator range = new RangeSpliterator(lo, null, hi, true);
+		range.forEachRemaining(consumer);
+	}
+
+	@Override
+	public T[] inOrder() {
+		return readLocked(() -> tree.inOrder());
+	}
+
+	@Override
+	public T[] inOrder(ITreeNode<T> node) {
+		return readLocked(() -> tree.inOrder(node));
+	}
+
+	@Override
+	public T[] preOrder() {
+		return readLocked(() -> tree.preOrder());
+	}
+
+	@Override
+	public T[] postOrder() {
+		return readLocked(() -> tree.postOrder());
+	}
+
+	@Override
+	public T[] levelOrder() {
+		return readLocked(() -> tree.levelOrder());
+	}
+
+	@Override
+	public Spliterator<T> spliterator(TraversalOrder order) {
+		switch (order) {
+		case IN_ORDER:
+			return new RangeSpliterator(null, null, null, false);
+		case PRE_ORDER:
+			return Spliterators.spliterator(preOrder(), Spliterator.ORDERED | Spliterator.NONNULL);
+		case POST_ORDER:
+			return Spliterators.spliterator(postOrder(), Spliterator.ORDERED | Spliterator.NONNULL);
+		default:
+			return Spliterators.spliterator(levelOrder(), Spliterator.ORDERED | Spliterator.NONNULL);
+		}
+	}
+
+	@Override
+	public ITreeNode<T> inOrderSuccessor(ITreeNode<T> node) {
+		return readLocked(() -> tree.inOrderSuccessor(node));
+	}
+
+	@Override
+	public ITreeNode<T> root() {
+		return tree.root();
+	}
+
+	@Override
+	public ITreeNode<T> last() {
+		return readLocked(tree::last);
+	}
+
+	@Override
+	public void print() {
+		long stamp = lock.readLock();
+		try {
+			tree.print();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public void render(Appendable out, RenderOptions options) throws IOException {
+		long stamp = lock.readLock();
+		try {
+			tree.render(out, options);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public boolean isFull() {
+		return readLocked(tree::isFull);
+	}
+
+	@Override
+	public ITreeNode<T> lowestCommonAncestor(ITreeNode<T> root, T key1, T key2) {
+		ITreeNode<T> lca = readLocked(() -> tree.lowestCommonAncestor(root, key1, key2));
+		return lca == null ? null : new TreeNode<>(lca.key());
+	}
+
+	@Override
+	public int level(ITreeNode<T> root, T key, int level) {
+		return readLocked(() -> tree.level(root, key, level));
+	}
+
+	@Override
+	public int distance(ITreeNode<T> root, T key1, T key2) {
+		return readLocked(() -> tree.distance(root, key1, key2));
+	}
+
+	@Override
+	public String toString() {
+		return "ConcurrentAVLTree " + stream().map(String::valueOf).reduce((a, b) -> a + ", " + b).map(s -> "[" + s + "]").orElse("[]");
+	}
+
+	/**
+	 * The class RangeSpliterator is a weakly consistent in order spliterator over
+	 * the keys from a lower bound, or after the last key returned, and up to an
+	 * upper bound. It fetches the keys in
+	 * batches under the read lock, and splits by handing off the lower half of its
+	 * key range (found by rank and select).
+	 */
+	private class RangeSpliterator implements Spliterator<T> {
+
+		private final T from; // inclusive lower bound until a key is returned, or null for none
+		private T after; // exclusive lower bound, or null for none
+		private final T fence; // upper bound, or null for none
+		private final boolean inclusive; // whether the upper bound is inclusive
+		private final Object[] batch = new Object[BATCH_SIZE];
+		private int index, count;
+		private boolean exhausted;
+
+		RangeSpliterator(T from, T after, T fence, boolean inclusive) {
+			this.from = from;
+			this.after = after;
+			this.fence = fence;
+			this.inclusive = inclusive;
+		}
+
+		private boolean beyondFence(T key) {
+			if (fence == null)
+				return false;
+			int cmp = key.compareTo(fence);
+			return inclusive ? cmp > 0 : cmp >= 0;
+		}
+
+		private boolean belowStart(T key) {
+			if (after != null)
+				return key.compareTo(after) <= 0;
+			return from != null && key.compareTo(from) < 0;
+		}
+
+		/*
+		 * the in order positions of the first and after the last key of the range,
+		 * must be called under the read lock
+		 */
+		private int[] positions() {
+			int first = after != null ? tree.rank(after) + 1 : from != null ? tree.rank(from) : 0;
+			int last = fence == null ? tree.size() : tree.rank(fence) + (inclusive && tree.search(fence) != null ? 1 : 0);
+			return new int[] { first, Math.max(first, last) };
+		}
+
+		/*
+		 * collect the next batch of keys after the last one returned (or from the
+		 * lower bound), by descending to the first key after it and continuing an in
+		 * order walk from there
+		 */
+		private void fill() {
+			long stamp = lock.readLock();
+			try {
+				Deque<ITreeNode<T>> stack = new ArrayDeque<>();
+				ITreeNode<T> node = tree.root();
+				while (node != null) {
+					if (!belowStart(node.key())) {
+						stack.push(node);
+						node = node.left();
+					} else
+						node = node.right();
+				}
+				index = count = 0;
+				while (count < batch.length && !stack.isEmpty()) {
+					node = stack.pop();
+					if (beyondFence(node.key()))
+						break;
+					batch[count++] = node.key();
+					for (node = node.right(); node != null; node = node.left())
+						stack.push(node);
+				}
+			} finally {
+				lock.unlockRead(stamp);
+			}
+			exhausted = count < batch.length;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean tryAdvance(Consumer<? super T> action) {
+			if (index == count) {
+				if (exhausted)
+					return false;
+				fill();
+				if (count == 0)
+					return false;
+			}
+			T key = (T) batch[index];
+			batch[index++] = null;
+			after = key;
+			action.accept(key);
+			return true;
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			if (index < count) // keep the fetched keys in order
+				return null;
+			T middle = readLocked(() -> {
+				int[] positions = positions();
+				return positions[1] - positions[0] < 2 * BATCH_SIZE ? null : tree.select((positions[0] + positions[1]) >>> 1);
+			});
+			if (middle == null)
+				return null;
+			RangeSpliterator prefix = new RangeSpliterator(from, after, middle, true);
+			after = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			if (exhausted)
+				return count - index;
+			return readLocked(() -> {
+				int[] positions = positions();
+				return (long) positions[1] - positions[0];
+			});
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SORTED | DISTINCT | NONNULL | CONCURRENT;
+		}
+
+		@Override
+		public java.util.Comparator<? super T> getComparator() {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.impl;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import com.acme.composite.tree.api.IAugmentedTreeNode;
+import com.acme.composite.tree.api.ITreeNode;
+import com.acme.composite.tree.api.TraversalOrder;
+
+/**
+ * The class DepthFirstSpliterator lazily traverses a tree in
+ * {@link TraversalOrder#IN_ORDER}, {@link TraversalOrder#PRE_ORDER} or
+ * {@link TraversalOrder#POST_ORDER}.
+ *
+ * The remaining work is kept on an explicit stack of tasks, where a task is
+ * either "traverse the sub-tree rooted at this node" or "visit this node only".
+ * The stack holds O(h) tasks and is reused, so advancing does not allocate and
+ * does not recurse.
+ *
+ * Splitting hands the tasks above the bottom-most sub-tree task to the new
+ * spliterator, so splits fall on sub-tree boundaries (e.g. the first split of an
+ * in order traversal yields the left sub-tree and the root, and keeps the right
+ * sub-tree).
+ *
+ * @param <T> the type of key
+ */
+public class DepthFirstSpliterator<T extends Comparable<T>> implements Spliterator<T> {
+
+	private static final int INITIAL_CAPACITY = 32;
+
+	private final TraversalOrder order;
+	private ITreeNode<T>[] nodes; // the task stack, bottom at index 0
+	private boolean[] visit; // true - visit the node only, false - traverse its sub-tree
+	private int top; // the number of tasks
+	private long size; // exact if sized, otherwise an estimate
+	private final boolean sized;
+
+	public DepthFirstSpliterator(ITreeNode<T> root, TraversalOrder order) {
+		this(order, INITIAL_CAPACITY, root instanceof IAugmentedTreeNode || root == null);
+		if (root != null) {
+			push(root, false);
+			this.size = sized ? root.size() : Long.MAX_VALUE;
+		}
+	}
+
+	private DepthFirstSpliterator(TraversalOrder order, int capacity, boolean sized) {
+		if (order == TraversalOrder.LEVEL_ORDER)
+			throw new IllegalArgumentException("level order is not a depth first traversal");
+		this.order = order;
+		this.sized = sized;
+		this.nodes = newArray(capacity);
+		this.visit = new boolean[capacity];
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Comparable<T>> ITreeNode<T>[] newArray(int capacity) {
+		return (ITreeNode<T>[]) new ITreeNode<?>[capacity];
+	}
+
+	private void push(ITreeNode<T> node, boolean visitOnly) {
+		if (node == null)
+			return;
+		if (top == nodes.length) {
+			nodes = Arrays.copyOf(nodes, top * 2);
+			visit = Arrays.copyOf(visit, top * 2);
+		}
+		nodes[top] = node;
+		visit[top++] = visitOnly;
+	}
+
+	/*
+	 * replace a sub-tree task with the tasks for its root and children, pushed in
+	 * reverse order so the first one to run is on top
+	 */
+	private void expand(ITreeNode<T> node) {
+		switch (order) {
+		case IN_ORDER:
+			push(node.right(), false);
+			push(node, true);
+			push(node.left(), false);
+			break;
+		case PRE_ORDER:
+			push(node.right(), false);
+			push(node.left(), false);
+			push(node, true);
+			break;
+		default:
+			push(node, true);
+			push(node.right(), false);
+			push(node.left(), false);
+		}
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+		while (top > 0) {
+			ITreeNode<T> node = nodes[--top];
+			boolean visitOnly = visit[top];
+			nodes[top] = null;
+			if (visitOnly || (node.left() == null && node.right() == null)) {
+				size--;
+				action.accept(node.key());
+				return true;
+			}
+			expand(node);
+		}
+		return false;
+	}
+
+	@Override
+	public Spliterator<T> trySplit() {
+		while (true) {
+			int bottom = 0; // the bottom-most sub-tree task runs last and is kept
+			while (bottom < top && visit[bottom])
+				bottom++;
+			if (bottom == top) // only single nodes left
+				return top < 2 ? null : split(top / 2);
+			if (bottom < top - 1)
+				return split(bottom + 1);
+			ITreeNode<T> node = nodes[--top]; // nothing above it, so split its sub-tree
+			nodes[top] = null;
+			if (node.left() == null && node.right() == null) {
+				push(node, true);
+				return null;
+			}
+			expand(node);
+		}
+	}
+
+	/*
+	 * move the tasks from the given index to the top of the stack (the ones that
+	 * run first) to a new spliterator
+	 */
+	private Spliterator<T> split(int from) {
+		DepthFirstSpliterator<T> prefix = new DepthFirstSpliterator<>(order, Math.max(INITIAL_CAPACITY, top - from), sized);
+		long prefixSize = 0;
+		for (int i = from; i < top; i++) {
+			prefix.push(nodes[i], visit[i]);
+			prefixSize += visit[i] ? 1 : (sized ? nodes[i].size() : 0);
+			nodes[i] = null;
+		}
+		if (!sized) // estimate half
+			prefixSize = size / 2;
+		prefix.size = prefixSize;
+		size -= prefixSize;
+		top = from;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		return size;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | NONNULL | (sized ? SIZED | SUBSIZED : 0);
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.impl;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import com.acme.composite.tree.api.IAugmentedTreeNode;
+import com.acme.composite.tree.api.ITree;
+import com.acme.composite.tree.api.ITreeNode;
+
+/**
+ * The class IterativeBinarySearchTree is a {@link BinarySearchTree} whose
+ * insert, delete, search, size and height algorithms are iterative rather than
+ * recursive.
+ *
+ * An unbalanced BST (e.g. one loaded with sorted keys) is as deep as the number
+ * of keys it holds, so the recursive algorithms overflow the call stack on large
+ * trees. Here the stack use is constant: the path from the root is kept in a
+ * reusable array, which is needed to refresh the cached sizes and heights of the
+ * nodes above a modified node.
+ *
+ * Choose this class over {@link BinarySearchTree} to select the iterative
+ * algorithms.
+ *
+ * @param <T> the type of key
+ */
+public class IterativeBinarySearchTree<T extends Comparable<T>> extends BinarySearchTree<T> {
+
+	private ITreeNode<T>[] path = newPath(32);
+	private int depth;
+
+	public IterativeBinarySearchTree(Class<T> clazz, T key) {
+		super(clazz, key);
+	}
+
+	public IterativeBinarySearchTree(Class<T> clazz) {
+		super(clazz);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Comparable<T>> ITreeNode<T>[] newPath(int capacity) {
+		return (ITreeNode<T>[]) new ITreeNode<?>[capacity];
+	}
+
+	private void push(ITreeNode<T> node) {
+		if (depth == path.length)
+			path = Arrays.copyOf(path, depth * 2);
+		path[depth++] = node;
+	}
+
+	/*
+	 * refresh the cached sizes and heights bottom up, and clear the path
+	 */
+	private void updatePath() {
+		while (depth > 0) {
+			ITreeNode<T> node = path[--depth];
+			path[depth] = null;
+			if (node instanceof IAugmentedTreeNode)
+				((IAugmentedTreeNode<T>) node).update();
+		}
+	}
+
+	@Override
+	public ITree<T> insert(T key) {
+		if (root == null) {
+			root = createNode(key);
+			return this;
+		}
+		ITreeNode<T> node = root;
+		while (true) {
+			int cmp = key.compareTo(node.key());
+			if (cmp == 0) // no duplicates
+				break;
+			push(node);
+			ITreeNode<T> next = cmp < 0 ? node.left() : node.right();
+			if (next == null) {
+				if (cmp < 0)
+					node.setLeft(createNode(key));
+				else
+					node.setRight(createNode(key));
+				break;
+			}
+			node = next;
+		}
+		updatePath();
+		return this;
+	}
+
+	/**
+	 * the iterative version of the 3 cases of the base delete algorithm, where a
+	 * node with two children takes the key of its in order successor, and the
+	 * successor (which has no left child) is unlinked instead
+	 */
+	@Override
+	public ITree<T> delete(T key) {
+		ITreeNode<T> node = root;
+		while (node != null) {
+			int cmp = key.compareTo(node.key());
+			if (cmp == 0)
+				break;
+			push(node);
+			node = cmp < 0 ? node.left() : node.right();
+		}
+		if (node == null) { // not found
+			depth = 0;
+			Arrays.fill(path, null);
+			return this;
+		}
+		ITreeNode<T> target = node, replacement;
+		if (node.left() != null && node.right() != null) {
+			push(node);
+			target = node.right();
+			while (target.left() != null) {
+				push(target);
+				target = target.left();
+			}
+			node.setKey(target.key());
+			replacement = target.right();
+		} else
+			replacement = node.left() != null ? node.left() : node.right();
+		ITreeNode<T> parent = depth == 0 ? null : path[depth - 1];
+		if (parent == null)
+			root = replacement;
+		else if (parent.left() == target)
+			parent.setLeft(replacement);
+		else
+			parent.setRight(replacement);
+		updatePath();
+		return this;
+	}
+
+	@Override
+	public ITreeNode<T> search(T key) {
+		ITreeNode<T> node = root;
+		while (node != null && key != null) {
+			int cmp = key.compareTo(node.key());
+			if (cmp == 0)
+				return node;
+			node = cmp < 0 ? node.left() : node.right();
+		}
+		return null;
+	}
+
+	/**
+	 * nodes created by this tree cache their size. Other (e.g. hand linked) nodes
+	 * are counted with an explicit stack
+	 */
+	@Override
+	protected int size(ITreeNode<T> root) {
+		if (root == null)
+			return 0;
+		if (root instanceof IAugmentedTreeNode)
+			return root.size();
+		int size = 0;
+		Deque<ITreeNode<T>> stack = new ArrayDeque<>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			ITreeNode<T> node = stack.pop();
+			size++;
+			if (node.left() != null)
+				stack.push(node.left());
+			if (node.right() != null)
+				stack.push(node.right());
+		}
+		return size;
+	}
+
+	/**
+	 * nodes created by this tree cache their height. Other (e.g. hand linked) nodes
+	 * are measured by counting levels with a queue
+	 */
+	@Override
+	protected int height(ITreeNode<T> root) {
+		if (root == null)
+			return 0;
+		if (root instanceof IAugmentedTreeNode)
+			return root.height();
+		int height = 0;
+		Deque<ITreeNode<T>> queue = new ArrayDeque<>();
+		queue.add(root);
+		while (!queue.isEmpty()) {
+			height++;
+			for (int i = queue.size(); i > 0; i--) {
+				ITreeNode<T> node = queue.poll();
+				if (node.left() != null)
+					queue.add(node.left());
+				if (node.right() != null)
+					queue.add(node.right());
+			}
+		}
+		return height;
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.impl;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+import com.acme.composite.tree.api.IAugmentedTreeNode;
+import com.acme.composite.tree.api.ITreeNode;
+
+/**
+ * The class LevelOrderSpliterator lazily traverses a tree level by level using a
+ * queue of the nodes of the next level, so each node is visited exactly once.
+ *
+ * A level order traversal can not be split along sub-tree boundaries, so
+ * splitting is left to {@link Spliterators.AbstractSpliterator}, which hands off
+ * batches of keys.
+ *
+ * @param <T> the type of key
+ */
+public class LevelOrderSpliterator<T extends Comparable<T>> extends Spliterators.AbstractSpliterator<T> {
+
+	private final Deque<ITreeNode<T>> queue = new ArrayDeque<>();
+
+	public LevelOrderSpliterator(ITreeNode<T> root) {
+		super(root == null ? 0 : (root instanceof IAugmentedTreeNode ? root.size() : Long.MAX_VALUE),
+				ORDERED | NONNULL | (root == null || root instanceof IAugmentedTreeNode ? SIZED : 0));
+		if (root != null)
+			queue.add(root);
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+		ITreeNode<T> node = queue.poll();
+		if (node == null)
+			return false;
+		if (node.left() != null)
+			queue.add(node.left());
+		if (node.right() != null)
+			queue.add(node.right());
+		action.accept(node.key());
+		return true;
+	}
+}
@@ -0,0 +1,433 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.impl;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.OptionalLong;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+import com.acme.composite.tree.api.ITree;
+import com.acme.composite.tree.api.TraversalOrder;
+
+/**
+ * The class LongAVLTree is an AVL tree of long keys that offers the operations of
+ * {@link ITree} without boxing the keys.
+ *
+ * The keys, children, heights and sub-tree sizes are held in parallel primitive
+ * arrays (see {@link AbstractPrimitiveAVLTree}), which takes 21 bytes per key
+ * instead of an {@link AugmentedTreeNode} and a {@link Long} per key, and
+ * leaves nothing for the garbage collector to trace.
+ *
+ * Queries that may have no answer return an {@link OptionalLong}, and queries on
+ * an empty tree throw a {@link NoSuchElementException}.
+ */
+public class LongAVLTree extends AbstractPrimitiveAVLTree {
+
+	private long[] keys;
+
+	public LongAVLTree() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public LongAVLTree(int capacity) {
+		super(capacity);
+		keys = new long[left.length];
+	}
+
+	@Override
+	protected void resizeKeys(int capacity) {
+		keys = Arrays.copyOf(keys, capacity);
+	}
+
+	@Override
+	protected void appendKey(StringBuilder builder, int node) {
+		builder.append(keys[node]);
+	}
+
+	public LongAVLTree insert(long key) {
+		root = insert(root, key);
+		return this;
+	}
+
+	/*
+	 * the arrays may be replaced while inserting, so the child is assigned only
+	 * after the recursive call returns
+	 */
+	private int insert(int node, long key) {
+		if (node == NIL) {
+			node = allocate();
+			keys[node] = key;
+			return node;
+		}
+		if (key < keys[node]) {
+			int child = insert(left[node], key);
+			left[node] = child;
+		} else if (key > keys[node]) {
+			int child = insert(right[node], key);
+			right[node] = child;
+		} else
+			return node;
+		return rebalance(node);
+	}
+
+	public LongAVLTree delete(long key) {
+		root = delete(root, key);
+		return this;
+	}
+
+	private int delete(int node, long key) {
+		if (node == NIL)
+			return NIL;
+		if (key < keys[node])
+			left[node] = delete(left[node], key);
+		else if (key > keys[node])
+			right[node] = delete(right[node], key);
+		else {
+			if (left[node] == NIL || right[node] == NIL) { // node with only one child or no child
+				int child = left[node] != NIL ? left[node] : right[node];
+				release(node);
+				return child;
+			}
+			int successor = right[node];
+			while (left[successor] != NIL)
+				successor = left[successor];
+			keys[node] = keys[successor];
+			right[node] = delete(right[node], keys[node]);
+		}
+		return rebalance(node);
+	}
+
+	/**
+	 * replace the content of the tree with the given keys in O(n) time if they are
+	 * sorted, otherwise they are sorted first. Duplicate keys are kept once.
+	 *
+	 * @param keys the keys to load
+	 * @return this tree
+	 */
+	public LongAVLTree bulkLoad(long[] keys) {
+		long[] sorted = keys;
+		int n = keys.length;
+		for (int i = 1; i < keys.length; i++) {
+			if (keys[i - 1] >= keys[i]) { // not strictly increasing
+				sorted = keys.clone();
+				if (sorted.length >= SortedKeys.PARALLEL_SORT_THRESHOLD)
+					Arrays.parallelSort(sorted);
+				else
+					Arrays.sort(sorted);
+				n = 1;
+				for (int j = 1; j < sorted.length; j++)
+					if (sorted[j] != sorted[n - 1])
+						sorted[n++] = sorted[j];
+				break;
+			}
+		}
+		buildBalanced(n);
+		System.arraycopy(sorted, 0, this.keys, 1, n);
+		return this;
+	}
+
+	public boolean contains(long key) {
+		int node = root;
+		while (node != NIL) {
+			if (key == keys[node])
+				return true;
+			node = key < keys[node] ? left[node] : right[node];
+		}
+		return false;
+	}
+
+	public long min() {
+		return keys[minNode()];
+	}
+
+	public long max() {
+		return keys[maxNode()];
+	}
+
+	public OptionalLong floor(long key) {
+		int node = root, floor = NIL;
+		while (node != NIL) {
+			if (key == keys[node])
+				return OptionalLong.of(key);
+			if (key < keys[node])
+				node = left[node];
+			else {
+				floor = node;
+				node = right[node];
+			}
+		}
+		return floor == NIL ? OptionalLong.empty() : OptionalLong.of(keys[floor]);
+	}
+
+	public OptionalLong ceiling(long key) {
+		int node = root, ceiling = NIL;
+		while (node != NIL) {
+			if (key == keys[node])
+				return OptionalLong.of(key);
+			if (key > keys[node])
+				node = right[node];
+			else {
+				ceiling = node;
+				node = left[node];
+			}
+		}
+		return ceiling == NIL ? OptionalLong.empty() : OptionalLong.of(keys[ceiling]);
+	}
+
+	public OptionalLong higher(long key) {
+		int node = root, higher = NIL;
+		while (node != NIL) {
+			if (key < keys[node]) {
+				higher = node;
+				node = left[node];
+			} else
+				node = right[node];
+		}
+		return higher == NIL ? OptionalLong.empty() : OptionalLong.of(keys[higher]);
+	}
+
+	public OptionalLong lower(long key) {
+		int node = root, lower = NIL;
+		while (node != NIL) {
+			if (key > keys[node]) {
+				lower = node;
+				node = right[node];
+			} else
+				node = left[node];
+		}
+		return lower == NIL ? OptionalLong.empty() : OptionalLong.of(keys[lower]);
+	}
+
+	/**
+	 * pass the keys k where lo &lt;= k &lt;= hi to a consumer, in order
+	 *
+	 * @param lo       the lower bound (inclusive)
+	 * @param hi       the upper bound (inclusive)
+	 * @param consumer the consumer of the keys
+	 */
+	public void rangeScan(long lo, long hi, LongConsumer consumer) {
+		if (lo > hi)
+			return;
+		int[] stack = new int[height() + 1];
+		int top = 0, node = root;
+		while (node != NIL || top > 0) {
+			while (node != NIL) {
+				if (keys[node] < lo)
+					node = right[node];
+				else {
+					stack[top++] = node;
+					node = left[node];
+				}
+			}
+			if (top == 0)
+				return;
+			node = stack[--top];
+			if (keys[node] > hi)
+				return;
+			consumer.accept(keys[node]);
+			node = right[node];
+		}
+	}
+
+	private int countLess(long key, boolean inclusive) {
+		int count = 0, node = root;
+		while (node != NIL) {
+			if (key < keys[node] || (key == keys[node] && !inclusive))
+				node = left[node];
+			else {
+				count += size[left[node]] + 1;
+				node = right[node];
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @param key the key to rank
+	 * @return the number of keys smaller than the given key
+	 */
+	public int rank(long key) {
+		return countLess(key, false);
+	}
+
+	/**
+	 * @param index the zero based in order position
+	 * @return the key at the given in order position
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public long select(int index) {
+		return keys[selectNode(index)];
+	}
+
+	/**
+	 * @param k the one based order of the key
+	 * @return the k-th smallest key
+	 * @throws IndexOutOfBoundsException if k is out of range
+	 */
+	public long kthSmallest(int k) {
+		return select(k - 1);
+	}
+
+	/**
+	 * @param lo the lower bound (inclusive)
+	 * @param hi the upper bound (inclusive)
+	 * @return the number of keys k where lo &lt;= k &lt;= hi
+	 */
+	public int countRange(long lo, long hi) {
+		return lo > hi ? 0 : countLess(hi, true) - countLess(lo, false);
+	}
+
+	private long[] keys(TraversalOrder order) {
+		int[] nodes = nodes(order);
+		long[] keys = new long[nodes.length];
+		for (int i = 0; i < nodes.length; i++)
+			keys[i] = this.keys[nodes[i]];
+		return keys;
+	}
+
+	public long[] inOrder() {
+		return keys(TraversalOrder.IN_ORDER);
+	}
+
+	public long[] preOrder() {
+		return keys(TraversalOrder.PRE_ORDER);
+	}
+
+	public long[] postOrder() {
+		return keys(TraversalOrder.POST_ORDER);
+	}
+
+	public long[] levelOrder() {
+		return keys(TraversalOrder.LEVEL_ORDER);
+	}
+
+	/**
+	 * @return a lazy iterator over the keys in order
+	 */
+	public PrimitiveIterator.OfLong iterator() {
+		NodeIterator nodes = new NodeIterator();
+		return new PrimitiveIterator.OfLong() {
+
+			@Override
+			public boolean hasNext() {
+				return nodes.hasNext();
+			}
+
+			@Override
+			public long nextLong() {
+				return keys[nodes.nextNode()];
+			}
+		};
+	}
+
+	/**
+	 * @return a sequential stream of the keys in order
+	 */
+	public LongStream stream() {
+		return StreamSupport.longStream(Spliterators.spliterator(iterator(), size(),
+				Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * @param key the key
+	 * @return the level of the key (0 at the root), or -1 if it is not in the tree
+	 */
+	public int level(long key) {
+		int node = root, level = 0;
+		while (node != NIL) {
+			if (key == keys[node])
+				return level;
+			node = key < keys[node] ? left[node] : right[node];
+			level++;
+		}
+		return -1;
+	}
+
+	/**
+	 * the lowest common ancestor of two keys, which are assumed to be in the tree
+	 *
+	 * @param key1 the first key
+	 * @param key2 the second key
+	 * @return the key of the lowest common ancestor
+	 * @throws NoSuchElementException if the tree is empty
+	 */
+	public long lowestCommonAncestor(long key1, long key2) {
+		int node = root;
+		while (node != NIL) {
+			if (key1 < keys[node] && key2 < keys[node])
+				node = left[node];
+			else if (key1 > keys[node] && key2 > keys[node])
+				node = right[node];
+			else
+				return keys[node];
+		}
+		throw new NoSuchElementException("the tree is empty");
+	}
+
+	/**
+	 * @param key1 the first key
+	 * @param key2 the second key
+	 * @return the number of edges between the nodes of the two keys
+	 */
+	public int distance(long key1, long key2) {
+		long lca = lowestCommonAncestor(key1, key2);
+		return level(key1) + level(key2) - 2 * level(lca);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("LongAVLTree [");
+		PrimitiveIterator.OfLong iterator = iterator();
+		while (iterator.hasNext()) {
+			builder.append(iterator.nextLong());
+			if (iterator.hasNext())
+				builder.append(", ");
+		}
+		return builder.append("]").toString();
+	}
+
+	public static void main(String[] args) {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		long before = runtime.totalMemory() - runtime.freeMemory();
+		long start = System.nanoTime();
+		LongAVLTree tree = new LongAVLTree();
+		for (int i = 0; i < size; i++)
+			tree.insert(i * 2L);
+		long time = System.nanoTime() - start;
+		System.gc();
+		long used = runtime.totalMemory() - runtime.freeMemory() - before;
+		System.out.printf("inserted %,d keys in %d ms, height %d, ~%d bytes per key%n", tree.size(), time / 1_000_000, tree.height(),
+				used / tree.size());
+		System.out.printf("rank(1001) = %d, select(500) = %d, floor(1001) = %s, keys in [10, 20] = %d%n", tree.rank(1001), tree.select(500),
+				tree.floor(1001), tree.countRange(10, 20));
+		for (int i = 0; i < size; i += 2)
+			tree.delete(i * 2L);
+		System.out.printf("deleted half of the keys, size %,d, height %d%n", tree.size(), tree.height());
+	}
+}
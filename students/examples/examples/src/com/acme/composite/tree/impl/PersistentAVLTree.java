@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.impl;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.acme.composite.tree.api.ITreeNode;
+
+/**
+ * The class PersistentAVLTree is an immutable AVL tree. The methods that modify
+ * a tree (insert, delete, bulkLoad and insertAll) leave it unchanged and return
+ * a new tree instead.
+ *
+ * A new tree copies only the nodes on the path from the root to the inserted or
+ * deleted key (plus the nodes of at most two rotations per level) and shares
+ * all the other sub-trees with the old tree, so an update allocates O(log n)
+ * {@link PersistentTreeNode}s. Since nothing is ever modified in place, any
+ * version of the tree can be read (and traversed) by any number of threads
+ * while new versions are created. See {@link SnapshotAVLTree} for a mutable
+ * tree that hands out such versions as O(1) snapshots.
+ *
+ * @param <T> the type of key
+ */
+public class PersistentAVLTree<T extends Comparable<T>> extends BinarySearchTree<T> {
+
+	public PersistentAVLTree(Class<T> clazz) {
+		super(clazz);
+	}
+
+	private PersistentAVLTree(Class<T> clazz, ITreeNode<T> root) {
+		this(clazz);
+		this.root = root;
+	}
+
+	@Override
+	protected ITreeNode<T> createNode(T key) {
+		return new PersistentTreeNode<>(key, null, null);
+	}
+
+	private PersistentAVLTree<T> withRoot(ITreeNode<T> root) {
+		return root == this.root ? this : new PersistentAVLTree<>(clazz, root);
+	}
+
+	/*
+	 * create a node over the given sub-trees, whose heights differ by at most 2,
+	 * and rotate it (by creating new nodes, the sub-trees are not touched) if it is
+	 * not balanced
+	 */
+	private ITreeNode<T> balanced(T key, ITreeNode<T> left, ITreeNode<T> right) {
+		int balance = height(left) - height(right);
+		if (balance > 1) {
+			if (height(left.left()) >= height(left.right())) // Left Left Case
+				return new PersistentTreeNode<>(left.key(), left.left(), new PersistentTreeNode<>(key, left.right(), right));
+			ITreeNode<T> middle = left.right(); // Left Right Case
+			return new PersistentTreeNode<>(middle.key(), new PersistentTreeNode<>(left.key(), left.left(), middle.left()),
+					new PersistentTreeNode<>(key, middle.right(), right));
+		}
+		if (balance < -1) {
+			if (height(right.right()) >= height(right.left())) // Right Right Case
+				return new PersistentTreeNode<>(right.key(), new PersistentTreeNode<>(key, left, right.left()), right.right());
+			ITreeNode<T> middle = right.left(); // Right Left Case
+			return new PersistentTreeNode<>(middle.key(), new PersistentTreeNode<>(key, left, middle.left()),
+					new PersistentTreeNode<>(right.key(), middle.right(), right.right()));
+		}
+		return new PersistentTreeNode<>(key, left, right);
+	}
+
+	/*
+	 * returns the same root if the key is already in the tree
+	 */
+	@Override
+	protected ITreeNode<T> insert(ITreeNode<T> root, T key) {
+		if (root == null)
+			return createNode(key);
+		int cmp = key.compareTo(root.key());
+		if (cmp < 0) {
+			ITreeNode<T> left = insert(root.left(), key);
+			return left == root.left() ? root : balanced(root.key(), left, root.right());
+		}
+		if (cmp > 0) {
+			ITreeNode<T> right = insert(root.right(), key);
+			return right == root.right() ? root : balanced(root.key(), root.left(), right);
+		}
+		return root;
+	}
+
+	/*
+	 * returns the same root if the key is not in the tree. A node with two children
+	 * is replaced by a copy that holds its in order successor.
+	 */
+	@Override
+	protected ITreeNode<T> delete(ITreeNode<T> root, T key) {
+		if (root == null)
+			return null;
+		int cmp = key.compareTo(root.key());
+		if (cmp < 0) {
+			ITreeNode<T> left = delete(root.left(), key);
+			return left == root.left() ? root : balanced(root.key(), left, root.right());
+		}
+		if (cmp > 0) {
+			ITreeNode<T> right = delete(root.right(), key);
+			return right == root.right() ? root : balanced(root.key(), root.left(), right);
+		}
+		if (root.left() == null)
+			return root.right();
+		if (root.right() == null)
+			return root.left();
+		T successor = min(root.right());
+		return balanced(successor, root.left(), delete(root.right(), successor));
+	}
+
+	/**
+	 * @throws UnsupportedOperationException always, a persistent tree is immutable
+	 */
+	@Override
+	public void setRoot(ITreeNode<T> root) {
+		throw new UnsupportedOperationException("a persistent tree is immutable");
+	}
+
+	@Override
+	protected ITreeNode<T> build(T[] sorted, int lo, int hi) {
+		if (lo > hi)
+			return null;
+		int mid = (lo + hi) >>> 1;
+		return new PersistentTreeNode<>(sorted[mid], build(sorted, lo, mid - 1), build(sorted, mid + 1, hi));
+	}
+
+	/**
+	 * @return a new tree with the key, or this tree if it already holds the key
+	 */
+	@Override
+	public PersistentAVLTree<T> insert(T key) {
+		return withRoot(insert(root, key));
+	}
+
+	/**
+	 * @return a new tree without the key, or this tree if it does not hold the key
+	 */
+	@Override
+	public PersistentAVLTree<T> delete(T key) {
+		return withRoot(delete(root, key));
+	}
+
+	/**
+	 * @return a new tree that holds the given keys only
+	 */
+	@Override
+	public PersistentAVLTree<T> bulkLoad(T[] keys) {
+		PersistentAVLTree<T> tree = new PersistentAVLTree<>(clazz);
+		tree.load(keys);
+		return tree;
+	}
+
+	/*
+	 * the only place where a tree is modified, before anyone else can see it
+	 */
+	private void load(T[] keys) {
+		super.bulkLoad(keys);
+	}
+
+	/**
+	 * @return a new tree with the keys of this tree and the given keys
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public PersistentAVLTree<T> insertAll(Collection<? extends T> keys) {
+		T[] added = SortedKeys.sortedDistinct(keys.toArray((T[]) Array.newInstance(clazz, 0)), true);
+		int size = size();
+		if (size == 0)
+			return bulkLoad(added);
+		if (SortedKeys.insertOneByOne(size, added.length)) {
+			PersistentAVLTree<T> tree = this;
+			for (T key : added)
+				tree = tree.insert(key);
+			return tree;
+		}
+		// the merged keys are sorted and distinct, so the bulk load only checks them
+		return bulkLoad(SortedKeys.merge(inOrder(), added));
+	}
+
+	@Override
+	public String toString() {
+		return "PersistentAVLTree " + Arrays.toString(inOrder());
+	}
+
+	public static void main(String[] args) {
+		PersistentAVLTree<Integer> v0 = new PersistentAVLTree<>(Integer.class);
+		PersistentAVLTree<Integer> v1 = v0.insert(4).insert(2).insert(6).insert(1).insert(3);
+		PersistentAVLTree<Integer> v2 = v1.insert(5).insert(7);
+		PersistentAVLTree<Integer> v3 = v2.delete(4);
+		System.out.printf("v1 %s%nv2 %s%nv3 %s%n", v1, v2, v3);
+		System.out.printf("v1 and v2 share the left sub-tree: %s%n", v1.root().left() == v2.root().left());
+		v3.print();
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.impl;
+
+import com.acme.composite.tree.api.IAugmentedTreeNode;
+import com.acme.composite.tree.api.ITreeNode;
+
+/**
+ * The class PersistentTreeNode is an immutable {@link TreeNode} that caches the
+ * height and size of the sub-tree rooted at it. Its key and children are set
+ * once by the constructor, so it can be shared by any number of trees (see
+ * {@link PersistentAVLTree}), and the setters throw
+ * {@link UnsupportedOperationException}.
+ *
+ * @param <T> the type of key
+ */
+public class PersistentTreeNode<T extends Comparable<T>> extends TreeNode<T> implements IAugmentedTreeNode<T> {
+
+	private final int height;
+	private final int size;
+
+	public PersistentTreeNode(T key, ITreeNode<T> left, ITreeNode<T> right) {
+		super(key);
+		this.left = left;
+		this.right = right;
+		int lheight = left == null ? 0 : left.height();
+		int rheight = right == null ? 0 : right.height();
+		this.height = Math.max(lheight, rheight) + 1;
+		this.size = (left == null ? 0 : left.size()) + (right == null ? 0 : right.size()) + 1;
+	}
+
+	@Override
+	public void setKey(T key) {
+		throw new UnsupportedOperationException("a persistent tree node is immutable");
+	}
+
+	@Override
+	public void setRight(ITreeNode<T> right) {
+		throw new UnsupportedOperationException("a persistent tree node is immutable");
+	}
+
+	@Override
+	public void setLeft(ITreeNode<T> left) {
+		throw new UnsupportedOperationException("a persistent tree node is immutable");
+	}
+
+	/**
+	 * the children never change, so the cache is always up to date
+	 */
+	@Override
+	public void update() {
+	}
+
+	@Override
+	public int height() {
+		return height;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.impl;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import com.acme.composite.tree.api.ITree;
+import com.acme.composite.tree.api.ITreeNode;
+import com.acme.composite.tree.api.RenderOptions;
+import com.acme.composite.tree.api.TraversalOrder;
+
+/**
+ * The class SnapshotAVLTree is a mutable, thread safe AVL tree that holds its
+ * current version as a {@link PersistentAVLTree}.
+ *
+ * An update creates a new version (allocating O(log n) nodes) and installs it
+ * atomically, so writers never block readers and a concurrent update of the
+ * same version is simply repeated on the newer one. {@link #snapshot()} returns
+ * the current version in O(1) time: a consistent, immutable view that can be
+ * traversed for as long as needed while the tree keeps changing.
+ *
+ * Every read method works on the version that is current when it is called, so
+ * iterators and streams are snapshots as well.
+ *
+ * @param <T> the type of key
+ */
+public class SnapshotAVLTree<T extends Comparable<T>> implements ITree<T> {
+
+	private final AtomicReference<PersistentAVLTree<T>> current;
+
+	public SnapshotAVLTree(Class<T> clazz) {
+		this.current = new AtomicReference<>(new PersistentAVLTree<>(clazz));
+	}
+
+	/**
+	 * A method to obtain the current version of the tree, which no later update
+	 * will change
+	 *
+	 * @return an immutable snapshot of the tree
+	 */
+	public PersistentAVLTree<T> snapshot() {
+		return current.get();
+	}
+
+	private ITree<T> update(UnaryOperator<PersistentAVLTree<T>> update) {
+		current.updateAndGet(update);
+		return this;
+	}
+
+	@Override
+	public ITree<T> insert(T key) {
+		return update(tree -> tree.insert(key));
+	}
+
+	@Override
+	public ITree<T> bulkLoad(T[] keys) {
+		return update(tree -> tree.bulkLoad(keys));
+	}
+
+	@Override
+	public ITree<T> insertAll(Collection<? extends T> keys) {
+		return update(tree -> tree.insertAll(keys));
+	}
+
+	@Override
+	public ITree<T> delete(T key) {
+		return update(tree -> tree.delete(key));
+	}
+
+	@Override
+	public T[] inOrder() {
+		return current.get().inOrder();
+	}
+
+	@Override
+	public T[] inOrder(ITreeNode<T> node) {
+		return current.get().inOrder(node);
+	}
+
+	@Override
+	public T[] preOrder() {
+		return current.get().preOrder();
+	}
+
+	@Override
+	public T[] postOrder() {
+		return current.get().postOrder();
+	}
+
+	@Override
+	public T[] levelOrder() {
+		return current.get().levelOrder();
+	}
+
+	@Override
+	public Spliterator<T> spliterator(TraversalOrder order) {
+		return current.get().spliterator(order);
+	}
+
+	@Override
+	public T min() {
+		return current.get().min();
+	}
+
+	@Override
+	public T max() {
+		return current.get().max();
+	}
+
+	@Override
+	public T floor(T key) {
+		return current.get().floor(key);
+	}
+
+	@Override
+	public T ceiling(T key) {
+		return current.get().ceiling(key);
+	}
+
+	@Override
+	public T higher(T key) {
+		return current.get().higher(key);
+	}
+
+	@Override
+	public T lower(T key) {
+		return current.get().lower(key);
+	}
+
+	@Override
+	public void rangeScan(T lo, T hi, Consumer<? super T> consumer) {
+		current.get().rangeScan(lo, hi, consumer);
+	}
+
+	@Override
+	public ITreeNode<T> inOrderSuccessor(ITreeNode<T> node) {
+		return current.get().inOrderSuccessor(node);
+	}
+
+	@Override
+	public int height() {
+		return current.get().height();
+	}
+
+	@Override
+	public int size() {
+		return current.get().size();
+	}
+
+	@Override
+	public int rank(T key) {
+		return current.get().rank(key);
+	}
+
+	@Override
+	public T select(int index) {
+		return current.get().select(index);
+	}
+
+	@Override
+	public int countRange(T lo, T hi) {
+		return current.get().countRange(lo, hi);
+	}
+
+	@Override
+	public ITreeNode<T> search(T key) {
+		return current.get().search(key);
+	}
+
+	@Override
+	public ITreeNode<T> root() {
+		return current.get().root();
+	}
+
+	@Override
+	public ITreeNode<T> last() {
+		return current.get().last();
+	}
+
+	@Override
+	public void print() {
+		current.get().print();
+	}
+
+	@Override
+	public void render(Appendable out, RenderOptions options) throws IOException {
+		current.get().render(out, options);
+	}
+
+	@Override
+	public boolean isFull() {
+		return current.get().isFull();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return current.get().isEmpty();
+	}
+
+	@Override
+	public ITreeNode<T> lowestCommonAncestor(ITreeNode<T> root, T key1, T key2) {
+		return current.get().lowestCommonAncestor(root, key1, key2);
+	}
+
+	@Override
+	public int level(ITreeNode<T> root, T key, int level) {
+		return current.get().level(root, key, level);
+	}
+
+	@Override
+	public int distance(ITreeNode<T> root, T key1, T key2) {
+		return current.get().distance(root, key1, key2);
+	}
+
+	public static void main(String[] args) {
+		SnapshotAVLTree<Integer> tree = new SnapshotAVLTree<>(Integer.class);
+		for (int i = 1; i <= 10; i++)
+			tree.insert(i);
+		PersistentAVLTree<Integer> snapshot = tree.snapshot();
+		for (int i = 1; i <= 10; i += 2)
+			tree.delete(i);
+		tree.insert(42);
+		System.out.printf("snapshot %s%ntree     %s%n", snapshot, tree.snapshot());
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.impl;
+
+import java.util.Arrays;
+
+/**
+ * The class SortedKeys prepares the keys of the bulk loads of the trees: it
+ * returns them sorted and without duplicates, merges them with the keys of a
+ * tree, and decides when inserting them one by one is cheaper than rebuilding.
+ */
+final class SortedKeys {
+
+	/**
+	 * the number of keys from which bulk loads sort in parallel
+	 */
+	static final int PARALLEL_SORT_THRESHOLD = 1 << 13;
+
+	private SortedKeys() {
+	}
+
+	/**
+	 * returns the keys as a sorted array without duplicates. Already sorted keys
+	 * are returned as is, otherwise they are sorted (in place if allowed)
+	 *
+	 * @param keys    the keys
+	 * @param inPlace whether the given array may be sorted
+	 * @return the keys, sorted and without duplicates
+	 */
+	static <T extends Comparable<T>> T[] sortedDistinct(T[] keys, boolean inPlace) {
+		int i = 1;
+		while (i < keys.length && keys[i - 1].compareTo(keys[i]) < 0)
+			i++;
+		if (i >= keys.length) // strictly increasing
+			return keys;
+		T[] sorted = inPlace ? keys : keys.clone();
+		if (!isSorted(sorted, i)) {
+			if (sorted.length >= PARALLEL_SORT_THRESHOLD)
+				Arrays.parallelSort(sorted);
+			else
+				Arrays.sort(sorted);
+		}
+		int n = 1;
+		for (int j = 1; j < sorted.length; j++)
+			if (sorted[j].compareTo(sorted[n - 1]) != 0)
+				sorted[n++] = sorted[j];
+		return n == sorted.length ? sorted : Arrays.copyOf(sorted, n);
+	}
+
+	/**
+	 * a few keys are cheaper to insert one by one (m log n) than to rebuild the
+	 * tree (n + m)
+	 *
+	 * @param size  the number of keys in the tree
+	 * @param added the number of keys to insert
+	 * @return true if the keys should be inserted one by one
+	 */
+	static boolean insertOneByOne(int size, int added) {
+		return (long) added * (32 - Integer.numberOfLeadingZeros(size)) < (long) size + added;
+	}
+
+	/**
+	 * merges two sorted arrays of distinct keys in O(n + m) time, keeping one of
+	 * equal keys
+	 *
+	 * @param a the first keys
+	 * @param b the second keys
+	 * @return the sorted keys of both, without duplicates
+	 */
+	static <T extends Comparable<T>> T[] merge(T[] a, T[] b) {
+		T[] merged = Arrays.copyOf(a, a.length + b.length);
+		int i = 0, j = 0, n = 0;
+		while (i < a.length && j < b.length) {
+			int cmp = a[i].compareTo(b[j]);
+			merged[n++] = cmp <= 0 ? a[i++] : b[j++];
+			if (cmp == 0) // keep only one of equal keys
+				j++;
+		}
+		while (i < a.length)
+			merged[n++] = a[i++];
+		while (j < b.length)
+			merged[n++] = b[j++];
+		return n == merged.length ? merged : Arrays.copyOf(merged, n);
+	}
+
+	private static <T extends Comparable<T>> boolean isSorted(T[] keys, int from) {
+		for (int i = from; i < keys.length; i++)
+			if (keys[i - 1].compareTo(keys[i]) > 0)
+				return false;
+		return true;
+	}
+}
@@ -20,7 +20,11 @@
  */
 package com.acme.composite.tree.impl;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 import com.acme.composite.tree.api.ITreeNode;
+import com.acme.composite.tree.api.RenderOptions;
 
 /**
  * The class TreeNode is a default implementation of {@link ITreeNode}
@@ -29,6 +33,8 @@ import com.acme.composite.tree.api.ITreeNode;
  */
 public class TreeNode<T extends Comparable<T>> implements ITreeNode<T> {
 
+	private static final RenderOptions PRINT_OPTIONS = RenderOptions.builder().indent(8).branch("----- ").build();
+
 	protected T key;
 	protected ITreeNode<T> left, right;
 
@@ -67,50 +73,31 @@ public class TreeNode<T extends Comparable<T>> implements ITreeNode<T> {
 		this.left = left;
 	}
 
-	private int height(ITreeNode<T> root) {
-		if (root == null)
-			return 0;
-		int lheight = height(root.left());
-		int rheight = height(root.right());
-		return Math.max(lheight, rheight) + 1; // return larger + 1 level for root
+	/*
+	 * delegate to the child node so that children which cache their height (see
+	 * AugmentedTreeNode) are not walked again
+	 */
+	private int height(ITreeNode<T> node) {
+		return node == null ? 0 : node.height();
 	}
 
-	private int size(ITreeNode<T> root) {
-		if (root == null)
-			return 0;
-		return size(root.left()) + size(root.right()) + 1;
+	private int size(ITreeNode<T> node) {
+		return node == null ? 0 : node.size();
 	}
 
 	public int height() {
-		return height(this);
+		return Math.max(height(left), height(right)) + 1; // return larger + 1 level for root
 	}
 
 	public int size() {
-		return size(this);
+		return size(left) + size(right) + 1;
 	}
 
 	public void print() {
-		if (right != null)
-			((TreeNode<T>) right).printTree(true, "");
-		System.out.printf("%s:%s%n", (key == null ? "null" : key.toString()), height());
-		if (left != null)
-			((TreeNode<T>) left).printTree(false, "");
-	}
-
-	private void printTree(boolean isRight, String indent) {
-		if (right != null) {
-			((TreeNode<T>) right).printTree(true, indent + (isRight ? "        " : " |      "));
-		}
-		System.out.print(indent);
-		if (isRight) {
-			System.out.print(" /");
-		} else {
-			System.out.print(" \\");
-		}
-		System.out.print("----- ");
-		System.out.printf("%s:%s%n", (key == null ? "null" : key.toString()), height());
-		if (left != null) {
-			((TreeNode<T>) left).printTree(false, indent + (isRight ? " |      " : "        "));
+		try {
+			TreeRenderer.render(this, System.out, PRINT_OPTIONS);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 	}
 
@@ -118,7 +105,7 @@ public class TreeNode<T extends Comparable<T>> implements ITreeNode<T> {
 	public ITreeNode<T> inOrderSuccessor() {
 		ITreeNode<T> current = this;
 		/* loop down to find the leftmost leaf */
-		while (current != null)
+		while (current.left() != null)
 			current = current.left();
 		return current;
 	}
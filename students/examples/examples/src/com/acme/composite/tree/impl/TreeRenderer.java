@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.impl;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.acme.composite.tree.api.IAugmentedTreeNode;
+import com.acme.composite.tree.api.ITreeNode;
+import com.acme.composite.tree.api.RenderOptions;
+
+/**
+ * The class TreeRenderer renders binary trees for
+ * {@link com.acme.composite.tree.api.ITree#render(Appendable, RenderOptions)}.
+ *
+ * The nodes are visited once with an explicit stack, so a degenerate tree does
+ * not overflow the call stack, and the heights are taken from the node cache
+ * (see {@link IAugmentedTreeNode}) or, for plain nodes, computed once for the
+ * whole tree. The output is collected in chunks of a few KB before it is
+ * written.
+ */
+final class TreeRenderer {
+
+	private static final int CHUNK = 1 << 13;
+	private static final String NEWLINE = System.lineSeparator();
+
+	/* the flags of a text rendering frame */
+	private static final int RIGHT = 1, EMIT = 2, ROOT = 4, BLANK = 8, BAR = 16;
+
+	private final Appendable out;
+	private final StringBuilder chunk = new StringBuilder(CHUNK + 256);
+
+	private TreeRenderer(Appendable out) {
+		this.out = out;
+	}
+
+	static <T extends Comparable<T>> void render(ITreeNode<T> root, Appendable out, RenderOptions options) throws IOException {
+		TreeRenderer renderer = new TreeRenderer(out);
+		Map<ITreeNode<T>, Integer> heights = options.heights() && root != null && !(root instanceof IAugmentedTreeNode) ? heights(root) : null;
+		if (options.format() == RenderOptions.Format.DOT)
+			renderer.dot(root, options, heights);
+		else
+			renderer.text(root, options, heights);
+		renderer.flush();
+	}
+
+	private void flush() throws IOException {
+		out.append(chunk);
+		chunk.setLength(0);
+	}
+
+	private void endLine() throws IOException {
+		chunk.append(NEWLINE);
+		if (chunk.length() >= CHUNK)
+			flush();
+	}
+
+	/*
+	 * the heights of plain nodes, computed bottom up in a single post order pass
+	 */
+	private static <T extends Comparable<T>> Map<ITreeNode<T>, Integer> heights(ITreeNode<T> root) {
+		Map<ITreeNode<T>, Integer> heights = new IdentityHashMap<>();
+		Deque<ITreeNode<T>> stack = new ArrayDeque<>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			ITreeNode<T> node = stack.peek();
+			ITreeNode<T> left = node.left(), right = node.right();
+			if (left != null && !heights.containsKey(left))
+				stack.push(left);
+			else if (right != null && !heights.containsKey(right))
+				stack.push(right);
+			else {
+				stack.pop();
+				heights.put(node, Math.max(left == null ? 0 : heights.get(left), right == null ? 0 : heights.get(right)) + 1);
+			}
+		}
+		return heights;
+	}
+
+	private static <T extends Comparable<T>> int height(ITreeNode<T> node, Map<ITreeNode<T>, Integer> heights) {
+		if (node == null)
+			return 0;
+		return heights == null ? node.height() : heights.get(node);
+	}
+
+	private <T extends Comparable<T>> void label(ITreeNode<T> node, RenderOptions options, Map<ITreeNode<T>, Integer> heights) {
+		T key = node == null ? null : node.key();
+		chunk.append(key == null ? "null" : key.toString());
+		if (options.heights())
+			chunk.append(':').append(height(node, heights));
+	}
+
+	/*
+	 * a reverse in order walk (right, node, left). The indent of every node is the
+	 * indent of its parent plus a blank or a bar segment, kept in a shared builder
+	 * that a frame cuts back to its parent's indent before adding its own segment.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T extends Comparable<T>> void text(ITreeNode<T> root, RenderOptions options, Map<ITreeNode<T>, Integer> heights) throws IOException {
+		if (root == null) {
+			label(root, options, heights);
+			endLine();
+			return;
+		}
+		char[] spaces = new char[options.indent()];
+		Arrays.fill(spaces, ' ');
+		String blank = new String(spaces);
+		String bar = " |" + blank.substring(2);
+		StringBuilder indent = new StringBuilder();
+		ITreeNode<T>[] nodes = (ITreeNode<T>[]) new ITreeNode<?>[64];
+		int[] flags = new int[64], lengths = new int[64];
+		nodes[0] = root;
+		flags[0] = ROOT;
+		int top = 1;
+		while (top > 0) {
+			top--;
+			ITreeNode<T> node = nodes[top];
+			int flag = flags[top], length = lengths[top];
+			nodes[top] = null;
+			indent.setLength(length);
+			if ((flag & EMIT) != 0) {
+				if ((flag & ROOT) == 0)
+					chunk.append(indent).append((flag & RIGHT) != 0 ? " /" : " \\").append(options.branch());
+				label(node, options, heights);
+				endLine();
+				continue;
+			}
+			if ((flag & BLANK) != 0)
+				indent.append(blank);
+			else if ((flag & BAR) != 0)
+				indent.append(bar);
+			length = indent.length();
+			if (top + 3 > nodes.length) {
+				nodes = Arrays.copyOf(nodes, nodes.length * 2);
+				flags = Arrays.copyOf(flags, nodes.length);
+				lengths = Arrays.copyOf(lengths, nodes.length);
+			}
+			boolean right = (flag & RIGHT) != 0, first = (flag & ROOT) != 0;
+			if (node.left() != null) {
+				nodes[top] = node.left();
+				flags[top] = first ? 0 : right ? BAR : BLANK;
+				lengths[top++] = length;
+			}
+			nodes[top] = node;
+			flags[top] = flag | EMIT;
+			lengths[top++] = length;
+			if (node.right() != null) {
+				nodes[top] = node.right();
+				flags[top] = RIGHT | (first ? 0 : right ? BLANK : BAR);
+				lengths[top++] = length;
+			}
+		}
+	}
+
+	private static void quote(StringBuilder chunk, String text) {
+		chunk.append('"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\')
+				chunk.append('\\');
+			chunk.append(c);
+		}
+		chunk.append('"');
+	}
+
+	/*
+	 * a pre order walk that numbers the nodes. A missing child of a node that has
+	 * another child is drawn as an invisible node, so the left and right children
+	 * keep their sides.
+	 */
+	private <T extends Comparable<T>> void dot(ITreeNode<T> root, RenderOptions options, Map<ITreeNode<T>, Integer> heights) throws IOException {
+		chunk.append("digraph tree {").append(NEWLINE);
+		chunk.append("  node [shape=circle];");
+		endLine();
+		Deque<ITreeNode<T>> nodes = new ArrayDeque<>();
+		Deque<Integer> ids = new ArrayDeque<>();
+		if (root != null) {
+			nodes.push(root);
+			ids.push(0);
+		}
+		int next = 1;
+		StringBuilder label = new StringBuilder();
+		while (!nodes.isEmpty()) {
+			ITreeNode<T> node = nodes.pop();
+			int id = ids.pop();
+			label.setLength(0);
+			T key = node.key();
+			label.append(key == null ? "null" : key.toString());
+			if (options.heights())
+				label.append(':').append(height(node, heights));
+			chunk.append("  n").append(id).append(" [label=");
+			quote(chunk, label.toString());
+			chunk.append("];");
+			endLine();
+			ITreeNode<T> left = node.left(), right = node.right();
+			if (left == null && right == null)
+				continue;
+			int leftId = next++, rightId = next++;
+			edge(id, leftId, left == null);
+			edge(id, rightId, right == null);
+			if (right != null) {
+				nodes.push(right);
+				ids.push(rightId);
+			}
+			if (left != null) {
+				nodes.push(left);
+				ids.push(leftId);
+			}
+		}
+		chunk.append('}');
+		endLine();
+	}
+
+	private void edge(int from, int to, boolean invisible) throws IOException {
+		if (invisible) {
+			chunk.append("  n").append(to).append(" [label=\"\", shape=point, style=invis];");
+			endLine();
+		}
+		chunk.append("  n").append(from).append(" -> n").append(to).append(invisible ? " [style=invis];" : ";");
+		endLine();
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The interface KeyCodec defines how the keys of a tree are written to and read
+ * from a binary buffer, so that trees of any {@link Comparable} key can be
+ * persisted. Codecs for {@link Integer}, {@link Long} and {@link String} keys
+ * are provided.
+ *
+ * @param <T> the type of key
+ */
+public interface KeyCodec<T> {
+
+	/**
+	 * A codec for integer keys, written as 4 big endian bytes
+	 */
+	KeyCodec<Integer> INTEGER = new KeyCodec<>() {
+
+		@Override
+		public int length(Integer key) {
+			return Integer.BYTES;
+		}
+
+		@Override
+		public int length(ByteBuffer buffer) {
+			return Integer.BYTES;
+		}
+
+		@Override
+		public void encode(Integer key, ByteBuffer buffer) {
+			buffer.putInt(key);
+		}
+
+		@Override
+		public Integer decode(ByteBuffer buffer, int offset) {
+			return buffer.getInt(offset);
+		}
+	};
+
+	/**
+	 * A codec for long keys, written as 8 big endian bytes
+	 */
+	KeyCodec<Long> LONG = new KeyCodec<>() {
+
+		@Override
+		public int length(Long key) {
+			return Long.BYTES;
+		}
+
+		@Override
+		public int length(ByteBuffer buffer) {
+			return Long.BYTES;
+		}
+
+		@Override
+		public void encode(Long key, ByteBuffer buffer) {
+			buffer.putLong(key);
+		}
+
+		@Override
+		public Long decode(ByteBuffer buffer, int offset) {
+			return buffer.getLong(offset);
+		}
+	};
+
+	/**
+	 * A codec for string keys, written as the number of bytes followed by the UTF-8
+	 * bytes
+	 */
+	KeyCodec<String> STRING = new KeyCodec<>() {
+
+		@Override
+		public int length(String key) {
+			return Integer.BYTES + key.getBytes(StandardCharsets.UTF_8).length;
+		}
+
+		@Override
+		public int length(ByteBuffer buffer) {
+			return buffer.remaining() < Integer.BYTES ? -1 : Integer.BYTES + buffer.getInt(buffer.position());
+		}
+
+		@Override
+		public void encode(String key, ByteBuffer buffer) {
+			byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+			buffer.putInt(bytes.length);
+			buffer.put(bytes);
+		}
+
+		@Override
+		public String decode(ByteBuffer buffer, int offset) {
+			byte[] bytes = new byte[buffer.getInt(offset)];
+			buffer.get(offset + Integer.BYTES, bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+
+	/**
+	 * A method to obtain the number of bytes the key is encoded to
+	 *
+	 * @param key the key
+	 * @return the number of bytes {@link #encode(Object, ByteBuffer)} writes
+	 */
+	int length(T key);
+
+	/**
+	 * A method to obtain the number of bytes of the encoded key at the position of
+	 * the buffer, without changing its position
+	 *
+	 * @param buffer the buffer to read from
+	 * @return the number of bytes of the encoded key, or -1 if the buffer does not
+	 *         hold enough bytes to tell
+	 */
+	int length(ByteBuffer buffer);
+
+	/**
+	 * A method to write the key at the position of the buffer, and advance the
+	 * position past it
+	 *
+	 * @param key    the key to write
+	 * @param buffer the buffer to write to
+	 */
+	void encode(T key, ByteBuffer buffer);
+
+	/**
+	 * A method to read a key at the given offset of the buffer, without changing
+	 * its position
+	 *
+	 * @param buffer the buffer to read from
+	 * @param offset the offset of the encoded key
+	 * @return the key
+	 */
+	T decode(ByteBuffer buffer, int offset);
+
+	/**
+	 * A method to read a key at the position of the buffer, and advance the
+	 * position past it
+	 *
+	 * @param buffer the buffer to read from
+	 * @return the key
+	 */
+	default T decode(ByteBuffer buffer) {
+		int position = buffer.position();
+		buffer.position(position + length(buffer));
+		return decode(buffer, position);
+	}
+}
@@ -0,0 +1,501 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.acme.composite.tree.api.IAugmentedTreeNode;
+import com.acme.composite.tree.api.ITree;
+import com.acme.composite.tree.api.ITreeNode;
+import com.acme.composite.tree.impl.BinarySearchTree;
+
+/**
+ * The class MappedTree is a read mostly binary search tree that is stored in
+ * two files and read through memory mapped buffers, so opening it takes O(1)
+ * time no matter how many keys it holds.
+ *
+ * The keys file (path.keys) holds the encoded keys in ascending order, and the
+ * index file (path.idx) holds a small header (with the number of keys and the
+ * length of the keys) and the offset of every key in the keys file. The tree is the perfectly balanced binary search tree over the
+ * sorted keys (the one {@link ITree#bulkLoad(Comparable[])} builds), whose
+ * nodes are materialized, and their keys decoded, only when they are first
+ * visited. A lookup therefore touches O(log n) nodes and pages of the files.
+ *
+ * Keys greater than the maximum can be appended with {@link #append(Comparable)}
+ * (or {@link #insert(Comparable)}), other modifications are not supported.
+ * Appended keys are written through the mapped buffers, which are mapped again
+ * only when they are full, at twice their size, so the files may be longer than
+ * the keys they hold. A tree that is opened with {@link #openReadOnly(Path,
+ * Class, KeyCodec)} cannot be appended to. The files are limited to 2 GB of
+ * keys.
+ *
+ * @param <T> the type of key
+ */
+public class MappedTree<T extends Comparable<T>> extends BinarySearchTree<T> implements Closeable {
+
+	private static final int MAGIC = 0x4d545245; // MTRE
+	private static final int VERSION = 2;
+	private static final int COUNT = 2 * Integer.BYTES; // the position of the number of keys in the header
+	private static final int END = 3 * Integer.BYTES; // the position of the length of the keys in the header
+	private static final int HEADER = 4 * Integer.BYTES;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final KeyCodec<T> codec;
+	private final FileChannel keysChannel;
+	private final FileChannel indexChannel;
+	private final boolean writable;
+	private MappedByteBuffer keys;
+	private MappedByteBuffer index;
+	private int count; // the number of keys
+	private int end; // the number of bytes in the keys file
+
+	private MappedTree(Class<T> clazz, KeyCodec<T> codec, FileChannel keysChannel, FileChannel indexChannel, boolean writable) throws IOException {
+		super(clazz);
+		this.codec = codec;
+		this.keysChannel = keysChannel;
+		this.indexChannel = indexChannel;
+		this.writable = writable;
+		long indexSize = indexChannel.size();
+		ByteBuffer header = ByteBuffer.allocate(HEADER);
+		if (indexSize < HEADER || indexChannel.read(header, 0) != HEADER || header.getInt(0) != MAGIC || header.getInt(Integer.BYTES) != VERSION)
+			throw new IOException("not a mapped tree index");
+		this.count = header.getInt(COUNT);
+		this.end = header.getInt(END);
+		if (count < 0 || end < 0 || HEADER + (long) count * Integer.BYTES > indexSize || end > keysChannel.size())
+			throw new IOException("the mapped tree index does not match its files");
+		map(keysChannel.size(), indexSize);
+		root = count == 0 ? null : new MappedNode(0, count - 1);
+	}
+
+	private static Path keysPath(Path path) {
+		return path.resolveSibling(path.getFileName() + ".keys");
+	}
+
+	private static Path indexPath(Path path) {
+		return path.resolveSibling(path.getFileName() + ".idx");
+	}
+
+	/**
+	 * A method to write the keys of a tree to the files of a mapped tree,
+	 * replacing them if they exist
+	 *
+	 * @param <T>   the type of key
+	 * @param tree  the tree to write
+	 * @param path  the path of the files, without the .keys and .idx extensions
+	 * @param codec the codec of the keys
+	 * @throws IOException if the files cannot be written
+	 */
+	public static <T extends Comparable<T>> void write(ITree<T> tree, Path path, KeyCodec<T> codec) throws IOException {
+		try (FileChannel keysChannel = FileChannel.open(keysPath(path), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+				FileChannel indexChannel = FileChannel.open(indexPath(path), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+						StandardOpenOption.WRITE)) {
+			ByteBuffer offsets = ByteBuffer.allocate(BUFFER_SIZE);
+			offsets.putInt(MAGIC).putInt(VERSION).putInt(0).putInt(0); // the count and end are written last
+			long end = write(tree, codec, keysChannel, 0, indexChannel, offsets);
+			ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION).putInt(tree.size()).putInt((int) end);
+			header.flip();
+			while (header.hasRemaining())
+				indexChannel.write(header, header.position());
+		}
+	}
+
+	/*
+	 * write the keys from the given offset of the keys file on, and the offsets to
+	 * the end of the index file (after what is already in the offsets buffer)
+	 */
+	private static <T> long write(Iterable<? extends T> keys, KeyCodec<T> codec, FileChannel keysChannel, long end, FileChannel indexChannel, ByteBuffer offsets)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		for (T key : keys) {
+			if (end > Integer.MAX_VALUE)
+				throw new IOException("a mapped tree is limited to 2 GB of keys");
+			int length = codec.length(key);
+			if (buffer.remaining() < length) {
+				flush(buffer, keysChannel);
+				if (buffer.capacity() < length)
+					buffer = ByteBuffer.allocate(length);
+			}
+			if (!offsets.hasRemaining())
+				flush(offsets, indexChannel);
+			offsets.putInt((int) end);
+			codec.encode(key, buffer);
+			end += length;
+		}
+		flush(buffer, keysChannel);
+		flush(offsets, indexChannel);
+		return end;
+	}
+
+	private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer, channel.size());
+		buffer.clear();
+	}
+
+	/**
+	 * A method to open the files of a mapped tree for reading and appending. The
+	 * tree must be closed when no longer needed.
+	 *
+	 * @param <T>   the type of key
+	 * @param path  the path of the files, without the .keys and .idx extensions
+	 * @param clazz the type of key
+	 * @param codec the codec of the keys, which must be the one they were written
+	 *              with
+	 * @return the mapped tree
+	 * @throws IOException if the files cannot be opened or are not a mapped tree
+	 */
+	public static <T extends Comparable<T>> MappedTree<T> open(Path path, Class<T> clazz, KeyCodec<T> codec) throws IOException {
+		return open(path, clazz, codec, true);
+	}
+
+	/**
+	 * A method to open the files of a mapped tree for reading only, so they may be
+	 * on read only storage. The tree must be closed when no longer needed.
+	 *
+	 * @param <T>   the type of key
+	 * @param path  the path of the files, without the .keys and .idx extensions
+	 * @param clazz the type of key
+	 * @param codec the codec of the keys, which must be the one they were written
+	 *              with
+	 * @return the mapped tree, which cannot be appended to
+	 * @throws IOException if the files cannot be opened or are not a mapped tree
+	 */
+	public static <T extends Comparable<T>> MappedTree<T> openReadOnly(Path path, Class<T> clazz, KeyCodec<T> codec) throws IOException {
+		return open(path, clazz, codec, false);
+	}
+
+	private static <T extends Comparable<T>> MappedTree<T> open(Path path, Class<T> clazz, KeyCodec<T> codec, boolean writable) throws IOException {
+		StandardOpenOption[] options = writable ? new StandardOpenOption[] { StandardOpenOption.READ, StandardOpenOption.WRITE }
+				: new StandardOpenOption[] { StandardOpenOption.READ };
+		FileChannel keysChannel = FileChannel.open(keysPath(path), options);
+		try {
+			FileChannel indexChannel = FileChannel.open(indexPath(path), options);
+			try {
+				return new MappedTree<>(clazz, codec, keysChannel, indexChannel, writable);
+			} catch (IOException e) {
+				indexChannel.close();
+				throw e;
+			}
+		} catch (IOException e) {
+			keysChannel.close();
+			throw e;
+		}
+	}
+
+	/*
+	 * map the given lengths of the files. A writable mapping that is longer than
+	 * its file extends the file.
+	 */
+	private void map(long keysLength, long indexLength) throws IOException {
+		MapMode mode = writable ? MapMode.READ_WRITE : MapMode.READ_ONLY;
+		keys = keysChannel.map(mode, 0, keysLength);
+		index = indexChannel.map(mode, 0, indexLength);
+	}
+
+	/*
+	 * map the files again if the mapped buffers cannot hold the given lengths,
+	 * at least doubling their size, so n appends take O(log n) mappings
+	 */
+	private void reserve(long keysLength, long indexLength) throws IOException {
+		if (keysLength > Integer.MAX_VALUE || indexLength > Integer.MAX_VALUE)
+			throw new IOException("a mapped tree is limited to 2 GB of keys");
+		if (keysLength <= keys.capacity() && indexLength <= index.capacity())
+			return;
+		map(grow(keys.capacity(), keysLength), grow(index.capacity(), indexLength));
+	}
+
+	private static long grow(int capacity, long length) {
+		return length <= capacity ? capacity : Math.min(Integer.MAX_VALUE, Math.max(length, Math.max(2L * capacity, BUFFER_SIZE)));
+	}
+
+	private T key(int i) {
+		return codec.decode(keys, index.getInt(HEADER + i * Integer.BYTES));
+	}
+
+	/**
+	 * A method to append keys that are all greater than the maximum of the tree
+	 *
+	 * @param added the keys to append, in ascending order
+	 * @return this tree
+	 * @throws IOException if the files cannot be written
+	 */
+	public MappedTree<T> append(Collection<? extends T> added) throws IOException {
+		T last = max();
+		for (T key : added) {
+			if (last != null && key.compareTo(last) <= 0)
+				throw new IllegalArgumentException("only keys greater than the maximum can be appended to a mapped tree");
+			last = key;
+		}
+		if (added.isEmpty())
+			return this;
+		if (!writable)
+			throw new UnsupportedOperationException("the mapped tree is open read only");
+		/*
+		 * the keys and offsets are written and forced to the storage first, and the
+		 * header is updated and forced last, so a crash leaves the files with the
+		 * header of either the old or the new keys
+		 */
+		int n = count;
+		long length = end;
+		for (T key : added) {
+			int size = codec.length(key);
+			reserve(length + size, HEADER + (n + 1L) * Integer.BYTES);
+			keys.position((int) length);
+			codec.encode(key, keys);
+			index.putInt(HEADER + n * Integer.BYTES, (int) length);
+			length += size;
+			n++;
+		}
+		keys.force(end, (int) length - end);
+		index.force(HEADER + count * Integer.BYTES, (n - count) * Integer.BYTES);
+		index.putInt(COUNT, n).putInt(END, (int) length);
+		index.force(0, HEADER);
+		count = n;
+		end = (int) length;
+		// the shape of the tree has changed, so the nodes materialized so far are dropped
+		root = new MappedNode(0, count - 1);
+		return this;
+	}
+
+	/**
+	 * A method to append a key that is greater than the maximum of the tree. Every
+	 * append waits for its keys to reach the storage, so many keys are appended
+	 * faster at once with {@link #append(Collection)}.
+	 *
+	 * @param key the key to append
+	 * @return this tree
+	 * @throws IOException if the files cannot be written
+	 */
+	public MappedTree<T> append(T key) throws IOException {
+		return append(List.of(key));
+	}
+
+	/**
+	 * appends the key if it is greater than the maximum, a key that is already in
+	 * the tree is ignored
+	 *
+	 * @throws UnsupportedOperationException if the key is less than the maximum and
+	 *                                       not in the tree
+	 */
+	@Override
+	public ITree<T> insert(T key) {
+		if (count > 0 && key.compareTo(max()) <= 0) {
+			if (search(key) != null)
+				return this;
+			throw new UnsupportedOperationException("only keys greater than the maximum can be inserted into a mapped tree");
+		}
+		try {
+			return append(key);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * appends the keys that are not in the tree, which must all be greater than
+	 * the maximum
+	 */
+	@Override
+	public ITree<T> insertAll(Collection<? extends T> keys) {
+		List<T> added = new ArrayList<>(keys.size());
+		for (T key : keys)
+			if (search(key) == null)
+				added.add(key);
+		added.sort(null);
+		/* remove the duplicates by compacting the sorted keys in place */
+		int distinct = 0;
+		for (T key : added)
+			if (distinct == 0 || key.compareTo(added.get(distinct - 1)) != 0)
+				added.set(distinct++, key);
+		added.subList(distinct, added.size()).clear();
+		if (count > 0 && !added.isEmpty() && added.get(0).compareTo(max()) <= 0)
+			throw new UnsupportedOperationException("only keys greater than the maximum can be inserted into a mapped tree");
+		try {
+			return append(added);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public ITree<T> bulkLoad(T[] keys) {
+		throw new UnsupportedOperationException("a mapped tree is created with MappedTree.write");
+	}
+
+	@Override
+	public void setRoot(ITreeNode<T> root) {
+		throw new UnsupportedOperationException("a mapped tree is created with MappedTree.write");
+	}
+
+	@Override
+	public ITree<T> delete(T key) {
+		throw new UnsupportedOperationException("keys cannot be deleted from a mapped tree");
+	}
+
+	@Override
+	public T min() {
+		return count == 0 ? null : key(0);
+	}
+
+	@Override
+	public T max() {
+		return count == 0 ? null : key(count - 1);
+	}
+
+	@Override
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * forces the mapped buffers of a writable tree to the storage and closes the
+	 * files. The mapped buffers are released when they are garbage collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			if (writable) {
+				keys.force();
+				index.force();
+			}
+		} finally {
+			closeChannels();
+		}
+	}
+
+	private void closeChannels() throws IOException {
+		try {
+			keysChannel.close();
+		} finally {
+			indexChannel.close();
+		}
+	}
+
+	/**
+	 * The class MappedNode is the node over the sorted keys from lo to hi (both
+	 * inclusive) whose key is the middle one. The key and the children are read
+	 * when first needed. The node is immutable.
+	 */
+	private class MappedNode implements IAugmentedTreeNode<T> {
+
+		private final int lo, hi;
+		private T key;
+		private ITreeNode<T> left, right;
+		private boolean expanded;
+
+		MappedNode(int lo, int hi) {
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		private void expand() {
+			int mid = (lo + hi) >>> 1;
+			left = lo < mid ? new MappedNode(lo, mid - 1) : null;
+			right = mid < hi ? new MappedNode(mid + 1, hi) : null;
+			expanded = true;
+		}
+
+		@Override
+		public T key() {
+			if (key == null)
+				key = MappedTree.this.key((lo + hi) >>> 1);
+			return key;
+		}
+
+		@Override
+		public ITreeNode<T> left() {
+			if (!expanded)
+				expand();
+			return left;
+		}
+
+		@Override
+		public ITreeNode<T> right() {
+			if (!expanded)
+				expand();
+			return right;
+		}
+
+		@Override
+		public int height() {
+			return 32 - Integer.numberOfLeadingZeros(hi - lo + 1);
+		}
+
+		@Override
+		public int size() {
+			return hi - lo + 1;
+		}
+
+		@Override
+		public ITreeNode<T> inOrderSuccessor() {
+			return left() == null ? this : ((MappedNode) left).inOrderSuccessor();
+		}
+
+		@Override
+		public void update() {
+		}
+
+		@Override
+		public void setKey(T key) {
+			throw new UnsupportedOperationException("a mapped tree node is immutable");
+		}
+
+		@Override
+		public void setRight(ITreeNode<T> right) {
+			throw new UnsupportedOperationException("a mapped tree node is immutable");
+		}
+
+		@Override
+		public void setLeft(ITreeNode<T> left) {
+			throw new UnsupportedOperationException("a mapped tree node is immutable");
+		}
+
+		@Override
+		public void print() {
+			print("");
+		}
+
+		private void print(String indent) {
+			if (right() != null)
+				((MappedNode) right).print(indent + "      ");
+			System.out.printf("%s%s:%s%n", indent, key(), height());
+			if (left() != null)
+				((MappedNode) left).print(indent + "      ");
+		}
+
+		@Override
+		public String toString() {
+			return String.valueOf(key());
+		}
+	}
+}
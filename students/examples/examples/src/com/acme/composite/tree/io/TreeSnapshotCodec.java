@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import com.acme.composite.tree.api.ITree;
+import com.acme.composite.tree.api.ITreeNode;
+import com.acme.composite.tree.impl.AbstractBinaryTree;
+import com.acme.composite.tree.impl.AugmentedTreeNode;
+
+/**
+ * The class TreeSnapshotCodec writes the exact shape and keys of a binary tree
+ * to a stream, and reads them back into a tree.
+ *
+ * A snapshot starts with a header (magic, version and the number of nodes)
+ * followed by the nodes in pre order, in groups of 4: a flags byte with two
+ * bits per node (has a left child, has a right child), and the 4 keys in the
+ * format of a {@link KeyCodec}. With 4 byte keys a snapshot takes a little over
+ * 4 bytes per node.
+ *
+ * Both directions use an explicit stack, so a degenerate (list like) tree is
+ * handled as well as a balanced one, in O(n) time. The reader links every node
+ * once its sub-trees are complete, so the cached height and size of the
+ * {@link AugmentedTreeNode}s it creates are correct.
+ *
+ * @param <T> the type of key
+ */
+public class TreeSnapshotCodec<T extends Comparable<T>> {
+
+	private static final int MAGIC = 0x54534e50; // TSNP
+	private static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int GROUP = 4;
+	private static final int LEFT = 1, RIGHT = 2;
+
+	private final KeyCodec<T> codec;
+
+	public TreeSnapshotCodec(KeyCodec<T> codec) {
+		this.codec = codec;
+	}
+
+	/**
+	 * A method to write a snapshot of a tree to a stream. The stream is not
+	 * closed.
+	 *
+	 * @param tree the tree to write, whose nodes must be linked (see
+	 *             {@link ITree#root()})
+	 * @param out  the stream to write to
+	 * @throws IOException if the stream cannot be written
+	 */
+	@SuppressWarnings("unchecked")
+	public void write(ITree<T> tree, OutputStream out) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		int size = tree.size();
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(size);
+		ITreeNode<T>[] group = (ITreeNode<T>[]) new ITreeNode<?>[GROUP];
+		Deque<ITreeNode<T>> stack = new ArrayDeque<>();
+		if (tree.root() != null)
+			stack.push(tree.root());
+		int written = 0;
+		while (!stack.isEmpty()) {
+			int count = 0, flags = 0;
+			for (; count < GROUP && !stack.isEmpty(); count++) {
+				ITreeNode<T> node = stack.pop();
+				group[count] = node;
+				if (node.right() != null) {
+					stack.push(node.right());
+					flags |= RIGHT << 2 * count;
+				}
+				if (node.left() != null) {
+					stack.push(node.left());
+					flags |= LEFT << 2 * count;
+				}
+			}
+			if (!buffer.hasRemaining())
+				buffer = flush(buffer, out, 1);
+			buffer.put((byte) flags);
+			for (int i = 0; i < count; i++) {
+				int length = codec.length(group[i].key());
+				if (buffer.remaining() < length)
+					buffer = flush(buffer, out, length);
+				codec.encode(group[i].key(), buffer);
+			}
+			written += count;
+		}
+		if (written != size)
+			throw new IllegalArgumentException("the tree has " + size + " keys but " + written + " linked nodes");
+		flush(buffer, out, 0);
+	}
+
+	/*
+	 * write out the buffer, and return it cleared, or a larger one if it cannot
+	 * hold the given number of bytes
+	 */
+	private static ByteBuffer flush(ByteBuffer buffer, OutputStream out, int needed) throws IOException {
+		out.write(buffer.array(), 0, buffer.position());
+		buffer.clear();
+		return buffer.capacity() < needed ? ByteBuffer.allocate(needed) : buffer;
+	}
+
+	/**
+	 * A method to read a snapshot from a stream into a tree, replacing its
+	 * content. The stream is not closed.
+	 *
+	 * @param <R>  the type of the tree
+	 * @param in   the stream to read from
+	 * @param tree the tree to read into
+	 * @return the tree
+	 * @throws IOException if the stream cannot be read or does not hold a snapshot
+	 */
+	@SuppressWarnings("unchecked")
+	public <R extends AbstractBinaryTree<T>> R read(InputStream in, R tree) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+		buffer = fill(buffer, in, 3 * Integer.BYTES);
+		if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+			throw new IOException("not a tree snapshot");
+		int size = buffer.getInt();
+		/* the nodes whose sub-trees are not complete yet, and the children each still waits for */
+		ITreeNode<T>[] nodes = (ITreeNode<T>[]) new ITreeNode<?>[32];
+		byte[] pending = new byte[32];
+		int depth = 0;
+		ITreeNode<T> root = null;
+		int flags = 0;
+		for (int i = 0; i < size; i++) {
+			if (i % GROUP == 0) {
+				buffer = fill(buffer, in, 1);
+				flags = buffer.get();
+			}
+			int length;
+			while ((length = codec.length(buffer)) < 0 || buffer.remaining() < length)
+				buffer = fill(buffer, in, Math.max(length, buffer.remaining() + 1));
+			ITreeNode<T> node = new AugmentedTreeNode<>(codec.decode(buffer));
+			int children = flags >> 2 * (i % GROUP) & (LEFT | RIGHT);
+			if (children != 0) {
+				if (depth == nodes.length) {
+					nodes = Arrays.copyOf(nodes, depth * 2);
+					pending = Arrays.copyOf(pending, depth * 2);
+				}
+				nodes[depth] = node;
+				pending[depth++] = (byte) children;
+				continue;
+			}
+			/* a leaf completes its parent if it was its last child, and so on up */
+			while (depth > 0) {
+				ITreeNode<T> parent = nodes[depth - 1];
+				if ((pending[depth - 1] & LEFT) != 0) {
+					parent.setLeft(node);
+					pending[depth - 1] &= ~LEFT;
+				} else {
+					parent.setRight(node);
+					pending[depth - 1] &= ~RIGHT;
+				}
+				if (pending[depth - 1] != 0)
+					break;
+				nodes[--depth] = null;
+				node = parent;
+			}
+			if (depth == 0)
+				root = node;
+		}
+		if (depth != 0)
+			throw new IOException("truncated tree snapshot");
+		tree.setRoot(root);
+		return tree;
+	}
+
+	/*
+	 * read from the stream until the buffer holds at least the given number of
+	 * bytes, growing it if needed
+	 */
+	private static ByteBuffer fill(ByteBuffer buffer, InputStream in, int needed) throws IOException {
+		if (buffer.remaining() >= needed)
+			return buffer;
+		if (buffer.capacity() < needed)
+			buffer = ByteBuffer.allocate(Math.max(needed, 2 * buffer.capacity())).put(buffer);
+		else
+			buffer.compact();
+		while (buffer.position() < needed) {
+			int read = in.read(buffer.array(), buffer.position(), buffer.remaining());
+			if (read < 0)
+				throw new EOFException("truncated tree snapshot");
+			buffer.position(buffer.position() + read);
+		}
+		return buffer.flip();
+	}
+}
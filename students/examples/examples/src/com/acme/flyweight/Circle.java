@@ -28,7 +28,9 @@ import java.awt.Graphics;
  * color state, instead of also keeping it's radius and location. The method
  * {@link #draw(Graphics, Integer, Integer, Integer)} is used to supply the
  * Circle it's externalized state, while the method {@link #draw(Graphics)} uses
- * the internal (wasteful) state.
+ * the internal (wasteful) state. The method
+ * {@link #draw(int[], int, int, int, int, int, int, int, int)} draws the same
+ * outline straight into the pixels of an image, for {@link CircleRenderer}.
  */
 public class Circle {
 
@@ -48,6 +50,10 @@ public class Circle {
 		this.stateful = true;
 	}
 
+	public Color getColor() {
+		return color;
+	}
+
 	public boolean isStateful() {
 		return stateful;
 	}
@@ -61,4 +67,52 @@ public class Circle {
 		g.setColor(color);
 		g.drawOval(x, y, r, r);
 	}
+
+	/**
+	 * draw an approximate outline of the circle in the bounding box (x, y, r, r)
+	 * into an array of RGB pixels: a midpoint circle of radius r / 2 around the
+	 * center of the box. It is the same as the outline of
+	 * {@link Graphics#drawOval(int, int, int, int)} for even diameters up to 18
+	 * pixels only, larger and odd diameters differ by a few pixels per octant,
+	 * since drawOval strokes a curved path. Only the pixels in the clip rectangle
+	 * are written.
+	 *
+	 * @param pixels the pixels, row by row
+	 * @param width  the number of pixels in a row
+	 * @param clipX0 the left of the clip rectangle (inclusive)
+	 * @param clipY0 the top of the clip rectangle (inclusive)
+	 * @param clipX1 the right of the clip rectangle (exclusive)
+	 * @param clipY1 the bottom of the clip rectangle (exclusive)
+	 * @param x      the left of the bounding box
+	 * @param y      the top of the bounding box
+	 * @param r      the size of the bounding box (the diameter)
+	 */
+	public void draw(int[] pixels, int width, int clipX0, int clipY0, int clipX1, int clipY1, int x, int y, int r) {
+		int rgb = color.getRGB();
+		int radius = r / 2, cx = x + radius, cy = y + radius;
+		/* the midpoint circle algorithm, one octant mirrored eight times */
+		int px = radius, py = 0, error = 1 - radius;
+		while (px >= py) {
+			plot(pixels, width, clipX0, clipY0, clipX1, clipY1, cx + px, cy + py, rgb);
+			plot(pixels, width, clipX0, clipY0, clipX1, clipY1, cx - px, cy + py, rgb);
+			plot(pixels, width, clipX0, clipY0, clipX1, clipY1, cx + px, cy - py, rgb);
+			plot(pixels, width, clipX0, clipY0, clipX1, clipY1, cx - px, cy - py, rgb);
+			plot(pixels, width, clipX0, clipY0, clipX1, clipY1, cx + py, cy + px, rgb);
+			plot(pixels, width, clipX0, clipY0, clipX1, clipY1, cx - py, cy + px, rgb);
+			plot(pixels, width, clipX0, clipY0, clipX1, clipY1, cx + py, cy - px, rgb);
+			plot(pixels, width, clipX0, clipY0, clipX1, clipY1, cx - py, cy - px, rgb);
+			py++;
+			if (error < 0)
+				error += 2 * py + 1;
+			else {
+				px--;
+				error += 2 * (py - px) + 1;
+			}
+		}
+	}
+
+	private static void plot(int[] pixels, int width, int clipX0, int clipY0, int clipX1, int clipY1, int x, int y, int rgb) {
+		if (x >= clipX0 && x < clipX1 && y >= clipY0 && y < clipY1)
+			pixels[y * width + x] = rgb;
+	}
 }
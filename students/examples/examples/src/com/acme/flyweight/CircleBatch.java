@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.flyweight;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The class CircleBatch holds the extrinsic state of many circles (location,
+ * radius and color index) in parallel primitive arrays, 13 bytes per circle,
+ * instead of a {@link Circle} object with boxed fields per circle. The
+ * intrinsic state, the color, is shared by the flyweight circle of each color
+ * (see {@link CircleFactory#getFlyweight(int)}).
+ */
+public class CircleBatch {
+
+	/**
+	 * the bytes of state per circle: x, y and r ints and a color index byte
+	 */
+	public static final int BYTES_PER_CIRCLE = 3 * Integer.BYTES + Byte.BYTES;
+
+	int[] xs, ys, rs; // read directly by CircleRenderer
+	byte[] colors;
+	int size;
+
+	public CircleBatch(int capacity) {
+		capacity = Math.max(capacity, 16);
+		xs = new int[capacity];
+		ys = new int[capacity];
+		rs = new int[capacity];
+		colors = new byte[capacity];
+	}
+
+	/**
+	 * @param colorIndex the color index, less than {@link CircleFactory#COLORS}
+	 * @param x          the left of the bounding box
+	 * @param y          the top of the bounding box
+	 * @param r          the diameter
+	 */
+	public void add(int colorIndex, int x, int y, int r) {
+		if (colorIndex < 0 || colorIndex >= CircleFactory.COLORS)
+			throw new IllegalArgumentException("no color " + colorIndex);
+		if (size == xs.length) {
+			int capacity = size * 2;
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			rs = Arrays.copyOf(rs, capacity);
+			colors = Arrays.copyOf(colors, capacity);
+		}
+		xs[size] = x;
+		ys[size] = y;
+		rs[size] = r;
+		colors[size++] = (byte) colorIndex;
+	}
+
+	/**
+	 * add circles with random state, like the ones of {@link FlyWeightTest}
+	 *
+	 * @param count  the number of circles to add
+	 * @param width  the width of the area
+	 * @param height the height of the area
+	 */
+	public void addRandom(int count, int width, int height) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < count; i++)
+			add(random.nextInt(CircleFactory.COLORS), random.nextInt(width), random.nextInt(height), random.nextInt(Math.max(height / 40, 1)));
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public int x(int index) {
+		return xs[index];
+	}
+
+	public int y(int index) {
+		return ys[index];
+	}
+
+	public int r(int index) {
+		return rs[index];
+	}
+
+	public int colorIndex(int index) {
+		return colors[index];
+	}
+}
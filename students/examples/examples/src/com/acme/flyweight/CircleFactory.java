@@ -21,12 +21,14 @@
 package com.acme.flyweight;
 
 import java.awt.Color;
+import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.HashMap;
-import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.acme.utils.FlyweightPool;
 
 /**
  * a CircleFactory class to customize it by using flyweight design pattern.
@@ -37,13 +39,29 @@ import java.util.concurrent.atomic.AtomicLong;
  * creating a new one. We will reuse the object with different state, that is to
  * say we will share the instance and draw the circle with different start
  * position and radius on the fly.
+ *
+ * The cache is a weak values {@link FlyweightPool}, so circles may be requested
+ * from many threads, and the entries of collected circles are removed on the
+ * next request, so the pool only holds live circles.
+ *
+ * Non flyweight circles can also be looked up by their state packed into a
+ * single long (see {@link #getPackedCircle(int, int, int, int)}), in open
+ * addressing maps of primitive keys, so a lookup allocates nothing, instead of
+ * a {@link CircleKey} with boxed fields per lookup.
  */
 public class CircleFactory {
 
-	static final ReferenceQueue<Circle> REF_QUEUE = new ReferenceQueue<>();
-	static final AtomicLong NUM_OF_REQUESTS = new AtomicLong();
-	static final AtomicLong NUM_OF_GC = new AtomicLong();
-	private static final HashMap<Object, WeakReference<Circle>> cache = new HashMap<>();
+	private static final ReferenceQueue<Circle> REF_QUEUE = new ReferenceQueue<>();
+	private static final FlyweightPool<Object, Circle> cache = FlyweightPool.weakValues();
+	/*
+	 * flyweight circles are keyed by their color, the others by a circle key. The
+	 * factory captures nothing, so a request does not create it.
+	 */
+	private static final Function<Object, Circle> CREATE = key -> key instanceof Color ? new Circle((Color) key) : ((CircleKey) key).newCircle();
+	// the counters of the packed maps, the pool keeps its own
+	private static final LongAdder hits = new LongAdder();
+	private static final LongAdder misses = new LongAdder();
+	private static final LongAdder evictions = new LongAdder();
 	private static final Color colors[] = {
 			Color.red,
 			Color.blue,
@@ -56,36 +74,186 @@ public class CircleFactory {
 			Color.green,
 			Color.magenta,
 			Color.pink };
-	private static final Random random = ThreadLocalRandom.current();
 	private static final long MEGABYTE = 1024L * 1024L;
+	/*
+	 * the packed key: 8 bits of color index, 20 bits of x, 20 bits of y and 16
+	 * bits of radius
+	 */
+	private static final int X_BITS = 20, Y_BITS = 20, R_BITS = 16;
+	private static final int SEGMENTS = 16; // a power of two
+	@SuppressWarnings("unchecked")
+	private static final LongObjectMap<PackedCircleReference>[] packed = (LongObjectMap<PackedCircleReference>[]) new LongObjectMap<?>[SEGMENTS];
+
+	static {
+		for (int i = 0; i < SEGMENTS; i++)
+			packed[i] = new LongObjectMap<>(1024);
+	}
+
+	/**
+	 * the number of colors of the circles
+	 */
+	public static final int COLORS = colors.length;
+
+	/*
+	 * a weak reference that knows its key, to remove it from the packed maps once
+	 * the circle is collected
+	 */
+	private static final class PackedCircleReference extends WeakReference<Circle> {
+		final long key;
+
+		PackedCircleReference(long key, Circle circle) {
+			super(circle, REF_QUEUE);
+			this.key = key;
+		}
+	}
 
 	public static Circle getCircle(boolean flyweight) {
-		Circle circle = null;
 		Color color = getRandomColor();
-		if (flyweight) { // flyweight circles only use colors for state, so color is the cache key
-			WeakReference<Circle> ref = cache.get(color);
-			if (ref != null)
-				circle = ref.get();
-			if (circle == null) {
-				circle = new Circle(color);
-				cache.put(color, new WeakReference<>(circle, REF_QUEUE));
+		if (flyweight) // flyweight circles only use colors for state, so color is the cache key
+			return cache.get(color, CREATE);
+		// none flyweight circles use location and radix data, as well as color, so they
+		// have a special key
+		int x = getRandomX();
+		int y = getRandomY();
+		int r = getRandomR();
+		return cache.get(new CircleKey(color, x, y, r), CREATE);
+	}
+
+	/**
+	 * a method to obtain the flyweight circle of a color
+	 *
+	 * @param colorIndex the index of the color, less than {@link #COLORS}
+	 * @return the shared circle of the color
+	 */
+	public static Circle getFlyweight(int colorIndex) {
+		return cache.get(colors[colorIndex], CREATE);
+	}
+
+	/**
+	 * a method to obtain a non flyweight circle with the given state
+	 *
+	 * @param color the color of the circle
+	 * @param x     the x coordinate
+	 * @param y     the y coordinate
+	 * @param r     the radius
+	 * @return the cached circle with the given state, or a new one
+	 */
+	public static Circle getCircle(Color color, int x, int y, int r) {
+		return cache.get(new CircleKey(color, x, y, r), CREATE);
+	}
+
+	/**
+	 * a method to obtain a non flyweight circle with the given state, with the
+	 * state packed into a long key. A lookup of a cached circle allocates
+	 * nothing.
+	 *
+	 * @param colorIndex the index of the color, less than {@link #COLORS}
+	 * @param x          the x coordinate, 0 to 2^20 - 1
+	 * @param y          the y coordinate, 0 to 2^20 - 1
+	 * @param r          the radius, 0 to 2^16 - 1
+	 * @return the cached circle with the given state, or a new one
+	 */
+	public static Circle getPackedCircle(int colorIndex, int x, int y, int r) {
+		expungeStaleEntries();
+		long key = pack(colorIndex, x, y, r);
+		LongObjectMap<PackedCircleReference> segment = segment(key);
+		synchronized (segment) {
+			PackedCircleReference ref = segment.get(key);
+			Circle circle = ref == null ? null : ref.get();
+			if (circle != null) {
+				hits.increment();
+				return circle;
 			}
-		} else { // none flyweight circles use location and radix data, as well as color, so they
-					// have a special key
-			Integer x = getRandomX();
-			Integer y = getRandomY();
-			Integer r = getRandomR();
-			CircleKey key = new CircleKey(color, x, y, r);
-			WeakReference<Circle> ref = cache.get(key);
-			if (ref != null)
-				circle = ref.get();
-			if (circle == null) {
-				circle = new Circle(color, x, y, r);
-				cache.put(key, new WeakReference<Circle>(circle, REF_QUEUE));
+			circle = new Circle(colors[colorIndex], x, y, r);
+			segment.put(key, new PackedCircleReference(key, circle));
+			misses.increment();
+			return circle;
+		}
+	}
+
+	/**
+	 * a method to obtain a non flyweight circle with random state through the
+	 * packed key lookup
+	 *
+	 * @return a circle with a random color, location and radius
+	 */
+	public static Circle getPackedCircle() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return getPackedCircle(random.nextInt(COLORS), getRandomX(), getRandomY(), getRandomR());
+	}
+
+	static long pack(int colorIndex, int x, int y, int r) {
+		if (colorIndex < 0 || colorIndex >= COLORS)
+			throw new IllegalArgumentException("no color " + colorIndex);
+		if (x >>> X_BITS != 0 || y >>> Y_BITS != 0 || r >>> R_BITS != 0)
+			throw new IllegalArgumentException(String.format("circle (%d, %d, %d) out of range", x, y, r));
+		return ((long) colorIndex << X_BITS + Y_BITS + R_BITS) | ((long) x << Y_BITS + R_BITS) | ((long) y << R_BITS) | r;
+	}
+
+	/*
+	 * the segments are picked by the low bits of the mixed key, the maps use the
+	 * high bits
+	 */
+	private static LongObjectMap<PackedCircleReference> segment(long key) {
+		return packed[(int) (key * 0x9E3779B97F4A7C15L >>> 32) & SEGMENTS - 1];
+	}
+
+	/*
+	 * remove the entries of the collected circles from the packed maps. A
+	 * reference that was already replaced by a new circle is not in the map any
+	 * more and is not counted.
+	 */
+	private static void expungeStaleEntries() {
+		for (Reference<? extends Circle> ref; (ref = REF_QUEUE.poll()) != null;) {
+			PackedCircleReference stale = (PackedCircleReference) ref;
+			LongObjectMap<PackedCircleReference> segment = segment(stale.key);
+			synchronized (segment) {
+				if (segment.remove(stale.key, stale))
+					evictions.increment();
 			}
 		}
-		NUM_OF_REQUESTS.incrementAndGet();
-		return circle;
+	}
+
+	/**
+	 * @return the number of requests served by a cached circle
+	 */
+	public static long hits() {
+		return hits.sum() + cache.stats().hits();
+	}
+
+	/**
+	 * @return the number of requests that created a circle
+	 */
+	public static long misses() {
+		return misses.sum() + cache.stats().misses();
+	}
+
+	/**
+	 * @return the number of requests
+	 */
+	public static long requests() {
+		return hits() + misses();
+	}
+
+	/**
+	 * @return the number of cache entries removed because their circle was
+	 *         collected
+	 */
+	public static long evictions() {
+		return evictions.sum() + cache.stats().evictions();
+	}
+
+	/**
+	 * @return the number of cache entries, after removing the collected ones
+	 */
+	public static int liveSize() {
+		expungeStaleEntries();
+		int size = cache.size();
+		for (LongObjectMap<PackedCircleReference> segment : packed)
+			synchronized (segment) {
+				size += segment.size();
+			}
+		return size;
 	}
 
 	static void reportMemStatus() {
@@ -95,23 +263,36 @@ public class CircleFactory {
 			memory = memory / MEGABYTE;
 			format = "MB";
 		}
-		System.out.printf("%d circles requestd, %d cached, %d%s memory used%n", NUM_OF_REQUESTS.get(), cache.size(), memory, format);
+		System.out.printf("%d circles requestd (%d hits, %d misses), %d cached, %d evicted, %d%s memory used%n", requests(), hits(), misses(), liveSize(),
+				evictions(), memory, format);
 	}
 
+	/*
+	 * ThreadLocalRandom.current() is bound to the calling thread, so it is looked
+	 * up on every call rather than kept in a field
+	 */
 	static int getRandomX() {
-		return (int) (random.nextDouble() * FlyWeightTest.MAX_WIDTH);
+		return (int) (ThreadLocalRandom.current().nextDouble() * FlyWeightTest.MAX_WIDTH);
 	}
 
 	static int getRandomY() {
-		return (int) (random.nextDouble() * FlyWeightTest.MAX_HEIGHT);
+		return (int) (ThreadLocalRandom.current().nextDouble() * FlyWeightTest.MAX_HEIGHT);
 	}
 
 	static int getRandomR() {
-		return (int) (random.nextDouble() * (FlyWeightTest.MAX_HEIGHT / 40));
+		return (int) (ThreadLocalRandom.current().nextDouble() * (FlyWeightTest.MAX_HEIGHT / 40));
+	}
+
+	/**
+	 * @param index the index of the color, less than {@link #COLORS}
+	 * @return the color with the given index
+	 */
+	public static Color getColor(int index) {
+		return colors[index];
 	}
 
 	static Color getRandomColor() {
-		return colors[(int) (random.nextDouble() * colors.length)];
+		return colors[(int) (ThreadLocalRandom.current().nextDouble() * colors.length)];
 	}
 
 	private static class CircleKey {
@@ -127,6 +308,10 @@ public class CircleFactory {
 			this.r = r;
 		}
 
+		Circle newCircle() {
+			return new Circle(color, x, y, r);
+		}
+
 		@Override
 		public int hashCode() {
 			final int prime = 31;
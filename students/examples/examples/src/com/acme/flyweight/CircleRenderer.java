@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.flyweight;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The class CircleRenderer draws a {@link CircleBatch} into a
+ * {@link BufferedImage} without a {@link java.awt.Graphics}, so it runs
+ * headless, and in parallel: the image is cut into square tiles, the circles
+ * are sorted into the tiles their bounding boxes overlap, and the tiles are
+ * drawn by fork/join tasks straight into the pixel array of the image. The
+ * circles of a tile are drawn in batch order, so the result does not depend on
+ * the number of threads. The image can then be shown with a single
+ * {@link java.awt.Graphics#drawImage(java.awt.Image, int, int, java.awt.image.ImageObserver)}.
+ *
+ * Every circle is drawn by the flyweight {@link Circle} of its color, with the
+ * location and radius of the batch as extrinsic state.
+ */
+public class CircleRenderer {
+
+	public static final int DEFAULT_TILE_SIZE = 64;
+
+	private final ForkJoinPool pool;
+	private final int tileSize;
+
+	public CircleRenderer() {
+		this(ForkJoinPool.commonPool(), DEFAULT_TILE_SIZE);
+	}
+
+	/**
+	 * @param pool     the pool that draws the tiles
+	 * @param tileSize the width and height of a tile
+	 */
+	public CircleRenderer(ForkJoinPool pool, int tileSize) {
+		if (tileSize <= 0)
+			throw new IllegalArgumentException("the tile size must be positive");
+		this.pool = pool;
+		this.tileSize = tileSize;
+	}
+
+	/**
+	 * @param batch      the circles to draw
+	 * @param width      the width of the image
+	 * @param height     the height of the image
+	 * @param background the color of the background
+	 * @return a new RGB image of the circles
+	 */
+	public BufferedImage render(CircleBatch batch, int width, int height, Color background) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		render(batch, image, background);
+		return image;
+	}
+
+	/**
+	 * @param batch      the circles to draw
+	 * @param image      an image of type TYPE_INT_RGB or TYPE_INT_ARGB
+	 * @param background the color of the background
+	 */
+	public void render(CircleBatch batch, BufferedImage image, Color background) {
+		if (image.getType() != BufferedImage.TYPE_INT_RGB && image.getType() != BufferedImage.TYPE_INT_ARGB)
+			throw new IllegalArgumentException("the image must have int RGB pixels");
+		int width = image.getWidth(), height = image.getHeight();
+		int columns = (width + tileSize - 1) / tileSize, rows = (height + tileSize - 1) / tileSize;
+		Circle[] palette = new Circle[CircleFactory.COLORS];
+		for (int i = 0; i < palette.length; i++)
+			palette[i] = CircleFactory.getFlyweight(i);
+		int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		Bins bins = new Bins(batch, columns, rows, width, height);
+		pool.invoke(new TileAction(batch, bins, palette, pixels, width, height, columns, background.getRGB(), 0, columns * rows));
+	}
+
+	/*
+	 * the indices of the circles of every tile, in batch order: a counting sort of
+	 * the (circle, tile) pairs, with the circles of tile t at start[t] to start[t
+	 * + 1] of indices
+	 */
+	private final class Bins {
+		final int[] start;
+		final int[] indices;
+
+		Bins(CircleBatch batch, int columns, int rows, int width, int height) {
+			start = new int[columns * rows + 1];
+			int[] range = new int[4];
+			for (int i = 0; i < batch.size; i++)
+				if (tiles(batch, i, width, height, range))
+					for (int row = range[2]; row <= range[3]; row++)
+						for (int column = range[0]; column <= range[1]; column++)
+							start[row * columns + column + 1]++;
+			for (int t = 1; t < start.length; t++)
+				start[t] += start[t - 1];
+			indices = new int[start[start.length - 1]];
+			int[] next = Arrays.copyOf(start, start.length - 1);
+			for (int i = 0; i < batch.size; i++)
+				if (tiles(batch, i, width, height, range))
+					for (int row = range[2]; row <= range[3]; row++)
+						for (int column = range[0]; column <= range[1]; column++)
+							indices[next[row * columns + column]++] = i;
+		}
+
+		/*
+		 * the first and last column and row of the tiles the bounding box of circle i
+		 * overlaps, false if it is outside the image
+		 */
+		private boolean tiles(CircleBatch batch, int i, int width, int height, int[] range) {
+			int x = batch.xs[i], y = batch.ys[i], r = batch.rs[i];
+			if (x >= width || y >= height || x + r < 0 || y + r < 0)
+				return false;
+			range[0] = Math.max(x, 0) / tileSize;
+			range[1] = Math.min(x + r, width - 1) / tileSize;
+			range[2] = Math.max(y, 0) / tileSize;
+			range[3] = Math.min(y + r, height - 1) / tileSize;
+			return true;
+		}
+	}
+
+	/*
+	 * draws the tiles first to last, split in halves down to a single tile
+	 */
+	private final class TileAction extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final CircleBatch batch;
+		private final Bins bins;
+		private final Circle[] palette;
+		private final int[] pixels;
+		private final int width, height, columns, background, first, last;
+
+		TileAction(CircleBatch batch, Bins bins, Circle[] palette, int[] pixels, int width, int height, int columns, int background, int first,
+				int last) {
+			this.batch = batch;
+			this.bins = bins;
+			this.palette = palette;
+			this.pixels = pixels;
+			this.width = width;
+			this.height = height;
+			this.columns = columns;
+			this.background = background;
+			this.first = first;
+			this.last = last;
+		}
+
+		@Override
+		protected void compute() {
+			if (last - first > 1) {
+				int middle = (first + last) >>> 1;
+				invokeAll(new TileAction(batch, bins, palette, pixels, width, height, columns, background, first, middle),
+						new TileAction(batch, bins, palette, pixels, width, height, columns, background, middle, last));
+				return;
+			}
+			int x0 = first % columns * tileSize, y0 = first / columns * tileSize;
+			int x1 = Math.min(x0 + tileSize, width), y1 = Math.min(y0 + tileSize, height);
+			for (int y = y0; y < y1; y++)
+				Arrays.fill(pixels, y * width + x0, y * width + x1, background);
+			for (int j = bins.start[first]; j < bins.start[first + 1]; j++) {
+				int i = bins.indices[j];
+				palette[batch.colors[i]].draw(pixels, width, x0, y0, x1, y1, batch.xs[i], batch.ys[i], batch.rs[i]);
+			}
+		}
+	}
+}
@@ -20,15 +20,13 @@
  */
 package com.acme.flyweight;
 
-import static com.acme.flyweight.CircleFactory.NUM_OF_GC;
-import static com.acme.flyweight.CircleFactory.NUM_OF_REQUESTS;
-
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
 
 import javax.swing.JButton;
 import javax.swing.JFrame;
@@ -75,10 +73,14 @@ public class FlyWeightTest extends JFrame {
 		super(title);
 		Container contentPane = getContentPane();
 		JButton button = new JButton("Draw Circle");
+		JButton batchButton = new JButton("Draw Batch");
 		final JPanel panel = new JPanel();
 		panel.setBackground(Color.black);
+		JPanel buttons = new JPanel();
+		buttons.add(button);
+		buttons.add(batchButton);
 		contentPane.add(panel, BorderLayout.CENTER);
-		contentPane.add(button, BorderLayout.SOUTH);
+		contentPane.add(buttons, BorderLayout.SOUTH);
 		setSize(MAX_WIDTH, MAX_HEIGHT);
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 		Dimension dim = Toolkit.getDefaultToolkit().getScreenSize();
@@ -101,18 +103,16 @@ public class FlyWeightTest extends JFrame {
 			}
 			SwingUtilities.invokeLater(() -> CircleFactory.reportMemStatus());
 		});
-		new Thread(() -> {
-			while (true) {
-				try {
-					CircleFactory.REF_QUEUE.remove();
-					NUM_OF_GC.incrementAndGet();
-					if (NUM_OF_REQUESTS.get() % NUMBER_OF_CIRCLES == 0)
-						System.out.printf("garbage collected %d/%d circles%n", NUM_OF_GC.get(), NUM_OF_REQUESTS.get());
-				} catch (InterruptedException ignore) {
-				}
-
-			}
-		}).start();
+		// the extrinsic state in primitive arrays, drawn in parallel tiles and shown at once
+		CircleRenderer renderer = new CircleRenderer();
+		batchButton.addActionListener(event -> {
+			long start = System.nanoTime();
+			CircleBatch batch = new CircleBatch(NUMBER_OF_CIRCLES);
+			batch.addRandom(NUMBER_OF_CIRCLES, MAX_WIDTH, MAX_HEIGHT);
+			BufferedImage image = renderer.render(batch, panel.getWidth(), panel.getHeight(), Color.black);
+			getGraphics().drawImage(image, 0, 0, null);
+			System.out.printf("%d circles drawn in %.1f ms%n", batch.size(), (System.nanoTime() - start) / 1e6);
+		});
 	}
 
 	public static void main(String[] args) throws Exception {
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.flyweight;
+
+import java.util.Arrays;
+
+/**
+ * The class LongObjectMap is a minimal hash map from primitive long keys to
+ * objects, with open addressing (linear probing) in two parallel arrays, so a
+ * lookup does not allocate. A null value marks a free slot, so null values are
+ * not allowed. Removal shifts the following entries of the probe sequence back
+ * instead of leaving tombstones.
+ *
+ * It is not thread safe.
+ *
+ * @param <V> the type of values
+ */
+class LongObjectMap<V> {
+
+	private long[] keys;
+	private V[] values;
+	private int mask;
+	private int shift;
+	private int size;
+
+	LongObjectMap(int expected) {
+		allocate(Integer.highestOneBit(Math.max(expected, 4) * 2 - 1) << 1);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = (V[]) new Object[capacity];
+		mask = capacity - 1;
+		shift = 64 - Integer.numberOfTrailingZeros(capacity);
+	}
+
+	/*
+	 * Fibonacci hashing, the top bits of the product are the best mixed ones
+	 */
+	private int slot(long key) {
+		return (int) (key * 0x9E3779B97F4A7C15L >>> shift);
+	}
+
+	V get(long key) {
+		for (int i = slot(key);; i = i + 1 & mask) {
+			V value = values[i];
+			if (value == null || keys[i] == key)
+				return value;
+		}
+	}
+
+	/**
+	 * @return the previous value of the key, or null
+	 */
+	V put(long key, V value) {
+		if (value == null)
+			throw new IllegalArgumentException("null values are not allowed");
+		int i = slot(key);
+		for (; values[i] != null; i = i + 1 & mask)
+			if (keys[i] == key) {
+				V old = values[i];
+				values[i] = value;
+				return old;
+			}
+		keys[i] = key;
+		values[i] = value;
+		if (++size > (mask + 1) * 3 / 4)
+			grow();
+		return null;
+	}
+
+	/**
+	 * remove the key only if it is mapped to the given value (by identity)
+	 *
+	 * @return true if the key was removed
+	 */
+	boolean remove(long key, V value) {
+		int i = slot(key);
+		for (; values[i] != null; i = i + 1 & mask)
+			if (keys[i] == key) {
+				if (values[i] != value)
+					return false;
+				delete(i);
+				return true;
+			}
+		return false;
+	}
+
+	/*
+	 * backward shift deletion: move back every following entry of the cluster
+	 * that may be probed from before the hole
+	 */
+	private void delete(int hole) {
+		values[hole] = null;
+		size--;
+		for (int i = hole + 1 & mask; values[i] != null; i = i + 1 & mask) {
+			int home = slot(keys[i]);
+			if ((i - home & mask) >= (i - hole & mask)) {
+				keys[hole] = keys[i];
+				values[hole] = values[i];
+				values[i] = null;
+				hole = i;
+			}
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	void clear() {
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		V[] oldValues = values;
+		allocate(oldKeys.length * 2);
+		for (int j = 0; j < oldKeys.length; j++)
+			if (oldValues[j] != null) {
+				int i = slot(oldKeys[j]);
+				while (values[i] != null)
+					i = i + 1 & mask;
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.flyweight.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+import com.acme.flyweight.Circle;
+import com.acme.flyweight.CircleFactory;
+
+/**
+ * The class CircleKeyBenchmark compares the two lookups of non flyweight
+ * circles: {@link CircleFactory#getCircle(java.awt.Color, int, int, int)},
+ * which allocates a key object with boxed fields per request, and
+ * {@link CircleFactory#getPackedCircle(int, int, int, int)}, which packs the
+ * state into a long. The requests are drawn from n / 4 distinct circles, so
+ * most of them are cache hits, and the returned circles are kept alive during
+ * a run so they stay cached. The allocated bytes are counted by the thread
+ * allocation counter of the JVM and include the circles of the cache misses.
+ *
+ * Usage: CircleKeyBenchmark [requests...]
+ */
+public class CircleKeyBenchmark {
+
+	private static final int RUNS = 5;
+
+	public static void main(String[] args) {
+		int[] sizes = args.length > 0 ? new int[args.length] : new int[] { 50_000, 500_000, 5_000_000 };
+		for (int i = 0; i < args.length; i++)
+			sizes[i] = Integer.parseInt(args[i]);
+		System.out.printf("%-10s %10s %12s %12s %14s%n", "lookup", "requests", "ms", "ns/request", "bytes/request");
+		for (int n : sizes) {
+			SplittableRandom random = new SplittableRandom(n);
+			int distinct = Math.max(n / 4, 1);
+			int[] colors = new int[distinct], xs = new int[distinct], ys = new int[distinct], rs = new int[distinct];
+			for (int i = 0; i < distinct; i++) {
+				colors[i] = random.nextInt(CircleFactory.COLORS);
+				xs[i] = random.nextInt(1 << 12);
+				ys[i] = random.nextInt(1 << 12);
+				rs[i] = random.nextInt(64);
+			}
+			int[] requests = new int[n];
+			for (int i = 0; i < n; i++)
+				requests[i] = random.nextInt(distinct);
+			run("CircleKey", requests, colors, xs, ys, rs, false);
+			run("packed", requests, colors, xs, ys, rs, true);
+		}
+	}
+
+	private static void run(String name, int[] requests, int[] colors, int[] xs, int[] ys, int[] rs, boolean packed) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		long best = Long.MAX_VALUE, bytes = Long.MAX_VALUE;
+		for (int run = 0; run < RUNS; run++) { // the first runs warm up the JIT, the best one is reported
+			System.gc(); // the circles of the previous run are collected
+			CircleFactory.liveSize(); // and expunged before the clock starts
+			Circle[] circles = new Circle[requests.length];
+			long allocated = threads.getThreadAllocatedBytes(thread);
+			long start = System.nanoTime();
+			if (packed)
+				for (int i = 0; i < requests.length; i++) {
+					int c = requests[i];
+					circles[i] = CircleFactory.getPackedCircle(colors[c], xs[c], ys[c], rs[c]);
+				}
+			else
+				for (int i = 0; i < requests.length; i++) {
+					int c = requests[i];
+					circles[i] = CircleFactory.getCircle(CircleFactory.getColor(colors[c]), xs[c], ys[c], rs[c]);
+				}
+			best = Math.min(best, System.nanoTime() - start);
+			bytes = Math.min(bytes, threads.getThreadAllocatedBytes(thread) - allocated);
+			if (circles[requests.length - 1] == null)
+				throw new IllegalStateException("no circle");
+		}
+		System.out.printf("%-10s %10d %12.1f %12.1f %14.1f%n", name, requests.length, best / 1e6, (double) best / requests.length,
+				(double) bytes / requests.length);
+	}
+}
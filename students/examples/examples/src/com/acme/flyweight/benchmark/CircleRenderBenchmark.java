@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.flyweight.benchmark;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.acme.flyweight.Circle;
+import com.acme.flyweight.CircleBatch;
+import com.acme.flyweight.CircleFactory;
+import com.acme.flyweight.CircleRenderer;
+import com.acme.flyweight.FlyWeightTest;
+
+/**
+ * The class CircleRenderBenchmark draws n random circles headless into an image
+ * of the {@link FlyWeightTest} size, three ways: one at a time through a
+ * {@link Graphics2D} with a non flyweight circle per call, the same with the
+ * flyweight circles and random extrinsic state per call (the two modes of
+ * {@link FlyWeightTest}), and as a {@link CircleBatch} drawn by the
+ * {@link CircleRenderer}. The time of the batch includes filling it.
+ *
+ * The allocated bytes are summed over all the threads of the JVM, so they
+ * include the ones of the fork/join workers.
+ *
+ * Usage: CircleRenderBenchmark [circles...]
+ */
+public class CircleRenderBenchmark {
+
+	private static final int RUNS = 5;
+
+	private interface Drawing {
+		void draw(int n, BufferedImage image);
+	}
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		int[] sizes = args.length > 0 ? new int[args.length] : new int[] { 50_000, 500_000 };
+		for (int i = 0; i < args.length; i++)
+			sizes[i] = Integer.parseInt(args[i]);
+		CircleRenderer renderer = new CircleRenderer();
+		System.out.printf("%-12s %10s %10s %16s %14s%n", "mode", "circles", "ms", "circles/s", "bytes/circle");
+		for (int n : sizes) {
+			run("graphics", n, (count, image) -> graphics(count, image, false));
+			run("flyweight", n, (count, image) -> graphics(count, image, true));
+			run("batch", n, (count, image) -> {
+				CircleBatch batch = new CircleBatch(count);
+				batch.addRandom(count, FlyWeightTest.MAX_WIDTH, FlyWeightTest.MAX_HEIGHT);
+				renderer.render(batch, image, Color.black);
+			});
+		}
+		System.out.printf("%nthe state of a batched circle takes %d bytes%n", CircleBatch.BYTES_PER_CIRCLE);
+	}
+
+	private static void graphics(int n, BufferedImage image, boolean flyweight) {
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.black);
+		g.fillRect(0, 0, image.getWidth(), image.getHeight());
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < n; ++i) {
+			Circle circle = CircleFactory.getCircle(flyweight);
+			if (circle.isStateful())
+				circle.draw(g);
+			else
+				circle.draw(g, random.nextInt(FlyWeightTest.MAX_WIDTH), random.nextInt(FlyWeightTest.MAX_HEIGHT),
+						random.nextInt(FlyWeightTest.MAX_HEIGHT / 40));
+		}
+		g.dispose();
+	}
+
+	private static void run(String name, int n, Drawing drawing) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		BufferedImage image = new BufferedImage(FlyWeightTest.MAX_WIDTH, FlyWeightTest.MAX_HEIGHT, BufferedImage.TYPE_INT_RGB);
+		long best = Long.MAX_VALUE, bytes = Long.MAX_VALUE;
+		for (int run = 0; run < RUNS; run++) { // the first runs warm up the JIT, the best one is reported
+			System.gc();
+			CircleFactory.liveSize(); // expunge the collected circles before the clock starts
+			long allocated = allocated(threads);
+			long start = System.nanoTime();
+			drawing.draw(n, image);
+			best = Math.min(best, System.nanoTime() - start);
+			bytes = Math.min(bytes, allocated(threads) - allocated);
+		}
+		System.out.printf("%-12s %10d %10.1f %16.0f %14.1f%n", name, n, best / 1e6, n / (best / 1e9), (double) bytes / n);
+	}
+
+	private static long allocated(com.sun.management.ThreadMXBean threads) {
+		long sum = 0;
+		for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds()))
+			if (bytes > 0)
+				sum += bytes;
+		return sum;
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.flyweight.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import com.acme.flyweight.Circle;
+import com.acme.flyweight.CircleFactory;
+import com.acme.flyweight.FlyWeightTest;
+
+/**
+ * The class FlyweightBenchmark measures the circles of {@link CircleFactory}
+ * headless, for the modes of {@link FlyWeightTest}: flyweight circles (shared
+ * by color), non flyweight circles (a circle per color, location and radius)
+ * and non flyweight circles by their packed key. For every mode and number of
+ * circles it reports
+ *
+ * <ul>
+ * <li>the requests per second</li>
+ * <li>the allocated bytes per request and the allocation rate, by the thread
+ * allocation counter of the JVM</li>
+ * <li>the number and time of the garbage collections during the requests</li>
+ * <li>the retained heap per circle, by the used heap after a collection, while
+ * the requested circles are kept alive (as the circles on the screen are)</li>
+ * </ul>
+ *
+ * The results are written as CSV (the default) or JSON, one record per mode and
+ * number of circles, so they can be compared between builds.
+ *
+ * Usage: FlyweightBenchmark [--csv | --json] [circles...]
+ */
+public class FlyweightBenchmark {
+
+	private static final int RUNS = 5;
+	private static final long SETTLE_MILLIS = 50;
+
+	private static final String[] COLUMNS = { "mode", "circles", "requestsPerSecond", "bytesPerRequest", "allocationMBPerSecond", "gcCount",
+			"gcMillis", "retainedBytesPerCircle", "cachedCircles" };
+
+	private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private static final class Result {
+		final String mode;
+		final int circles;
+		double requestsPerSecond, bytesPerRequest, allocationMBPerSecond, retainedBytesPerCircle;
+		long gcCount, gcMillis;
+		int cachedCircles;
+
+		Result(String mode, int circles) {
+			this.mode = mode;
+			this.circles = circles;
+		}
+
+		Object[] values() {
+			return new Object[] { mode, circles, requestsPerSecond, bytesPerRequest, allocationMBPerSecond, gcCount, gcMillis, retainedBytesPerCircle,
+					cachedCircles };
+		}
+	}
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		boolean json = false;
+		List<Integer> sizes = new ArrayList<>();
+		for (String arg : args)
+			if (arg.equals("--json"))
+				json = true;
+			else if (arg.equals("--csv"))
+				json = false;
+			else
+				sizes.add(Integer.parseInt(arg));
+		if (sizes.isEmpty())
+			sizes = List.of(10_000, 100_000, 1_000_000);
+		List<Result> results = new ArrayList<>();
+		for (int n : sizes) {
+			results.add(run("flyweight", n, () -> CircleFactory.getCircle(true)));
+			results.add(run("nonFlyweight", n, () -> CircleFactory.getCircle(false)));
+			results.add(run("packed", n, CircleFactory::getPackedCircle));
+		}
+		if (json)
+			printJson(results);
+		else
+			printCsv(results);
+	}
+
+	private static Result run(String mode, int n, Supplier<Circle> request) {
+		Result result = new Result(mode, n);
+		long best = Long.MAX_VALUE;
+		for (int run = 0; run < RUNS; run++) // the first runs warm up the JIT, the best one is reported
+			best = Math.min(best, time(n, request, result, best));
+		retain(n, request, result);
+		return result;
+	}
+
+	/*
+	 * time the requests, and keep the counters if they are the fastest so far
+	 */
+	private static long time(int n, Supplier<Circle> request, Result result, long best) {
+		Circle[] circles = new Circle[n];
+		collect();
+		long thread = Thread.currentThread().getId();
+		long gcCount = gcCount(), gcMillis = gcMillis();
+		long allocated = threads.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		for (int i = 0; i < n; i++)
+			circles[i] = request.get();
+		long time = System.nanoTime() - start;
+		long bytes = threads.getThreadAllocatedBytes(thread) - allocated;
+		if (time < best) {
+			result.requestsPerSecond = n * 1e9 / time;
+			result.bytesPerRequest = (double) bytes / n;
+			result.allocationMBPerSecond = bytes * 1e9 / time / (1024 * 1024);
+			result.gcCount = gcCount() - gcCount;
+			result.gcMillis = gcMillis() - gcMillis;
+		}
+		Reference.reachabilityFence(circles);
+		return time;
+	}
+
+	/*
+	 * the heap retained by the requested circles and their cache entries, in a
+	 * frame of its own, so no circle of the timed runs is still reachable
+	 */
+	private static void retain(int n, Supplier<Circle> request, Result result) {
+		Circle[] circles = new Circle[n];
+		long used = collect();
+		for (int i = 0; i < n; i++)
+			circles[i] = request.get();
+		result.retainedBytesPerCircle = (double) Math.max(0, collect() - used) / n;
+		result.cachedCircles = CircleFactory.liveSize();
+		Reference.reachabilityFence(circles);
+	}
+
+	/*
+	 * collect the garbage and expunge the cache entries of the collected circles,
+	 * then collect their references too. The cleared references are queued by a
+	 * thread of the JVM after the collection, so it waits until they stop coming.
+	 *
+	 * @return the used heap
+	 */
+	private static long collect() {
+		System.gc();
+		try {
+			for (int size = -1; size != CircleFactory.liveSize();) {
+				size = CircleFactory.liveSize();
+				Thread.sleep(SETTLE_MILLIS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		System.gc();
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			count += Math.max(0, gc.getCollectionCount());
+		return count;
+	}
+
+	private static long gcMillis() {
+		long millis = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			millis += Math.max(0, gc.getCollectionTime());
+		return millis;
+	}
+
+	private static String format(Object value) {
+		return value instanceof Double ? String.format(Locale.ROOT, "%.1f", value) : String.valueOf(value);
+	}
+
+	private static void printCsv(List<Result> results) {
+		System.out.println(String.join(",", COLUMNS));
+		for (Result result : results) {
+			Object[] values = result.values();
+			StringBuilder line = new StringBuilder();
+			for (int i = 0; i < values.length; i++)
+				line.append(i == 0 ? "" : ",").append(format(values[i]));
+			System.out.println(line);
+		}
+	}
+
+	private static void printJson(List<Result> results) {
+		StringBuilder json = new StringBuilder("[\n");
+		for (int r = 0; r < results.size(); r++) {
+			Object[] values = results.get(r).values();
+			json.append("  {");
+			for (int i = 0; i < values.length; i++) {
+				json.append(i == 0 ? "" : ", ").append('"').append(COLUMNS[i]).append("\": ");
+				if (values[i] instanceof String)
+					json.append('"').append(values[i]).append('"');
+				else
+					json.append(format(values[i]));
+			}
+			json.append(r < results.size() - 1 ? "},\n" : "}\n");
+		}
+		System.out.print(json.append("]"));
+		System.out.println();
+	}
+}
@@ -0,0 +1,444 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.observer;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The class AsyncListChangePublisher is a {@link ListChangeListener} that
+ * hands the changes of an {@link ObservableArrayList} over to
+ * {@link Flow.Subscriber}s, which consume them on the threads of an executor
+ * instead of on the thread that changed the list. A slow subscriber therefore
+ * no longer stalls the writers, it only falls behind.
+ *
+ * Every subscriber has a bounded buffer. When it is full, the
+ * {@link OverflowPolicy} either drops the change for that subscriber or blocks
+ * the writer until there is room. Each subscriber has its
+ * {@link SubscriberMetrics}: the changes delivered and dropped, the queue depth
+ * and the lag between a change and its delivery.
+ *
+ * The published events are copies, so subscribers may keep them.
+ *
+ * @param <E> the type of the list elements
+ */
+public class AsyncListChangePublisher<E> implements ListChangeListener<E>, Flow.Publisher<ListChangeEvent<E>>, AutoCloseable {
+
+	/**
+	 * What to do with a change when the buffer of a subscriber is full
+	 */
+	public enum OverflowPolicy {
+		/** the change is not delivered to that subscriber, and counted as dropped */
+		DROP,
+		/** the writer waits until the subscriber has room */
+		BLOCK
+	}
+
+	/*
+	 * a published event and the time it was published at
+	 */
+	private static final class Envelope<E> {
+		final ListChangeEvent<E> event;
+		final long published;
+
+		Envelope(ListChangeEvent<E> event, long published) {
+			this.event = event;
+			this.published = published;
+		}
+	}
+
+	private final SubmissionPublisher<Envelope<E>> publisher;
+	private final OverflowPolicy policy;
+	private final ExecutorService ownExecutor; // shut down on close, null if the executor was given
+	private final AtomicLong published = new AtomicLong();
+	private final List<MeteredSubscriber> subscribers = new CopyOnWriteArrayList<>();
+	/* publishers share it, subscribe takes it alone so no change is in flight while it registers */
+	private final ReadWriteLock registration = new ReentrantReadWriteLock();
+
+	private AsyncListChangePublisher(Builder builder) {
+		this.policy = builder.policy;
+		Executor executor = builder.executor;
+		this.ownExecutor = builder.virtualThreads ? virtualThreadExecutor() : null;
+		if (ownExecutor != null)
+			executor = ownExecutor;
+		this.publisher = new SubmissionPublisher<>(executor, builder.bufferSize);
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/*
+	 * Executors.newVirtualThreadPerTaskExecutor() exists as of Java 21, this code
+	 * is compiled for older versions, so it is looked up at run time
+	 */
+	private static ExecutorService virtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (NoSuchMethodException e) {
+			throw new UnsupportedOperationException("virtual threads need Java 21 or later", e);
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new IllegalStateException("cannot create a virtual thread executor", e);
+		}
+	}
+
+	@Override
+	public void onChanged(ListChangeEvent<E> event) {
+		publish(event.copy());
+	}
+
+	@Override
+	public void onChanges(ListChangeSet<E> changes) {
+		for (ListChangeEvent<E> event : changes)
+			publish(event.copy());
+	}
+
+	private void publish(ListChangeEvent<E> event) {
+		Envelope<E> envelope = new Envelope<>(event, System.nanoTime());
+		registration.readLock().lock();
+		try {
+			published.incrementAndGet();
+			if (policy == OverflowPolicy.BLOCK)
+				publisher.submit(envelope);
+			else
+				publisher.offer(envelope, (subscriber, dropped) -> {
+					// only metered subscribers are subscribed, the wildcard keeps the cast checked
+					((AsyncListChangePublisher<?>.MeteredSubscriber) subscriber).dropped.increment();
+					return false; // no retry
+				});
+		} finally {
+			registration.readLock().unlock();
+		}
+	}
+
+	/**
+	 * registers the subscriber once the changes being published have been
+	 * offered, so its queue depth counts exactly the changes offered to it. With
+	 * {@link OverflowPolicy#BLOCK} this may wait for a full buffer, so do not
+	 * subscribe from the consumer thread of another subscriber.
+	 */
+	@Override
+	public void subscribe(Flow.Subscriber<? super ListChangeEvent<E>> subscriber) {
+		registration.writeLock().lock();
+		try {
+			MeteredSubscriber metered = new MeteredSubscriber(subscriber, published.get());
+			subscribers.add(metered);
+			publisher.subscribe(metered);
+		} finally {
+			registration.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the metrics of the current subscribers, in subscription order
+	 */
+	public List<SubscriberMetrics> metrics() {
+		List<SubscriberMetrics> metrics = new ArrayList<>(subscribers.size());
+		for (MeteredSubscriber subscriber : subscribers)
+			metrics.add(subscriber.metrics());
+		return metrics;
+	}
+
+	/**
+	 * @return the number of changes published so far
+	 */
+	public long published() {
+		return published.get();
+	}
+
+	/**
+	 * completes the subscribers once they have consumed their buffers, and shuts
+	 * down the virtual thread executor, if any
+	 */
+	@Override
+	public void close() {
+		publisher.close();
+		if (ownExecutor != null)
+			ownExecutor.shutdown();
+	}
+
+	/*
+	 * unwraps the events for the subscriber and keeps its counters
+	 */
+	private final class MeteredSubscriber implements Flow.Subscriber<Envelope<E>> {
+
+		private final Flow.Subscriber<? super ListChangeEvent<E>> subscriber;
+		private final long base; // the number of changes offered before the subscription
+		private final LongAdder delivered = new LongAdder();
+		private final LongAdder dropped = new LongAdder();
+		private volatile long lastLag;
+		private volatile long maxLag;
+
+		MeteredSubscriber(Flow.Subscriber<? super ListChangeEvent<E>> subscriber, long base) {
+			this.subscriber = subscriber;
+			this.base = base;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			subscriber.onSubscribe(subscription);
+		}
+
+		@Override
+		public void onNext(Envelope<E> envelope) {
+			long lag = System.nanoTime() - envelope.published;
+			lastLag = lag;
+			if (lag > maxLag)
+				maxLag = lag; // only the consumer thread of this subscriber writes it
+			try {
+				subscriber.onNext(envelope.event);
+			} finally {
+				delivered.increment();
+			}
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			subscribers.remove(this);
+			subscriber.onError(throwable);
+		}
+
+		@Override
+		public void onComplete() {
+			subscribers.remove(this);
+			subscriber.onComplete();
+		}
+
+		SubscriberMetrics metrics() {
+			long delivered = this.delivered.sum(), dropped = this.dropped.sum();
+			long depth = Math.max(0, published.get() - base - delivered - dropped);
+			return new SubscriberMetrics(subscriber, delivered, dropped, depth, lastLag, maxLag);
+		}
+	}
+
+	/**
+	 * The class SubscriberMetrics is a snapshot of the counters of a subscriber.
+	 * The counters are read one by one while the changes flow, so the queue depth
+	 * is an estimate.
+	 */
+	public static final class SubscriberMetrics {
+
+		private final Flow.Subscriber<?> subscriber;
+		private final long delivered, dropped, queueDepth, lagNanos, maxLagNanos;
+
+		SubscriberMetrics(Flow.Subscriber<?> subscriber, long delivered, long dropped, long queueDepth, long lagNanos, long maxLagNanos) {
+			this.subscriber = subscriber;
+			this.delivered = delivered;
+			this.dropped = dropped;
+			this.queueDepth = queueDepth;
+			this.lagNanos = lagNanos;
+			this.maxLagNanos = maxLagNanos;
+		}
+
+		public Flow.Subscriber<?> subscriber() {
+			return subscriber;
+		}
+
+		/**
+		 * @return the number of changes passed to the subscriber
+		 */
+		public long delivered() {
+			return delivered;
+		}
+
+		/**
+		 * @return the number of changes dropped because the buffer was full
+		 */
+		public long dropped() {
+			return dropped;
+		}
+
+		/**
+		 * @return the number of changes published but not yet delivered
+		 */
+		public long queueDepth() {
+			return queueDepth;
+		}
+
+		/**
+		 * @return the time between the publication and the delivery of the last
+		 *         delivered change
+		 */
+		public long lagNanos() {
+			return lagNanos;
+		}
+
+		/**
+		 * @return the longest time between the publication and the delivery of a
+		 *         change
+		 */
+		public long maxLagNanos() {
+			return maxLagNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("delivered=%d, dropped=%d, queue depth=%d, lag=%.3f ms, max lag=%.3f ms", delivered, dropped, queueDepth,
+					lagNanos / 1e6, maxLagNanos / 1e6);
+		}
+	}
+
+	/*
+	 * a subscriber that takes the given time for each change
+	 */
+	private static <E> Flow.Subscriber<ListChangeEvent<E>> subscriber(String name, long sleepMillis) {
+		return new Flow.Subscriber<>() {
+
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				subscription.request(Long.MAX_VALUE);
+			}
+
+			@Override
+			public void onNext(ListChangeEvent<E> event) {
+				if (sleepMillis > 0)
+					try {
+						Thread.sleep(sleepMillis);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				throwable.printStackTrace();
+			}
+
+			@Override
+			public void onComplete() {
+				System.out.printf("%s completed%n", name);
+			}
+
+			@Override
+			public String toString() {
+				return name;
+			}
+		};
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		ObservableArrayList<Integer> list = new ObservableArrayList<>();
+		try (AsyncListChangePublisher<Integer> publisher = AsyncListChangePublisher.builder().bufferSize(1024).policy(OverflowPolicy.DROP).build()) {
+			list.addListener(publisher);
+			publisher.subscribe(subscriber("fast", 0));
+			publisher.subscribe(subscriber("slow", 1));
+			long start = System.nanoTime();
+			for (int i = 0; i < 10_000; i++)
+				list.add(i);
+			System.out.printf("10000 changes published in %.1f ms%n", (System.nanoTime() - start) / 1e6);
+			Thread.sleep(100);
+			for (SubscriberMetrics metrics : publisher.metrics())
+				System.out.printf("%s: %s%n", metrics.subscriber(), metrics);
+		}
+		Thread.sleep(200);
+	}
+
+	/**
+	 * The class Builder configures an {@link AsyncListChangePublisher}
+	 */
+	public static final class Builder {
+
+		private int bufferSize = Flow.defaultBufferSize();
+		private OverflowPolicy policy = OverflowPolicy.BLOCK;
+		private Executor executor = defaultExecutor();
+		private boolean virtualThreads;
+
+		private Builder() {
+		}
+
+		/*
+		 * like SubmissionPublisher, a thread per task when the common pool has a single
+		 * worker, which a blocking subscriber would take from all the others
+		 */
+		private static Executor defaultExecutor() {
+			return ForkJoinPool.getCommonPoolParallelism() > 1 ? ForkJoinPool.commonPool() : task -> new Thread(task).start();
+		}
+
+		/**
+		 * @param bufferSize the maximal number of changes buffered per subscriber,
+		 *                   rounded up to a power of two
+		 * @return this builder
+		 */
+		public Builder bufferSize(int bufferSize) {
+			if (bufferSize <= 0)
+				throw new IllegalArgumentException("the buffer size must be positive");
+			this.bufferSize = bufferSize;
+			return this;
+		}
+
+		/**
+		 * @param policy what to do when the buffer of a subscriber is full, BLOCK by
+		 *               default
+		 * @return this builder
+		 */
+		public Builder policy(OverflowPolicy policy) {
+			if (policy == null)
+				throw new IllegalArgumentException("policy is null");
+			this.policy = policy;
+			return this;
+		}
+
+		/**
+		 * @param executor the executor that runs the subscribers, the common
+		 *                 fork/join pool (if it has more than one worker) by
+		 *                 default
+		 * @return this builder
+		 */
+		public Builder executor(Executor executor) {
+			if (executor == null)
+				throw new IllegalArgumentException("executor is null");
+			this.executor = executor;
+			this.virtualThreads = false;
+			return this;
+		}
+
+		/**
+		 * @param virtualThreads true to run the subscribers on virtual threads (Java
+		 *                       21 or later), instead of the executor
+		 * @return this builder
+		 */
+		public Builder virtualThreads(boolean virtualThreads) {
+			this.virtualThreads = virtualThreads;
+			return this;
+		}
+
+		/**
+		 * @return a new publisher
+		 * @throws UnsupportedOperationException if virtual threads were requested
+		 *                                       and the runtime has none
+		 */
+		public <E> AsyncListChangePublisher<E> build() {
+			return new AsyncListChangePublisher<>(this);
+		}
+	}
+}
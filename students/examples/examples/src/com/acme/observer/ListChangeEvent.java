@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.observer;
+
+import java.util.List;
+
+/**
+ * The class ListChangeEvent describes a change of an
+ * {@link ObservableArrayList} as a splice: at index {@link #from()},
+ * {@link #removedSize()} elements were removed and {@link #addedSize()}
+ * elements were inserted in their place.
+ *
+ * The list reuses a single event for all its notifications, so a listener
+ * must not keep the event (or pass it to another thread) after it returns.
+ * Use {@link #copy()} to keep one.
+ *
+ * @param <E> the type of the list elements
+ */
+public class ListChangeEvent<E> {
+
+	/**
+	 * The type of a change
+	 */
+	public enum Type {
+		/** a single element was inserted */
+		ADD,
+		/** a single element was removed */
+		REMOVE,
+		/** a single element was replaced */
+		SET,
+		/** a range of elements was replaced by another (either may be empty) */
+		RANGE,
+		/** all the elements were removed */
+		CLEAR
+	}
+
+	private final List<E> source;
+	private Type type;
+	private int from;
+	private int addedSize;
+	private int removedSize;
+	private E element;
+	private E removed;
+
+	ListChangeEvent(List<E> source) {
+		this.source = source;
+	}
+
+	ListChangeEvent<E> reset(Type type, int from, int addedSize, int removedSize, E element, E removed) {
+		this.type = type;
+		this.from = from;
+		this.addedSize = addedSize;
+		this.removedSize = removedSize;
+		this.element = element;
+		this.removed = removed;
+		return this;
+	}
+
+	/**
+	 * @return the list that changed
+	 */
+	public List<E> source() {
+		return source;
+	}
+
+	public Type type() {
+		return type;
+	}
+
+	/**
+	 * @return the index of the first changed element
+	 */
+	public int from() {
+		return from;
+	}
+
+	/**
+	 * @return the index after the last inserted element, from() + addedSize()
+	 */
+	public int to() {
+		return from + addedSize;
+	}
+
+	/**
+	 * @return the number of inserted elements
+	 */
+	public int addedSize() {
+		return addedSize;
+	}
+
+	/**
+	 * @return the number of removed elements
+	 */
+	public int removedSize() {
+		return removedSize;
+	}
+
+	/**
+	 * @return the inserted element of an ADD or SET, otherwise null. The inserted
+	 *         elements of a RANGE are source().subList(from(), to()).
+	 */
+	public E element() {
+		return element;
+	}
+
+	/**
+	 * @return the removed element of a REMOVE or SET, otherwise null
+	 */
+	public E removed() {
+		return removed;
+	}
+
+	/**
+	 * @return a copy of this event that may be kept after the notification
+	 */
+	public ListChangeEvent<E> copy() {
+		return new ListChangeEvent<>(source).reset(type, from, addedSize, removedSize, element, removed);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s [from=%d, added=%d, removed=%d, element=%s, removed element=%s]", type, from, addedSize, removedSize, element, removed);
+	}
+}
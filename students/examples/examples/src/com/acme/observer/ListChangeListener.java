@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.observer;
+
+/**
+ * The interface ListChangeListener is notified of the changes of an
+ * {@link ObservableArrayList}, on the thread that made the change.
+ *
+ * @param <E> the type of the list elements
+ */
+@FunctionalInterface
+public interface ListChangeListener<E> {
+
+	/**
+	 * called after every change of the list. The event is reused by the list, see
+	 * {@link ListChangeEvent#copy()}.
+	 *
+	 * @param event the change
+	 */
+	void onChanged(ListChangeEvent<E> event);
+
+	/**
+	 * called once at the end of a batch (see
+	 * {@link ObservableArrayList#beginBatch()}) with all its changes. By default
+	 * every splice of the set is passed to {@link #onChanged(ListChangeEvent)}.
+	 *
+	 * @param changes the coalesced changes of the batch
+	 */
+	default void onChanges(ListChangeSet<E> changes) {
+		for (ListChangeEvent<E> event : changes)
+			onChanged(event);
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.observer;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.acme.observer.ListChangeEvent.Type;
+
+/**
+ * The class ListChangeSet holds the changes of an {@link ObservableArrayList}
+ * batch as a compact sequence of splices (from, added size, removed size), in
+ * the order they were made, each one relative to the list as left by the
+ * previous ones. A change that touches the range of the previous splice is
+ * merged into it, so appending (or removing) n adjacent elements is a single
+ * splice.
+ *
+ * It is iterated as {@link Type#RANGE} {@link ListChangeEvent}s; like the
+ * events of the list, the iterated event is reused.
+ *
+ * @param <E> the type of the list elements
+ */
+public class ListChangeSet<E> implements Iterable<ListChangeEvent<E>> {
+
+	private final List<E> source;
+	private int[] splices = new int[3 * 4]; // from, added size, removed size
+	private int size;
+
+	ListChangeSet(List<E> source) {
+		this.source = source;
+	}
+
+	/*
+	 * the splice (from2, added2, removed2) touches the last splice (from, added,
+	 * removed) if its removed range overlaps or borders the added range of the
+	 * last one. The overlapping elements were added and then removed, so they
+	 * cancel out, and the rest of both ranges is added up.
+	 */
+	void add(int from2, int added2, int removed2) {
+		if (size > 0) {
+			int i = 3 * (size - 1), from = splices[i], added = splices[i + 1], removed = splices[i + 2];
+			if (from2 <= from + added && from2 + removed2 >= from) {
+				int overlap = Math.min(from + added, from2 + removed2) - Math.max(from, from2);
+				splices[i] = Math.min(from, from2);
+				splices[i + 1] = added + added2 - overlap;
+				splices[i + 2] = removed + removed2 - overlap;
+				if (splices[i + 1] == 0 && splices[i + 2] == 0)
+					size--;
+				return;
+			}
+		}
+		if (3 * size == splices.length)
+			splices = Arrays.copyOf(splices, splices.length * 2);
+		int i = 3 * size++;
+		splices[i] = from2;
+		splices[i + 1] = added2;
+		splices[i + 2] = removed2;
+	}
+
+	void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @return the list that changed
+	 */
+	public List<E> source() {
+		return source;
+	}
+
+	/**
+	 * @return the number of splices
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int from(int index) {
+		return splices[3 * checkIndex(index)];
+	}
+
+	public int addedSize(int index) {
+		return splices[3 * checkIndex(index) + 1];
+	}
+
+	public int removedSize(int index) {
+		return splices[3 * checkIndex(index) + 2];
+	}
+
+	private int checkIndex(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException(index);
+		return index;
+	}
+
+	@Override
+	public Iterator<ListChangeEvent<E>> iterator() {
+		return new Iterator<ListChangeEvent<E>>() {
+
+			private final ListChangeEvent<E> event = new ListChangeEvent<>(source);
+			private int index;
+
+			@Override
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			@Override
+			public ListChangeEvent<E> next() {
+				if (index >= size)
+					throw new NoSuchElementException();
+				int i = 3 * index++;
+				return event.reset(Type.RANGE, splices[i], splices[i + 1], splices[i + 2], null, null);
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder("ListChangeSet [");
+		for (int i = 0; i < size; i++)
+			buffer.append(i == 0 ? "" : ", ").append('(').append(splices[3 * i]).append(", +").append(splices[3 * i + 1]).append(", -")
+					.append(splices[3 * i + 2]).append(')');
+		return buffer.append(']').toString();
+	}
+}
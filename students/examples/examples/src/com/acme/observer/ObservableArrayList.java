@@ -0,0 +1,361 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.observer;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import com.acme.observer.ListChangeEvent.Type;
+
+/**
+ * The class ObservableArrayList is an array list that notifies
+ * {@link ListChangeListener}s of its changes with typed
+ * {@link ListChangeEvent}s.
+ *
+ * Unlike {@link ObservableList}, which extends the synchronized
+ * {@link java.util.Observable} and builds a message string for every change,
+ * the listeners are kept in a copy-on-write array that is read without a lock,
+ * a change with no listeners costs a single volatile read, and a single event
+ * object is reused for all notifications.
+ *
+ * The changes made between {@link #beginBatch()} and {@link #commitBatch()}
+ * (or in {@link #mutate(Consumer)}) are not reported one by one but coalesced
+ * into a {@link ListChangeSet} that is delivered once, when the batch ends.
+ *
+ * Like {@link ArrayList}, the list itself is not thread safe. Listeners may be
+ * added and removed from any thread.
+ *
+ * @param <E> the type of the list elements
+ */
+public class ObservableArrayList<E> extends AbstractList<E> implements RandomAccess {
+
+	@SuppressWarnings("rawtypes")
+	private static final ListChangeListener[] NO_LISTENERS = new ListChangeListener[0];
+
+	private final ArrayList<E> list;
+	@SuppressWarnings("unchecked")
+	private final AtomicReference<ListChangeListener<E>[]> listeners = new AtomicReference<>(NO_LISTENERS);
+	private final ListChangeEvent<E> event = new ListChangeEvent<>(this);
+	private boolean firing; // a listener changed the list, the shared event is in use
+	private int batch; // the depth of nested batches
+	private ListChangeSet<E> changes;
+
+	public ObservableArrayList() {
+		this.list = new ArrayList<>();
+	}
+
+	public ObservableArrayList(int capacity) {
+		this.list = new ArrayList<>(capacity);
+	}
+
+	public ObservableArrayList(Collection<? extends E> elements) {
+		this.list = new ArrayList<>(elements);
+	}
+
+	/*
+	 * copy on write: the array is never modified once published, so the
+	 * notification loop reads it without a lock
+	 */
+	public void addListener(ListChangeListener<E> listener) {
+		if (listener == null)
+			throw new IllegalArgumentException("listener is null");
+		ListChangeListener<E>[] current, updated;
+		do {
+			current = listeners.get();
+			updated = Arrays.copyOf(current, current.length + 1);
+			updated[current.length] = listener;
+		} while (!listeners.compareAndSet(current, updated));
+	}
+
+	public boolean removeListener(ListChangeListener<E> listener) {
+		ListChangeListener<E>[] current, updated;
+		do {
+			current = listeners.get();
+			int index = 0;
+			while (index < current.length && current[index] != listener)
+				index++;
+			if (index == current.length)
+				return false;
+			updated = Arrays.copyOf(current, current.length - 1);
+			System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+		} while (!listeners.compareAndSet(current, updated));
+		return true;
+	}
+
+	/**
+	 * @return the number of registered listeners
+	 */
+	public int listenerCount() {
+		return listeners.get().length;
+	}
+
+	/**
+	 * start a batch of changes, which are reported together when the batch is
+	 * committed. Batches may be nested, the changes are reported when the outer
+	 * one is committed.
+	 */
+	public void beginBatch() {
+		if (batch++ == 0 && changes == null)
+			changes = new ListChangeSet<>(this);
+	}
+
+	/**
+	 * end a batch of changes, and report the coalesced changes to the listeners if
+	 * this is the outer batch
+	 *
+	 * @throws IllegalStateException if no batch was started
+	 */
+	public void commitBatch() {
+		if (batch == 0)
+			throw new IllegalStateException("no batch to commit");
+		if (--batch > 0 || changes.isEmpty())
+			return;
+		ListChangeSet<E> committed = changes;
+		changes = null; // a listener may start a batch of its own
+		try {
+			for (ListChangeListener<E> listener : listeners.get())
+				listener.onChanges(committed);
+		} finally {
+			committed.clear();
+			if (changes == null)
+				changes = committed;
+		}
+	}
+
+	/**
+	 * a method to make several changes in a single batch, which is committed even
+	 * if the mutation fails half way
+	 *
+	 * @param mutation the changes to make to this list
+	 */
+	public void mutate(Consumer<? super List<E>> mutation) {
+		beginBatch();
+		try {
+			mutation.accept(this);
+		} finally {
+			commitBatch();
+		}
+	}
+
+	private void fire(Type type, int from, int addedSize, int removedSize, E element, E removed) {
+		if (batch > 0) {
+			changes.add(from, addedSize, removedSize);
+			return;
+		}
+		ListChangeListener<E>[] snapshot = listeners.get();
+		if (snapshot.length == 0)
+			return;
+		if (firing) { // a listener changed the list while the shared event is being delivered
+			ListChangeEvent<E> nested = new ListChangeEvent<E>(this).reset(type, from, addedSize, removedSize, element, removed);
+			for (ListChangeListener<E> listener : snapshot)
+				listener.onChanged(nested);
+			return;
+		}
+		event.reset(type, from, addedSize, removedSize, element, removed);
+		firing = true;
+		try {
+			for (ListChangeListener<E> listener : snapshot)
+				listener.onChanged(event);
+		} finally {
+			firing = false;
+			event.reset(null, 0, 0, 0, null, null); // do not hold on to the elements
+		}
+	}
+
+	@Override
+	public int size() {
+		return list.size();
+	}
+
+	@Override
+	public E get(int index) {
+		return list.get(index);
+	}
+
+	@Override
+	public boolean add(E element) {
+		list.add(element);
+		modCount++;
+		fire(Type.ADD, list.size() - 1, 1, 0, element, null);
+		return true;
+	}
+
+	@Override
+	public void add(int index, E element) {
+		list.add(index, element);
+		modCount++;
+		fire(Type.ADD, index, 1, 0, element, null);
+	}
+
+	@Override
+	public E set(int index, E element) {
+		E removed = list.set(index, element);
+		fire(Type.SET, index, 1, 1, element, removed);
+		return removed;
+	}
+
+	@Override
+	public E remove(int index) {
+		E removed = list.remove(index);
+		modCount++;
+		fire(Type.REMOVE, index, 0, 1, null, removed);
+		return removed;
+	}
+
+	@Override
+	public boolean remove(Object element) {
+		int index = list.indexOf(element);
+		if (index < 0)
+			return false;
+		remove(index);
+		return true;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends E> elements) {
+		return addAll(list.size(), elements);
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends E> elements) {
+		int size = list.size();
+		if (!list.addAll(index, elements))
+			return false;
+		modCount++;
+		fire(Type.RANGE, index, list.size() - size, 0, null, null);
+		return true;
+	}
+
+	/*
+	 * used by subList(from, to).clear()
+	 */
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		if (fromIndex >= toIndex)
+			return;
+		list.subList(fromIndex, toIndex).clear();
+		modCount++;
+		fire(Type.RANGE, fromIndex, 0, toIndex - fromIndex, null, null);
+	}
+
+	/*
+	 * the removed indices are marked first, so the removal takes a single pass of
+	 * the backing list and is reported as one splice per run of adjacent elements
+	 */
+	@Override
+	public boolean removeIf(Predicate<? super E> filter) {
+		Objects.requireNonNull(filter);
+		BitSet doomed = new BitSet();
+		for (int i = 0, size = list.size(); i < size; i++)
+			if (filter.test(list.get(i)))
+				doomed.set(i);
+		if (doomed.isEmpty())
+			return false;
+		/* move the kept elements down over the removed ones, and cut the tail */
+		int size = list.size(), kept = doomed.nextSetBit(0);
+		for (int i = kept + 1; i < size; i++)
+			if (!doomed.get(i))
+				list.set(kept++, list.get(i));
+		list.subList(kept, size).clear();
+		modCount++;
+		beginBatch();
+		try {
+			int removed = 0;
+			for (int i = doomed.nextSetBit(0); i >= 0; i = doomed.nextSetBit(i + 1))
+				changes.add(i - removed++, 0, 1);
+		} finally {
+			commitBatch();
+		}
+		return true;
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> elements) {
+		Objects.requireNonNull(elements);
+		return removeIf(elements::contains);
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> elements) {
+		Objects.requireNonNull(elements);
+		return removeIf(element -> !elements.contains(element));
+	}
+
+	@Override
+	public void clear() {
+		int size = list.size();
+		if (size == 0)
+			return;
+		list.clear();
+		modCount++;
+		fire(Type.CLEAR, 0, 0, size, null, null);
+	}
+
+	@Override
+	public String toString() {
+		return "ObservableArrayList: " + list.toString();
+	}
+
+	public static void main(String[] args) {
+		ObservableArrayList<String> list = new ObservableArrayList<>();
+		ListChangeListener<String> printer = event -> System.out.printf("%s -> %s%n", event, event.source());
+		list.addListener(printer);
+		list.add("Tomer");
+		list.add("Silverman");
+		list.add("Design Patterns");
+		list.remove("blah"); // no change
+		list.set(0, "tomer");
+		list.set(1, "silverman");
+		list.remove("Design Patterns");
+		list.addAll(Arrays.asList("Observer", "Composite", "Flyweight"));
+		list.subList(2, 4).clear();
+		list.removeListener(printer);
+		list.addListener(new ListChangeListener<String>() {
+
+			@Override
+			public void onChanged(ListChangeEvent<String> event) {
+				System.out.printf("%s%n", event);
+			}
+
+			@Override
+			public void onChanges(ListChangeSet<String> changes) {
+				System.out.printf("%s, %d elements%n", changes, changes.source().size());
+			}
+		});
+		list.mutate(strings -> {
+			for (int i = 0; i < 100_000; i++)
+				strings.add("row " + i);
+			strings.set(0, "Tomer");
+			strings.remove(strings.size() - 1);
+		});
+		list.removeIf(string -> string.startsWith("row "));
+		list.clear();
+	}
+}
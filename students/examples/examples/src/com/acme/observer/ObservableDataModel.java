@@ -31,13 +31,18 @@ import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JList;
 import javax.swing.JScrollPane;
+import javax.swing.event.ListDataEvent;
 import javax.swing.event.ListDataListener;
 
 /**
- * The class ObservableDataModel demonstrates how using a
- * {@link DefaultListModel} makes it report changes to the
+ * The class ObservableDataModel demonstrates how using a list model (like a
+ * {@link DefaultListModel}) makes it report changes to the
  * {@link ListDataListener} and separates the concern of data changes and
  * displaying it.
+ *
+ * The model is a {@link VirtualIntListModel}, which reports the values added
+ * in a frame as a single interval, so the list stays responsive when a million
+ * values are added at once.
  */
 public class ObservableDataModel extends JFrame {
 
@@ -45,16 +50,37 @@ public class ObservableDataModel extends JFrame {
 	/**
 	 * This is our observed model
 	 */
-	private DefaultListModel<Integer> observableListModel = new DefaultListModel<>();
+	private VirtualIntListModel observableListModel = new VirtualIntListModel();
 	private JList<Integer> listObserver = new JList<>(observableListModel);
 	private JButton addBtn = new JButton("Add Random ");
+	private JButton addMillionBtn = new JButton("Add 1,000,000");
 	private JScrollPane scrollPane = new JScrollPane(listObserver);
-	// define action listener
+	// define action listeners
 	private ActionListener actionListener = e -> {
 		int rand = ThreadLocalRandom.current().nextInt(100) + 1;
-		observableListModel.addElement(rand); // we only add data to the model. It is responsible to update it's container
-		listObserver.ensureIndexIsVisible(listObserver.getModel().getSize() - 1);
-		setTitle(String.format("Size: %d", listObserver.getModel().getSize()));
+		observableListModel.append(rand); // we only add data to the model. It is responsible to update it's container
+	};
+	private ActionListener bulkActionListener = e -> {
+		int[] values = ThreadLocalRandom.current().ints(1_000_000, 1, 101).toArray();
+		observableListModel.appendAll(values);
+	};
+	// the model reports the values added in a frame at once, so the view is updated once per frame
+	private ListDataListener listDataListener = new ListDataListener() {
+
+		@Override
+		public void intervalAdded(ListDataEvent e) {
+			listObserver.ensureIndexIsVisible(e.getIndex1());
+			setTitle(String.format("Size: %d", listObserver.getModel().getSize()));
+		}
+
+		@Override
+		public void intervalRemoved(ListDataEvent e) {
+			setTitle(String.format("Size: %d", listObserver.getModel().getSize()));
+		}
+
+		@Override
+		public void contentsChanged(ListDataEvent e) {
+		}
 	};
 
 	public ObservableDataModel() {
@@ -67,10 +93,15 @@ public class ObservableDataModel extends JFrame {
 		setLayout(new BorderLayout(5, 5));
 		add(scrollPane, BorderLayout.NORTH);
 		add(addBtn, BorderLayout.CENTER);
-		// add action listener
+		add(addMillionBtn, BorderLayout.SOUTH);
+		// a fixed cell size, so the list does not measure every value
+		listObserver.setPrototypeCellValue(Integer.MAX_VALUE);
+		// add listeners
 		addBtn.addActionListener(actionListener);
+		addMillionBtn.addActionListener(bulkActionListener);
+		observableListModel.addListDataListener(listDataListener);
 		setTitle(String.format("Size: %d", 0));
-		setSize(200, 200);
+		setSize(200, 240);
 		// center the frame
 		Dimension dim = Toolkit.getDefaultToolkit().getScreenSize();
 		int x = (dim.width - getSize().width) / 2;
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.observer;
+
+import java.util.Arrays;
+
+import javax.swing.AbstractListModel;
+import javax.swing.JList;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * The class VirtualIntListModel is a list model of ints for a {@link JList}
+ * with millions of elements. The values are kept in a primitive int array and
+ * boxed only when a visible cell asks for one, and the appends are not
+ * reported one by one: they are collected and reported as a single interval
+ * per frame, so the list lays out and repaints once per frame no matter how
+ * many values arrive.
+ *
+ * The values may be appended from any thread. The list only sees them (in
+ * {@link #getSize()} and the events) once they are published on the event
+ * dispatch thread. Give the list a fixed cell size (e.g. a prototype cell
+ * value), otherwise it measures every cell to find the widest.
+ */
+public class VirtualIntListModel extends AbstractListModel<Integer> {
+
+	private static final long serialVersionUID = 4790128547356314367L;
+
+	/**
+	 * the default interval between two change events, about 60 per second
+	 */
+	public static final int FRAME_MILLIS = 16;
+
+	private int[] values;
+	private int size; // the number of appended values
+	private int published; // the number of values the list knows of, only used on the event dispatch thread
+	private boolean scheduled; // a publication is pending
+	private final Timer timer;
+
+	public VirtualIntListModel() {
+		this(1024, FRAME_MILLIS);
+	}
+
+	/**
+	 * @param capacity    the number of values to allocate up front
+	 * @param frameMillis the minimal interval between two change events
+	 */
+	public VirtualIntListModel(int capacity, int frameMillis) {
+		values = new int[Math.max(capacity, 16)];
+		timer = new Timer(frameMillis, e -> publish());
+		timer.setRepeats(false);
+	}
+
+	/**
+	 * append a value, which is reported with the other values appended in the same
+	 * frame
+	 *
+	 * @param value the value to append
+	 */
+	public synchronized void append(int value) {
+		if (size == values.length)
+			values = Arrays.copyOf(values, values.length * 2);
+		values[size++] = value;
+		schedule();
+	}
+
+	/**
+	 * append a range of values
+	 *
+	 * @param source the values to append
+	 * @param offset the index of the first value to append
+	 * @param length the number of values to append
+	 */
+	public synchronized void appendAll(int[] source, int offset, int length) {
+		if (length == 0)
+			return;
+		if (size + length > values.length)
+			values = Arrays.copyOf(values, Math.max(values.length * 2, size + length));
+		System.arraycopy(source, offset, values, size, length);
+		size += length;
+		schedule();
+	}
+
+	public void appendAll(int[] source) {
+		appendAll(source, 0, source.length);
+	}
+
+	/*
+	 * the timer starts at the first append after a publication, so the appends of
+	 * a frame are published together
+	 */
+	private void schedule() {
+		if (!scheduled) {
+			scheduled = true;
+			timer.start();
+		}
+	}
+
+	/*
+	 * report the values appended since the last publication, on the event dispatch
+	 * thread
+	 */
+	private void publish() {
+		int from = published, to;
+		synchronized (this) {
+			scheduled = false;
+			to = size;
+		}
+		if (to == from)
+			return;
+		published = to;
+		fireIntervalAdded(this, from, to - 1);
+	}
+
+	/**
+	 * publish the pending values now, without waiting for the end of the frame.
+	 * Must be called on the event dispatch thread.
+	 */
+	public void flush() {
+		if (!SwingUtilities.isEventDispatchThread())
+			throw new IllegalStateException("flush must be called on the event dispatch thread");
+		timer.stop();
+		publish();
+	}
+
+	/**
+	 * remove all the values. Must be called on the event dispatch thread.
+	 */
+	public void clear() {
+		if (!SwingUtilities.isEventDispatchThread())
+			throw new IllegalStateException("clear must be called on the event dispatch thread");
+		timer.stop();
+		int removed = published;
+		synchronized (this) {
+			size = 0;
+			scheduled = false;
+		}
+		published = 0;
+		if (removed > 0)
+			fireIntervalRemoved(this, 0, removed - 1);
+	}
+
+	/**
+	 * @return the number of published values
+	 */
+	@Override
+	public int getSize() {
+		return published;
+	}
+
+	@Override
+	public synchronized Integer getElementAt(int index) {
+		if (index < 0 || index >= published)
+			throw new IndexOutOfBoundsException(index);
+		return values[index];
+	}
+
+	/**
+	 * @param index the index of the value
+	 * @return the value at the given index, without boxing it
+	 */
+	public synchronized int getInt(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException(index);
+		return values[index];
+	}
+
+	/**
+	 * @return the number of appended values, including the ones not published yet
+	 */
+	public synchronized int appended() {
+		return size;
+	}
+}
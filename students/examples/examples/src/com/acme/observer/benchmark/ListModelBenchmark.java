@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.observer.benchmark;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.swing.DefaultListModel;
+import javax.swing.ListModel;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import com.acme.observer.VirtualIntListModel;
+
+/**
+ * The class ListModelBenchmark appends n random values to a
+ * {@link DefaultListModel} and to a {@link VirtualIntListModel}, one at a
+ * time and (for the virtual model) in chunks, and counts the interval events
+ * the models fire. It runs headless: the events go to a counting listener
+ * instead of a list.
+ *
+ * The time of the virtual model includes waiting for the last frame to be
+ * published.
+ *
+ * Usage: ListModelBenchmark [values] [chunk]
+ */
+public class ListModelBenchmark {
+
+	private static final int RUNS = 5;
+
+	/*
+	 * counts the events, the listener of a list would lay it out on each one
+	 */
+	private static final class Counter implements ListDataListener {
+		long events;
+
+		@Override
+		public void intervalAdded(ListDataEvent e) {
+			events++;
+		}
+
+		@Override
+		public void intervalRemoved(ListDataEvent e) {
+			events++;
+		}
+
+		@Override
+		public void contentsChanged(ListDataEvent e) {
+			events++;
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException, InvocationTargetException {
+		System.setProperty("java.awt.headless", "true");
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int chunk = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+		int[] values = ThreadLocalRandom.current().ints(n, 1, 101).toArray();
+		System.out.printf("%-36s %10s %10s %12s%n", "model", "values", "events", "ms");
+		long best = Long.MAX_VALUE, events = 0;
+		for (int run = 0; run < RUNS; run++) { // the first runs warm up the JIT, the best one is reported
+			DefaultListModel<Integer> model = new DefaultListModel<>();
+			Counter counter = new Counter();
+			model.addListDataListener(counter);
+			long start = System.nanoTime();
+			SwingUtilities.invokeAndWait(() -> { // DefaultListModel must be changed on the event dispatch thread
+				for (int value : values)
+					model.addElement(value);
+			});
+			best = Math.min(best, System.nanoTime() - start);
+			events = counter.events;
+		}
+		System.out.printf("%-36s %10d %10d %12.1f%n", "DefaultListModel", n, events, best / 1e6);
+		best = Long.MAX_VALUE;
+		for (int run = 0; run < RUNS; run++) {
+			VirtualIntListModel model = new VirtualIntListModel();
+			Counter counter = new Counter();
+			model.addListDataListener(counter);
+			long start = System.nanoTime();
+			for (int value : values)
+				model.append(value);
+			await(model, n);
+			best = Math.min(best, System.nanoTime() - start);
+			events = counter.events;
+		}
+		System.out.printf("%-36s %10d %10d %12.1f%n", "VirtualIntListModel append", n, events, best / 1e6);
+		best = Long.MAX_VALUE;
+		for (int run = 0; run < RUNS; run++) {
+			VirtualIntListModel model = new VirtualIntListModel();
+			Counter counter = new Counter();
+			model.addListDataListener(counter);
+			long start = System.nanoTime();
+			for (int i = 0; i < n; i += chunk)
+				model.appendAll(values, i, Math.min(chunk, n - i));
+			await(model, n);
+			best = Math.min(best, System.nanoTime() - start);
+			events = counter.events;
+		}
+		System.out.printf("%-36s %10d %10d %12.1f%n", "VirtualIntListModel appendAll " + chunk, n, events, best / 1e6);
+	}
+
+	/*
+	 * wait for the model to publish all the values on the event dispatch thread
+	 */
+	private static void await(ListModel<?> model, int size) throws InterruptedException, InvocationTargetException {
+		int[] published = new int[1];
+		while (published[0] < size) {
+			Thread.sleep(1);
+			SwingUtilities.invokeAndWait(() -> published[0] = model.getSize());
+		}
+	}
+}
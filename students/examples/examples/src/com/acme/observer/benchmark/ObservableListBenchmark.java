@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.observer.benchmark;
+
+import java.util.List;
+import java.util.Observer;
+
+import com.acme.observer.ListChangeEvent;
+import com.acme.observer.ListChangeListener;
+import com.acme.observer.ListChangeSet;
+import com.acme.observer.ObservableArrayList;
+import com.acme.observer.ObservableList;
+
+/**
+ * The class ObservableListBenchmark compares the notification overhead of
+ * {@link ObservableList} (a synchronized {@link java.util.Observable} with a
+ * string message per change) with {@link ObservableArrayList} (a copy-on-write
+ * listener array and a reused typed event). Every list has one listener that
+ * only counts the notifications, and every round adds n elements, sets each of
+ * them and removes them from the end. Last, n elements are imported in a single
+ * {@link ObservableArrayList#mutate(java.util.function.Consumer)} batch.
+ *
+ * Usage: ObservableListBenchmark [changes]
+ */
+public class ObservableListBenchmark {
+
+	private static final int RUNS = 7;
+
+	private static long notifications;
+
+	@SuppressWarnings("deprecation")
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		Integer[] values = new Integer[n];
+		for (int i = 0; i < n; i++)
+			values[i] = i;
+		Observer observer = (o, arg) -> notifications++;
+		ObservableList<Integer> observable = new ObservableList<>();
+		observable.addObserver(observer);
+		ObservableArrayList<Integer> fast = new ObservableArrayList<>();
+		ListChangeListener<Integer> counter = event -> notifications++;
+		fast.addListener(counter);
+		ObservableArrayList<Integer> silent = new ObservableArrayList<>();
+		System.out.printf("%-34s %10s %14s %12s%n", "list", "changes", "notifications", "ns/change");
+		run("ObservableList", observable, values);
+		run("ObservableArrayList", fast, values);
+		run("ObservableArrayList (no listener)", silent, values);
+		fast.addListener(new ListChangeListener<Integer>() {
+
+			@Override
+			public void onChanged(ListChangeEvent<Integer> event) {
+				notifications++;
+			}
+
+			@Override
+			public void onChanges(ListChangeSet<Integer> changes) {
+				notifications++;
+			}
+		});
+		fast.removeListener(counter);
+		long best = Long.MAX_VALUE, count = 0;
+		for (int run = 0; run < RUNS; run++) {
+			notifications = 0;
+			long start = System.nanoTime();
+			fast.mutate(list -> {
+				for (Integer value : values)
+					list.add(value);
+			});
+			best = Math.min(best, System.nanoTime() - start);
+			count = notifications;
+			fast.clear();
+		}
+		System.out.printf("%-34s %10d %14d %12.1f%n", "ObservableArrayList (batch import)", n, count, (double) best / n);
+	}
+
+	private static void run(String name, List<Integer> list, Integer[] values) {
+		long best = Long.MAX_VALUE, count = 0;
+		for (int run = 0; run < RUNS; run++) { // the first runs warm up the JIT, the best one is reported
+			notifications = 0;
+			long start = System.nanoTime();
+			round(list, values);
+			best = Math.min(best, System.nanoTime() - start);
+			count = notifications;
+		}
+		System.out.printf("%-34s %10d %14d %12.1f%n", name, 3L * values.length, count, (double) best / (3L * values.length));
+	}
+
+	private static void round(List<Integer> list, Integer[] values) {
+		for (Integer value : values)
+			list.add(value);
+		for (int i = 0; i < values.length; i++)
+			list.set(i, values[values.length - i - 1]);
+		for (int i = values.length - 1; i >= 0; i--)
+			list.remove(i);
+	}
+}
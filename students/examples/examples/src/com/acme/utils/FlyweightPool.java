@@ -0,0 +1,613 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.utils;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * The class FlyweightPool is a concurrent pool of shared instances (flyweights)
+ * by key: {@link #get(Object, Function)} returns the pooled instance of the
+ * key, or creates, pools and returns one. The {@link Policy} decides how long
+ * an instance stays in the pool:
+ *
+ * <ul>
+ * <li>{@link Policy#WEAK_VALUES} while it is used elsewhere (weakly
+ * reachable)</li>
+ * <li>{@link Policy#SOFT_VALUES} until the memory runs low (softly
+ * reachable)</li>
+ * <li>{@link Policy#LRU} until the pool is full and it is the least recently
+ * used</li>
+ * <li>{@link Policy#TINY_LFU} until the pool is full and it is less frequently
+ * used than a newcomer (W-TinyLFU: a small LRU window in front of a segmented
+ * LRU main space, with admission by a frequency sketch)</li>
+ * </ul>
+ *
+ * The reference policies are lock free, the size bounded ones take a lock per
+ * operation. The factory is called without a lock, so two threads may create
+ * an instance for the same key at once, but only one of them is pooled and
+ * returned to both. Every pool keeps its {@link Stats}.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of pooled instances
+ */
+public final class FlyweightPool<K, V> {
+
+	/**
+	 * The policy that decides which instances leave the pool
+	 */
+	public enum Policy {
+		WEAK_VALUES, SOFT_VALUES, LRU, TINY_LFU
+	}
+
+	private final Policy policy;
+	private final Store<K, V> store;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	private FlyweightPool(Policy policy, int maximumSize) {
+		this.policy = policy;
+		switch (policy) {
+		case WEAK_VALUES:
+		case SOFT_VALUES:
+			store = new ReferenceStore(policy == Policy.SOFT_VALUES);
+			break;
+		case LRU:
+			store = new LruStore(maximumSize);
+			break;
+		default:
+			store = new TinyLfuStore(maximumSize);
+		}
+	}
+
+	/**
+	 * @return a pool that keeps the instances that are used elsewhere
+	 */
+	public static <K, V> FlyweightPool<K, V> weakValues() {
+		return new FlyweightPool<>(Policy.WEAK_VALUES, 0);
+	}
+
+	/**
+	 * @return a pool that keeps the instances until the memory runs low
+	 */
+	public static <K, V> FlyweightPool<K, V> softValues() {
+		return new FlyweightPool<>(Policy.SOFT_VALUES, 0);
+	}
+
+	/**
+	 * @param maximumSize the maximal number of pooled instances
+	 * @return a pool that evicts the least recently used instance when full
+	 */
+	public static <K, V> FlyweightPool<K, V> lru(int maximumSize) {
+		return new FlyweightPool<>(Policy.LRU, checkSize(maximumSize));
+	}
+
+	/**
+	 * @param maximumSize the maximal number of pooled instances
+	 * @return a pool that keeps the most frequently used instances when full
+	 */
+	public static <K, V> FlyweightPool<K, V> tinyLfu(int maximumSize) {
+		return new FlyweightPool<>(Policy.TINY_LFU, checkSize(maximumSize));
+	}
+
+	private static int checkSize(int maximumSize) {
+		if (maximumSize <= 0)
+			throw new IllegalArgumentException("the maximum size must be positive");
+		return maximumSize;
+	}
+
+	public Policy policy() {
+		return policy;
+	}
+
+	/**
+	 * a method to obtain the pooled instance of a key
+	 *
+	 * @param key     the key
+	 * @param factory creates the instance of the key if none is pooled, it must
+	 *                not return null
+	 * @return the pooled instance of the key
+	 */
+	public V get(K key, Function<? super K, ? extends V> factory) {
+		Objects.requireNonNull(key, "key");
+		return store.get(key, factory);
+	}
+
+	/**
+	 * @param key the key
+	 * @return the pooled instance of the key, or null
+	 */
+	public V getIfPresent(K key) {
+		Objects.requireNonNull(key, "key");
+		V value = store.getIfPresent(key);
+		(value == null ? misses : hits).increment();
+		return value;
+	}
+
+	/**
+	 * remove the instance of a key from the pool
+	 *
+	 * @param key the key
+	 */
+	public void invalidate(K key) {
+		store.invalidate(key);
+	}
+
+	public void clear() {
+		store.clear();
+	}
+
+	/**
+	 * @return the number of pooled instances (of the reference policies, after
+	 *         removing the collected ones)
+	 */
+	public int size() {
+		return store.size();
+	}
+
+	/**
+	 * @return a snapshot of the statistics of this pool
+	 */
+	public Stats stats() {
+		return new Stats(hits.sum(), misses.sum(), evictions.sum(), store.size());
+	}
+
+	@Override
+	public String toString() {
+		return "FlyweightPool [" + policy + ", " + stats() + "]";
+	}
+
+	/**
+	 * The class Stats is a snapshot of the counters of a pool
+	 */
+	public static final class Stats {
+
+		private final long hits, misses, evictions;
+		private final int size;
+
+		Stats(long hits, long misses, long evictions, int size) {
+			this.hits = hits;
+			this.misses = misses;
+			this.evictions = evictions;
+			this.size = size;
+		}
+
+		/**
+		 * @return the number of requests served by a pooled instance
+		 */
+		public long hits() {
+			return hits;
+		}
+
+		/**
+		 * @return the number of requests that found no pooled instance
+		 */
+		public long misses() {
+			return misses;
+		}
+
+		/**
+		 * @return the number of instances that left the pool because of its policy
+		 *         (collected or evicted)
+		 */
+		public long evictions() {
+			return evictions;
+		}
+
+		/**
+		 * @return the number of pooled instances
+		 */
+		public int size() {
+			return size;
+		}
+
+		public long requests() {
+			return hits + misses;
+		}
+
+		public double hitRate() {
+			long requests = requests();
+			return requests == 0 ? 1 : (double) hits / requests;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("hits=%d, misses=%d, hit rate=%.3f, evictions=%d, size=%d", hits, misses, hitRate(), evictions, size);
+		}
+	}
+
+	private interface Store<K, V> {
+		V get(K key, Function<? super K, ? extends V> factory);
+
+		V getIfPresent(K key);
+
+		void invalidate(K key);
+
+		void clear();
+
+		int size();
+	}
+
+	private interface KeyedReference<K> {
+		K key();
+	}
+
+	private static final class WeakValue<K, V> extends WeakReference<V> implements KeyedReference<K> {
+		private final K key;
+
+		WeakValue(K key, V value, ReferenceQueue<V> queue) {
+			super(value, queue);
+			this.key = key;
+		}
+
+		@Override
+		public K key() {
+			return key;
+		}
+	}
+
+	private static final class SoftValue<K, V> extends SoftReference<V> implements KeyedReference<K> {
+		private final K key;
+
+		SoftValue(K key, V value, ReferenceQueue<V> queue) {
+			super(value, queue);
+			this.key = key;
+		}
+
+		@Override
+		public K key() {
+			return key;
+		}
+	}
+
+	/*
+	 * the reference policies: a concurrent map of references that carry their key,
+	 * so the entries of collected instances are removed when their references are
+	 * taken from the queue at the start of every operation
+	 */
+	private final class ReferenceStore implements Store<K, V> {
+
+		private final ConcurrentHashMap<K, Reference<V>> map = new ConcurrentHashMap<>();
+		private final ReferenceQueue<V> queue = new ReferenceQueue<>();
+		private final boolean soft;
+
+		ReferenceStore(boolean soft) {
+			this.soft = soft;
+		}
+
+		@SuppressWarnings("unchecked")
+		private void expunge() {
+			for (Reference<? extends V> ref; (ref = queue.poll()) != null;)
+				if (map.remove(((KeyedReference<K>) ref).key(), ref))
+					evictions.increment();
+		}
+
+		/*
+		 * a new instance is installed only if the map still holds the (missing or
+		 * cleared) reference that was read, otherwise the other thread's instance is
+		 * used
+		 */
+		@Override
+		public V get(K key, Function<? super K, ? extends V> factory) {
+			expunge();
+			for (;;) {
+				Reference<V> ref = map.get(key);
+				V value = ref == null ? null : ref.get();
+				if (value != null) {
+					hits.increment();
+					return value;
+				}
+				value = Objects.requireNonNull(factory.apply(key), "factory returned null");
+				Reference<V> created = soft ? new SoftValue<>(key, value, queue) : new WeakValue<>(key, value, queue);
+				if (ref == null ? map.putIfAbsent(key, created) == null : map.replace(key, ref, created)) {
+					misses.increment();
+					return value;
+				}
+			}
+		}
+
+		@Override
+		public V getIfPresent(K key) {
+			expunge();
+			Reference<V> ref = map.get(key);
+			return ref == null ? null : ref.get();
+		}
+
+		@Override
+		public void invalidate(K key) {
+			map.remove(key);
+		}
+
+		@Override
+		public void clear() {
+			map.clear();
+		}
+
+		@Override
+		public int size() {
+			expunge();
+			return map.size();
+		}
+	}
+
+	/*
+	 * the LRU policy: an access ordered linked hash map under a lock
+	 */
+	private final class LruStore implements Store<K, V> {
+
+		private final Map<K, V> map;
+
+		LruStore(int maximumSize) {
+			map = new LinkedHashMap<>(16, 0.75f, true) {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+					if (size() <= maximumSize)
+						return false;
+					evictions.increment();
+					return true;
+				}
+			};
+		}
+
+		@Override
+		public V get(K key, Function<? super K, ? extends V> factory) {
+			synchronized (this) {
+				V value = map.get(key);
+				if (value != null) {
+					hits.increment();
+					return value;
+				}
+			}
+			V created = Objects.requireNonNull(factory.apply(key), "factory returned null");
+			synchronized (this) {
+				V value = map.putIfAbsent(key, created);
+				if (value != null) { // another thread got there first
+					hits.increment();
+					return value;
+				}
+			}
+			misses.increment();
+			return created;
+		}
+
+		@Override
+		public synchronized V getIfPresent(K key) {
+			return map.get(key);
+		}
+
+		@Override
+		public synchronized void invalidate(K key) {
+			map.remove(key);
+		}
+
+		@Override
+		public synchronized void clear() {
+			map.clear();
+		}
+
+		@Override
+		public synchronized int size() {
+			return map.size();
+		}
+	}
+
+	/*
+	 * a node of the W-TinyLFU lists
+	 */
+	private static final class Node<K, V> {
+		static final int WINDOW = 0, PROBATION = 1, PROTECTED = 2;
+
+		final K key;
+		V value;
+		int region;
+		Node<K, V> prev, next;
+
+		Node(K key, V value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	/*
+	 * a doubly linked list of nodes, least recently used first
+	 */
+	private static final class NodeList<K, V> {
+		final Node<K, V> head = new Node<>(null, null);
+		int size;
+
+		NodeList() {
+			head.prev = head.next = head;
+		}
+
+		Node<K, V> first() {
+			return head.next == head ? null : head.next;
+		}
+
+		void addLast(Node<K, V> node) {
+			node.prev = head.prev;
+			node.next = head;
+			head.prev.next = node;
+			head.prev = node;
+			size++;
+		}
+
+		void remove(Node<K, V> node) {
+			node.prev.next = node.next;
+			node.next.prev = node.prev;
+			node.prev = node.next = null;
+			size--;
+		}
+
+		void clear() {
+			head.prev = head.next = head;
+			size = 0;
+		}
+	}
+
+	/*
+	 * the W-TinyLFU policy. New instances enter a window LRU of 1% of the pool.
+	 * An instance that leaves the window becomes a candidate for the probation
+	 * segment of the main space, and it is admitted only if the sketch says it is
+	 * used more often than the first victim of the probation segment, otherwise it
+	 * is evicted. A hit in the probation segment promotes the instance to the
+	 * protected segment (80% of the main space), whose least recently used
+	 * instances are demoted back to probation.
+	 */
+	private final class TinyLfuStore implements Store<K, V> {
+
+		private final Map<K, Node<K, V>> map = new HashMap<>();
+		private final FrequencySketch sketch;
+		private final NodeList<K, V> window = new NodeList<>(), probation = new NodeList<>(), protect = new NodeList<>();
+		private final int maximumSize, windowSize, protectedSize;
+
+		TinyLfuStore(int maximumSize) {
+			this.maximumSize = maximumSize;
+			this.windowSize = Math.max(1, maximumSize / 100);
+			this.protectedSize = (maximumSize - windowSize) * 4 / 5;
+			this.sketch = new FrequencySketch(maximumSize);
+		}
+
+		private NodeList<K, V> list(Node<K, V> node) {
+			return node.region == Node.WINDOW ? window : node.region == Node.PROBATION ? probation : protect;
+		}
+
+		@Override
+		public V get(K key, Function<? super K, ? extends V> factory) {
+			synchronized (this) {
+				V value = hit(key);
+				if (value != null) {
+					hits.increment();
+					return value;
+				}
+			}
+			V created = Objects.requireNonNull(factory.apply(key), "factory returned null");
+			synchronized (this) {
+				V value = lookup(key); // the access was counted already
+				if (value != null) { // another thread got there first
+					hits.increment();
+					return value;
+				}
+				Node<K, V> node = new Node<>(key, created);
+				map.put(key, node);
+				window.addLast(node);
+				evict();
+			}
+			misses.increment();
+			return created;
+		}
+
+		/*
+		 * count the access and move the node up its region, or null on a miss
+		 */
+		private V hit(K key) {
+			sketch.increment(key);
+			return lookup(key);
+		}
+
+		/*
+		 * move the node up its region without counting the access, or null on a miss
+		 */
+		private V lookup(K key) {
+			Node<K, V> node = map.get(key);
+			if (node == null)
+				return null;
+			NodeList<K, V> list = list(node);
+			list.remove(node);
+			if (node.region == Node.PROBATION) {
+				node.region = Node.PROTECTED;
+				protect.addLast(node);
+				if (protect.size > protectedSize) {
+					Node<K, V> demoted = protect.first();
+					protect.remove(demoted);
+					demoted.region = Node.PROBATION;
+					probation.addLast(demoted);
+				}
+			} else
+				list.addLast(node);
+			return node.value;
+		}
+
+		private void evict() {
+			while (window.size > windowSize) {
+				Node<K, V> candidate = window.first();
+				window.remove(candidate);
+				candidate.region = Node.PROBATION;
+				probation.addLast(candidate);
+				if (map.size() <= maximumSize)
+					continue;
+				Node<K, V> victim = probation.first();
+				if (victim != candidate && sketch.frequency(candidate.key) > sketch.frequency(victim.key))
+					remove(victim);
+				else
+					remove(candidate);
+			}
+			while (map.size() > maximumSize) { // only when the window holds the whole pool
+				Node<K, V> victim = probation.first() != null ? probation.first() : protect.first() != null ? protect.first() : window.first();
+				remove(victim);
+			}
+		}
+
+		private void remove(Node<K, V> node) {
+			list(node).remove(node);
+			map.remove(node.key);
+			evictions.increment();
+		}
+
+		@Override
+		public synchronized V getIfPresent(K key) {
+			Node<K, V> node = map.get(key);
+			return node == null ? null : hit(key);
+		}
+
+		@Override
+		public synchronized void invalidate(K key) {
+			Node<K, V> node = map.remove(key);
+			if (node != null)
+				list(node).remove(node);
+		}
+
+		@Override
+		public synchronized void clear() {
+			map.clear();
+			window.clear();
+			probation.clear();
+			protect.clear();
+		}
+
+		@Override
+		public synchronized int size() {
+			return map.size();
+		}
+	}
+}
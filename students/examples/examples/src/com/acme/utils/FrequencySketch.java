@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.utils;
+
+/**
+ * The class FrequencySketch estimates how often keys were seen, for the
+ * admission of the W-TinyLFU policy of {@link FlyweightPool}. It is a
+ * count-min sketch of 4 bit counters, 16 to a long, with 4 counters per key.
+ * When the number of increments reaches ten times the maximal size of the
+ * pool, all counters are halved, so old popularity fades.
+ *
+ * It is not thread safe.
+ */
+final class FrequencySketch {
+
+	private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	private final long[] table;
+	private final int sampleSize;
+	private int size;
+
+	FrequencySketch(int maximumSize) {
+		int capacity = Integer.highestOneBit(Math.max(maximumSize, 8) - 1) << 1;
+		table = new long[capacity];
+		sampleSize = 10 * Math.max(maximumSize, 1);
+	}
+
+	private static int spread(Object key) {
+		int hash = key.hashCode() * 0x9E3779B9;
+		return hash ^ hash >>> 16;
+	}
+
+	private int indexOf(int hash, int i) {
+		long h = (hash + SEEDS[i]) * SEEDS[i];
+		h += h >>> 32;
+		return (int) h & table.length - 1;
+	}
+
+	void increment(Object key) {
+		int hash = spread(key), start = (hash & 3) << 2;
+		boolean added = false;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i), offset = start + i << 2;
+			long mask = 0xfL << offset;
+			if ((table[index] & mask) != mask) {
+				table[index] += 1L << offset;
+				added = true;
+			}
+		}
+		if (added && ++size == sampleSize)
+			reset();
+	}
+
+	int frequency(Object key) {
+		int hash = spread(key), start = (hash & 3) << 2, frequency = 15;
+		for (int i = 0; i < 4; i++)
+			frequency = Math.min(frequency, (int) (table[indexOf(hash, i)] >>> (start + i << 2)) & 0xf);
+		return frequency;
+	}
+
+	private void reset() {
+		for (int i = 0; i < table.length; i++)
+			table[i] = table[i] >>> 1 & RESET_MASK;
+		size /= 2;
+	}
+}
@@ -23,6 +23,8 @@ package com.acme.utils;
 import static java.util.Map.entry;
 
 import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import static com.acme.utils.GeoDB.KeyValue.keyValue;
@@ -1110,6 +1112,19 @@ public final class GeoDB {
 				"\u05e2\u05db\u05d5",
 				"\u05d0\u05d5\u05e8-\u05e2\u05e7\u05d9\u05d1\u05d4")));
 
+	/*
+	 * the cities indexed by country code and then by state code, so a lookup does
+	 * not create a key value
+	 */
+	private static final Map<String, Map<String, List<String>>> CITIES_BY_CODES = index(CITIES);
+
+	private static Map<String, Map<String, List<String>>> index(Map<KeyValue, List<String>> cities) {
+		Map<String, Map<String, List<String>>> index = new HashMap<>();
+		cities.forEach((codes, names) -> index.computeIfAbsent(codes.getKey(), code -> new HashMap<>()).put(codes.getValue(), names));
+		index.replaceAll((code, states) -> Collections.unmodifiableMap(states));
+		return Collections.unmodifiableMap(index);
+	}
+
 	public static KeyValue countryByCountryCode(String code) {
 		return COUNTRIES.stream().filter(kv -> kv.getKey().equals(code)).findAny().orElse(null);
 	}
@@ -1119,7 +1134,8 @@ public final class GeoDB {
 	}
 
 	public static List<String> citiesByCodes(String countryCode, String stateCode) {
-		return CITIES.get(keyValue(countryCode, stateCode));
+		Map<String, List<String>> states = CITIES_BY_CODES.get(countryCode);
+		return states == null ? null : states.get(stateCode);
 	}
 
 	public final static class KeyValue extends AbstractMap.SimpleEntry<String, String> {
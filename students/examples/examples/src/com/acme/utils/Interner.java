@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.utils;
+
+import java.util.function.Function;
+
+/**
+ * The class Interner returns one canonical instance for all the equal instances
+ * it is given, like {@link String#intern()} does for strings, so equal values
+ * that are created over and over share a single copy.
+ *
+ * An interner is keyed by its values, so its pool must be size bounded: a weak
+ * or soft pool would hold its values strongly through their keys and would
+ * never release them.
+ *
+ * @param <T> the type of interned values
+ */
+public final class Interner<T> {
+
+	private final FlyweightPool<T, T> pool;
+
+	private Interner(FlyweightPool<T, T> pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * @param maximumSize the maximal number of canonical instances
+	 * @return an interner that drops the least recently used instance when full
+	 */
+	public static <T> Interner<T> lru(int maximumSize) {
+		return new Interner<>(FlyweightPool.lru(maximumSize));
+	}
+
+	/**
+	 * @param maximumSize the maximal number of canonical instances
+	 * @return an interner that keeps the most frequently used instances when full
+	 */
+	public static <T> Interner<T> tinyLfu(int maximumSize) {
+		return new Interner<>(FlyweightPool.tinyLfu(maximumSize));
+	}
+
+	/**
+	 * @param value the value to intern
+	 * @return the canonical instance equal to the value, which is the value itself
+	 *         if none was interned yet
+	 */
+	public T intern(T value) {
+		return pool.get(value, Function.identity());
+	}
+
+	public FlyweightPool.Stats stats() {
+		return pool.stats();
+	}
+
+	@Override
+	public String toString() {
+		return "Interner [" + pool.policy() + ", " + pool.stats() + "]";
+	}
+}
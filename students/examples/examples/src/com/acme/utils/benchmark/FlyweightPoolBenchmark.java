@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.utils.benchmark;
+
+import java.awt.Color;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.acme.flyweight.Circle;
+import com.acme.flyweight.CircleFactory;
+import com.acme.utils.FlyweightPool;
+import com.acme.utils.GeoDB;
+import com.acme.utils.GeoDB.KeyValue;
+
+/**
+ * The class FlyweightPoolBenchmark measures the {@link FlyweightPool} policies
+ * and the lookups of {@link GeoDB} and {@link CircleFactory}.
+ *
+ * The policies serve requests for keys drawn from a Zipf distribution (a few
+ * keys are requested very often, most keys rarely) from pools that are smaller
+ * than the number of keys, so they differ in the hit rate. The weak and soft
+ * pools keep nothing alive but the returned instance, so their hit rate is the
+ * rate of instances that were not collected yet.
+ *
+ * The city lookup is measured with a key value probe, as
+ * {@link GeoDB#citiesByCodes(String, String)} looked the cities up before, and
+ * with the nested index it uses now. The circle lookup is measured through the
+ * weak values pool of {@link CircleFactory}, for flyweight and non flyweight
+ * circles. The allocated bytes are counted by the thread allocation counter of
+ * the JVM.
+ *
+ * Usage: FlyweightPoolBenchmark [requests [keys [pool size]]]
+ */
+public class FlyweightPoolBenchmark {
+
+	private static final int RUNS = 5;
+	private static final double SKEW = 0.9;
+
+	private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int keys = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+		int size = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+		Integer[] requests = zipf(n, keys);
+		System.out.printf("%-12s %10s %10s %10s %12s %14s%n", "policy", "requests", "pool size", "hit rate", "ns/request", "bytes/request");
+		run("weak values", requests, size, s -> FlyweightPool.weakValues());
+		run("soft values", requests, size, s -> FlyweightPool.softValues());
+		run("lru", requests, size, FlyweightPool::lru);
+		run("tiny lfu", requests, size, FlyweightPool::tinyLfu);
+		System.out.println();
+		cities(n);
+		System.out.println();
+		circles(n);
+	}
+
+	/*
+	 * the keys are boxed up front, so the requests measure the pool only
+	 */
+	private static Integer[] zipf(int n, int keys) {
+		double[] cdf = new double[keys];
+		double sum = 0;
+		for (int i = 0; i < keys; i++)
+			cdf[i] = sum += 1 / Math.pow(i + 1, SKEW);
+		Integer[] boxed = new Integer[keys];
+		for (int i = 0; i < keys; i++)
+			boxed[i] = i;
+		SplittableRandom random = new SplittableRandom(n);
+		Integer[] requests = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			int index = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+			requests[i] = boxed[index < 0 ? -index - 1 : index];
+		}
+		return requests;
+	}
+
+	private static void run(String name, Integer[] requests, int size, Function<Integer, FlyweightPool<Integer, Object>> policy) {
+		Function<Integer, Object> factory = key -> new Object();
+		long thread = Thread.currentThread().getId();
+		long best = Long.MAX_VALUE, bytes = Long.MAX_VALUE;
+		double hitRate = 0;
+		for (int run = 0; run < RUNS; run++) { // the first runs warm up the JIT, the best one is reported
+			FlyweightPool<Integer, Object> pool = policy.apply(size);
+			System.gc();
+			long allocated = threads.getThreadAllocatedBytes(thread);
+			long start = System.nanoTime();
+			for (Integer key : requests)
+				if (pool.get(key, factory) == null)
+					throw new IllegalStateException("no instance");
+			best = Math.min(best, System.nanoTime() - start);
+			bytes = Math.min(bytes, threads.getThreadAllocatedBytes(thread) - allocated);
+			hitRate = pool.stats().hitRate();
+		}
+		System.out.printf("%-12s %10d %10s %10.3f %12.1f %14.1f%n", name, requests.length, name.endsWith("values") ? "-" : String.valueOf(size),
+				hitRate, (double) best / requests.length, (double) bytes / requests.length);
+	}
+
+	private static void cities(int n) {
+		List<KeyValue> codes = GeoDB.CITIES.keySet().stream().collect(Collectors.toList());
+		String[] countries = new String[n], states = new String[n];
+		SplittableRandom random = new SplittableRandom(n);
+		for (int i = 0; i < n; i++) {
+			KeyValue code = codes.get(random.nextInt(codes.size()));
+			// copies, so the hash codes of the strings are computed as for new input
+			countries[i] = new String(code.getKey());
+			states[i] = new String(code.getValue());
+		}
+		System.out.printf("%-22s %10s %12s %14s%n", "city lookup", "requests", "ns/request", "bytes/request");
+		long thread = Thread.currentThread().getId();
+		for (boolean indexed : new boolean[] { false, true }) {
+			long best = Long.MAX_VALUE, bytes = Long.MAX_VALUE;
+			for (int run = 0; run < RUNS; run++) { // the first runs warm up the JIT, the best one is reported
+				int found = 0;
+				long allocated = threads.getThreadAllocatedBytes(thread);
+				long start = System.nanoTime();
+				if (indexed)
+					for (int i = 0; i < n; i++)
+						found += GeoDB.citiesByCodes(countries[i], states[i]).size();
+				else
+					for (int i = 0; i < n; i++)
+						found += GeoDB.CITIES.get(KeyValue.keyValue(countries[i], states[i])).size();
+				best = Math.min(best, System.nanoTime() - start);
+				bytes = Math.min(bytes, threads.getThreadAllocatedBytes(thread) - allocated);
+				if (found == 0)
+					throw new IllegalStateException("no cities");
+			}
+			System.out.printf("%-22s %10d %12.1f %14.1f%n", indexed ? "citiesByCodes (index)" : "key value probe", n, (double) best / n, (double) bytes / n);
+		}
+	}
+
+	/*
+	 * the circles are requested from n / 4 distinct states and kept alive during
+	 * a run, so most requests are served by the pool of the factory
+	 */
+	private static void circles(int n) {
+		SplittableRandom random = new SplittableRandom(n);
+		int distinct = Math.max(n / 4, 1);
+		Color[] colors = new Color[distinct];
+		int[] xs = new int[distinct], ys = new int[distinct], rs = new int[distinct];
+		for (int i = 0; i < distinct; i++) {
+			colors[i] = CircleFactory.getColor(random.nextInt(CircleFactory.COLORS));
+			xs[i] = random.nextInt(1 << 12);
+			ys[i] = random.nextInt(1 << 12);
+			rs[i] = random.nextInt(64);
+		}
+		int[] requests = new int[n];
+		for (int i = 0; i < n; i++)
+			requests[i] = random.nextInt(distinct);
+		System.out.printf("%-22s %10s %12s %14s%n", "circle lookup", "requests", "ns/request", "bytes/request");
+		long thread = Thread.currentThread().getId();
+		for (boolean flyweight : new boolean[] { true, false }) {
+			long best = Long.MAX_VALUE, bytes = Long.MAX_VALUE;
+			for (int run = 0; run < RUNS; run++) { // the first runs warm up the JIT, the best one is reported
+				System.gc(); // the circles of the previous run are collected
+				CircleFactory.liveSize(); // and expunged before the clock starts
+				Circle[] circles = new Circle[n];
+				long allocated = threads.getThreadAllocatedBytes(thread);
+				long start = System.nanoTime();
+				if (flyweight)
+					for (int i = 0; i < n; i++)
+						circles[i] = CircleFactory.getFlyweight(requests[i] % CircleFactory.COLORS);
+				else
+					for (int i = 0; i < n; i++) {
+						int c = requests[i];
+						circles[i] = CircleFactory.getCircle(colors[c], xs[c], ys[c], rs[c]);
+					}
+				best = Math.min(best, System.nanoTime() - start);
+				bytes = Math.min(bytes, threads.getThreadAllocatedBytes(thread) - allocated);
+				if (circles[n - 1] == null)
+					throw new IllegalStateException("no circle");
+			}
+			System.out.printf("%-22s %10d %12.1f %14.1f%n", flyweight ? "flyweight" : "non flyweight", n, (double) best / n, (double) bytes / n);
+		}
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.composite.tree.impl;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.acme.composite.tree.api.ITreeNode;
+
+/**
+ * The Class ConcurrentAVLTreeJUnitTest stresses the {@link ConcurrentAVLTree}
+ * with concurrent readers and writers
+ */
+class ConcurrentAVLTreeJUnitTest {
+
+	private static final int THREADS = 8;
+	private static final int KEYS_PER_THREAD = 20_000;
+
+	@Test
+	@DisplayName("test concurrent inserts")
+	void testConcurrentInserts() throws Exception {
+		ConcurrentAVLTree<Integer> tree = new ConcurrentAVLTree<>(Integer.class);
+		run(THREADS, t -> {
+			for (int i = t; i < THREADS * KEYS_PER_THREAD; i += THREADS)
+				tree.insert(i);
+		});
+		assertEquals(THREADS * KEYS_PER_THREAD, tree.size());
+		assertArrayEquals(IntStream.range(0, THREADS * KEYS_PER_THREAD).boxed().toArray(), tree.inOrder());
+		assertBalanced(tree.root());
+	}
+
+	@Test
+	@DisplayName("test concurrent inserts and deletes")
+	void testConcurrentInsertsAndDeletes() throws Exception {
+		ConcurrentAVLTree<Integer> tree = new ConcurrentAVLTree<>(Integer.class);
+		for (int i = 0; i < THREADS * KEYS_PER_THREAD; i++)
+			tree.insert(i);
+		/* every thread deletes the odd keys and re-inserts the even keys of its own stripe */
+		run(THREADS, t -> {
+			for (int i = t; i < THREADS * KEYS_PER_THREAD; i += THREADS) {
+				if ((i & 1) == 1)
+					tree.delete(i);
+				else
+					tree.insert(i);
+			}
+		});
+		List<Integer> expected = IntStream.range(0, THREADS * KEYS_PER_THREAD).filter(i -> (i & 1) == 0).boxed().collect(Collectors.toList());
+		assertEquals(expected, tree.stream().collect(Collectors.toList()));
+		assertBalanced(tree.root());
+	}
+
+	@Test
+	@DisplayName("test readers see stable keys while writers churn")
+	void testReadersDuringWrites() throws Exception {
+		ConcurrentAVLTree<Integer> tree = new ConcurrentAVLTree<>(Integer.class);
+		/* multiples of 10 are never touched by the writers */
+		int bound = THREADS * KEYS_PER_THREAD;
+		for (int i = 0; i < bound; i += 10)
+			tree.insert(i);
+		CountDownLatch done = new CountDownLatch(THREADS / 2);
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS / 2; t++) {
+			futures.add(pool.submit(() -> {
+				try {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					for (int i = 0; i < KEYS_PER_THREAD; i++) {
+						int key = random.nextInt(bound);
+						if (key % 10 == 0)
+							continue;
+						if (random.nextBoolean())
+							tree.insert(key);
+						else
+							tree.delete(key);
+					}
+				} finally {
+					done.countDown();
+				}
+			}));
+		}
+		for (int t = 0; t < THREADS / 2; t++) {
+			futures.add(pool.submit(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				while (done.getCount() > 0) {
+					int stable = random.nextInt(bound / 10) * 10;
+					assertNotNull(tree.search(stable));
+					assertEquals(stable, (int) tree.floor(stable));
+					assertEquals(stable, (int) tree.ceiling(stable));
+					Integer higher = tree.higher(stable);
+					assertTrue(higher == null || higher > stable && higher <= stable + 10);
+					Integer lower = tree.lower(stable);
+					assertTrue(lower == null || lower < stable && lower >= stable - 10);
+					assertEquals(0, (int) tree.min());
+					/* a weakly consistent scan is ascending, in range and holds every stable key */
+					int[] previous = { -1 };
+					int[] stables = { 0 };
+					tree.rangeScan(stable, stable + 1000, key -> {
+						assertTrue(key >= stable && key <= stable + 1000);
+						assertTrue(key > previous[0]);
+						previous[0] = key;
+						if (key % 10 == 0)
+							stables[0]++;
+					});
+					assertEquals(Math.min(101, (bound - stable + 9) / 10), stables[0]);
+				}
+			}));
+		}
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+		for (Future<?> future : futures)
+			future.get();
+		assertNull(tree.search(-1));
+		assertBalanced(tree.root());
+		assertEquals(tree.size(), tree.inOrder().length);
+	}
+
+	@Test
+	@DisplayName("test parallel stream sees every key")
+	void testParallelStream() {
+		ConcurrentAVLTree<Integer> tree = new ConcurrentAVLTree<>(Integer.class);
+		int n = 100_000;
+		for (int i = 0; i < n; i++)
+			tree.insert(i);
+		assertEquals((long) n * (n - 1) / 2, tree.parallelStream().mapToLong(Integer::longValue).sum());
+		assertEquals(n, tree.parallelStream().count());
+	}
+
+	private interface Work {
+		void run(int thread);
+	}
+
+	private static void run(int threads, Work work) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			int thread = t;
+			futures.add(pool.submit(() -> {
+				start.await();
+				work.run(thread);
+				return null;
+			}));
+		}
+		start.countDown();
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+		for (Future<?> future : futures)
+			future.get();
+	}
+
+	/*
+	 * verify the AVL balance and the cached height and size of every node
+	 */
+	private static int assertBalanced(ITreeNode<Integer> node) {
+		if (node == null)
+			return 0;
+		int lheight = assertBalanced(node.left());
+		int rheight = assertBalanced(node.right());
+		assertTrue(Math.abs(lheight - rheight) <= 1, "unbalanced at " + node.key());
+		int height = Math.max(lheight, rheight) + 1;
+		assertEquals(height, node.height());
+		assertEquals((node.left() == null ? 0 : node.left().size()) + (node.right() == null ? 0 : node.right().size()) + 1, node.size());
+		return height;
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2014 - 2020 T.N.Silverman, All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.acme.observer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The Class ObservableArrayListJUnitTest replays the changes an
+ * {@link ObservableArrayList} reports on a copy of the list before the change,
+ * and checks that the copy ends up like the list
+ */
+class ObservableArrayListJUnitTest {
+
+	private static final int ROUNDS = 2_000;
+	private static final Integer ADDED = -1; // a placeholder for an added element
+
+	/*
+	 * a listener that replays every change on a copy of the list, with a
+	 * placeholder for every added element
+	 */
+	private static final class Replay implements ListChangeListener<Integer> {
+		private List<Integer> copy;
+		int batches;
+
+		Replay(List<Integer> list) {
+			copy = new ArrayList<>(list);
+		}
+
+		@Override
+		public void onChanged(ListChangeEvent<Integer> event) {
+			splice(event);
+			check(event.source());
+		}
+
+		@Override
+		public void onChanges(ListChangeSet<Integer> changes) {
+			batches++;
+			for (ListChangeEvent<Integer> event : changes)
+				splice(event);
+			check(changes.source());
+		}
+
+		private void splice(ListChangeEvent<Integer> event) {
+			List<Integer> range = copy.subList(event.from(), event.from() + event.removedSize());
+			range.clear();
+			range.addAll(Collections.nCopies(event.addedSize(), ADDED));
+		}
+
+		/*
+		 * the replayed copy has the size of the list, and every element that was not
+		 * added is where the list has it
+		 */
+		private void check(List<Integer> source) {
+			assertEquals(source.size(), copy.size());
+			for (int i = 0; i < copy.size(); i++)
+				if (!ADDED.equals(copy.get(i)))
+					assertEquals(source.get(i), copy.get(i));
+			copy = new ArrayList<>(source);
+		}
+	}
+
+	private static ObservableArrayList<Integer> list(Random random) {
+		ObservableArrayList<Integer> list = new ObservableArrayList<>();
+		for (int i = random.nextInt(20); i > 0; i--)
+			list.add(random.nextInt(1000));
+		return list;
+	}
+
+	private static void mutate(List<Integer> list, Random random, int operations) {
+		for (int i = 0; i < operations; i++) {
+			int size = list.size();
+			switch (random.nextInt(6)) {
+			case 0:
+				list.add(random.nextInt(1000));
+				break;
+			case 1:
+				list.add(random.nextInt(size + 1), random.nextInt(1000));
+				break;
+			case 2:
+				if (size > 0)
+					list.remove(random.nextInt(size));
+				break;
+			case 3:
+				if (size > 0)
+					list.set(random.nextInt(size), random.nextInt(1000));
+				break;
+			case 4:
+				if (size > 0) {
+					int from = random.nextInt(size);
+					list.subList(from, from + random.nextInt(size - from + 1)).clear();
+				}
+				break;
+			default:
+				list.addAll(random.nextInt(size + 1), Arrays.asList(random.nextInt(1000), random.nextInt(1000)));
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("test single changes replay to the list")
+	void testSingleChanges() {
+		Random random = new Random(17);
+		for (int round = 0; round < ROUNDS; round++) {
+			ObservableArrayList<Integer> list = list(random);
+			list.addListener(new Replay(list));
+			mutate(list, random, 20);
+		}
+	}
+
+	@Test
+	@DisplayName("test batched changes replay to the list")
+	void testBatchedChanges() {
+		Random random = new Random(42);
+		for (int round = 0; round < ROUNDS; round++) {
+			ObservableArrayList<Integer> list = list(random);
+			Replay replay = new Replay(list);
+			list.addListener(replay);
+			int operations = 1 + random.nextInt(30);
+			list.mutate(batch -> mutate(batch, random, operations));
+			assertTrue(replay.batches <= 1);
+		}
+	}
+
+	@Test
+	@DisplayName("test removeIf, removeAll and retainAll replay to the list")
+	void testRemoveIf() {
+		Random random = new Random(7);
+		for (int round = 0; round < ROUNDS; round++) {
+			ObservableArrayList<Integer> list = list(random);
+			List<Integer> expected = new ArrayList<>(list);
+			Replay replay = new Replay(list);
+			list.addListener(replay);
+			int modulus = 1 + random.nextInt(4);
+			Predicate<Integer> filter = element -> element % modulus == 0;
+			switch (random.nextInt(3)) {
+			case 0:
+				assertEquals(expected.removeIf(filter), list.removeIf(filter));
+				break;
+			case 1:
+				List<Integer> removed = Arrays.asList(random.nextInt(1000), list.isEmpty() ? 0 : list.get(0));
+				assertEquals(expected.removeAll(removed), list.removeAll(removed));
+				break;
+			default:
+				List<Integer> retained = new ArrayList<>(list.subList(0, list.size() / 2));
+				assertEquals(expected.retainAll(retained), list.retainAll(retained));
+			}
+			assertEquals(expected, list);
+			assertTrue(replay.batches <= 1);
+		}
+		ObservableArrayList<Integer> list = new ObservableArrayList<>();
+		assertFalse(list.removeIf(element -> true));
+	}
+}